@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fully-walked values of some requested variables, with each unbound variable replaced by a
+ * {@link ReifiedVar} numbered in order of first appearance. Two answers are equal if they have the
+ * same shape, regardless of which query or run produced them, so answers can be put in hash sets
+ * and used as cache keys. Answers are ordered by their string form, which is also independent of
+ * the run.
+ *
+ * <p>Answers are usually obtained from {@link Reifier#answer(Iterable)} or
+ * {@link BatchReifier#answer(Subst, List)}.
+ */
+public final class Answer implements Comparable<Answer> {
+  private final List<Object> values;
+  private String string;
+
+  private Answer(List<Object> values) {
+    this.values = Collections.unmodifiableList(values);
+  }
+
+  /**
+   * Returns an answer with the given values, which must already be fully walked.
+   */
+  public static Answer of(List<?> reifiedValues) {
+    final Map<Var, ReifiedVar> names = new HashMap<>();
+    Replacer renamer = new Replacer() {
+      @Override
+      public Object replace(Object original) {
+        if (original instanceof Var) {
+          ReifiedVar name = names.get(original);
+          if (name == null) {
+            name = new ReifiedVar(names.size());
+            names.put((Var) original, name);
+          }
+          return name;
+        }
+        if (original instanceof LogicValue) {
+          return ((LogicValue) original).replace(this);
+        }
+        return original;
+      }
+    };
+
+    List<Object> values = new ArrayList<>(reifiedValues.size());
+    for (Object value : reifiedValues) {
+      values.add(renamer.replace(value));
+    }
+    return new Answer(values);
+  }
+
+  /**
+   * The values of the requested variables, in the order they were requested.
+   */
+  public List<Object> values() {
+    return values;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return (other instanceof Answer) && values.equals(((Answer) other).values);
+  }
+
+  @Override
+  public int hashCode() {
+    return values.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    if (string == null) {
+      string = values.toString();
+    }
+    return string;
+  }
+
+  @Override
+  public int compareTo(Answer other) {
+    return toString().compareTo(other.toString());
+  }
+}
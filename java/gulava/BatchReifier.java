@@ -0,0 +1,197 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes fully-walked values, like {@link Reifier}, for many substitutions in sequence. This is
+ * intended for the solutions of a single stream, which are usually extensions of the same
+ * persistent map and share most of their bindings.
+ *
+ * <p>For every variable it reifies, an instance remembers the object the variable was bound to,
+ * the variables that appear directly in that object, and the result. When a later substitution
+ * binds the variable to the identical object, and each of those variables has the identical result
+ * again, the remembered result is reused without allocating anything. So for each solution, only
+ * the values which depend on new bindings are rebuilt. Reused results are shared between the values
+ * returned for different solutions, which is safe since logic values are immutable.
+ *
+ * <p>Each remembered result is stamped with the call of {@link #reify(Subst, List)} which last
+ * checked it, so within a call, each variable is checked once and later uses of it take constant
+ * time. Results of variables which a call did not reach are forgotten once they outnumber those it
+ * did, so memory use follows the size of the recent solutions rather than of all solutions.
+ *
+ * <p>Checking still visits every variable reachable from the requested ones, so the time each
+ * call takes is proportional to the number of those variables, although only the values which
+ * changed are allocated. Time proportional to the new bindings alone would need the bindings which
+ * differ between two substitutions, which {@link Subst} does not keep: its persistent map has no
+ * way to compare two versions, and a link from each substitution to the one it extends would keep
+ * every intermediate substitution of a search alive.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public final class BatchReifier {
+  /**
+   * The binding of a memo whose variable is unbound. This differs from every binding, including
+   * {@code null}.
+   */
+  private static final Object UNBOUND = new Object();
+
+  private static final class Memo {
+    Object binding = UNBOUND;
+    Var[] children;
+    Object[] childResults;
+    Object result;
+
+    /**
+     * The stamp of the call which last checked this memo. The fields above are up to date for the
+     * substitution of that call.
+     */
+    int stamp;
+    boolean inProgress;
+  }
+
+  /**
+   * Reifies a bound value and records the variables that appear in it, not counting those nested
+   * in the values of other variables.
+   */
+  private final class ChildCollector implements Replacer {
+    final List<Var> children = new ArrayList<>();
+    final List<Object> childResults = new ArrayList<>();
+
+    @Override
+    public Object replace(Object original) {
+      if (original instanceof Var) {
+        Object result = reifyVar((Var) original);
+        children.add((Var) original);
+        childResults.add(result);
+        return result;
+      }
+      if (original instanceof LogicValue) {
+        return ((LogicValue) original).replace(this);
+      }
+      return original;
+    }
+  }
+
+  private final Map<Var, Memo> memos = new HashMap<>();
+  private Subst subst;
+  private int stamp;
+  private int checked;
+
+  /**
+   * Returns the fully-walked value of each variable in {@code vars}, in the same order.
+   */
+  public List<Object> reify(Subst subst, List<? extends Var> vars) {
+    this.subst = subst;
+    stamp++;
+    checked = 0;
+    try {
+      List<Object> results = new ArrayList<>(vars.size());
+      for (Var var : vars) {
+        results.add(reifyVar(var));
+      }
+      return results;
+    } finally {
+      this.subst = null;
+      if (memos.size() > checked * 2) {
+        evictUnchecked();
+      }
+    }
+  }
+
+  /**
+   * Forgets the memos of the variables which the last call did not reach. Since there are more of
+   * them than of those it did, the time this takes is proportional to the memory it frees.
+   */
+  private void evictUnchecked() {
+    Iterator<Memo> iterator = memos.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().stamp != stamp) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of variables with remembered results.
+   */
+  int memoCount() {
+    return memos.size();
+  }
+
+  /**
+   * Returns the fully-walked values of {@code vars} as an {@link Answer}, in which unbound
+   * variables are numbered canonically.
+   */
+  public Answer answer(Subst subst, List<? extends Var> vars) {
+    return Answer.of(reify(subst, vars));
+  }
+
+  private Object reifyVar(Var var) {
+    Memo memo = memos.get(var);
+    if (memo == null) {
+      memo = new Memo();
+      memos.put(var, memo);
+    } else if (memo.stamp == stamp) {
+      return memo.inProgress ? var : memo.result;
+    }
+    memo.stamp = stamp;
+    checked++;
+
+    Object binding = subst.get(var);
+    if ((binding == null) && !subst.containsKey(var)) {
+      memo.binding = UNBOUND;
+      memo.children = null;
+      memo.childResults = null;
+      memo.result = var;
+      return var;
+    }
+
+    memo.inProgress = true;
+    try {
+      if ((memo.binding != binding) || !childResultsUnchanged(memo)) {
+        ChildCollector collector = new ChildCollector();
+        memo.result = collector.replace(binding);
+        memo.binding = binding;
+        memo.children = collector.children.toArray(new Var[0]);
+        memo.childResults = collector.childResults.toArray();
+      }
+    } finally {
+      memo.inProgress = false;
+    }
+    return memo.result;
+  }
+
+  private boolean childResultsUnchanged(Memo memo) {
+    for (int i = 0; i < memo.children.length; i++) {
+      if (reifyVar(memo.children[i]) != memo.childResults[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads terms written by a {@link BufferEncoder}. Each term read gets its own fresh variables.
+ * Logic values are created by the factories registered with {@link TermDecoder#register}. An
+ * instance is not thread-safe, but may be reused for any number of terms.
+ */
+public final class BufferDecoder implements FieldReader {
+  private ByteBuffer buffer;
+  private final List<Var> vars = new ArrayList<>();
+  private final List<TermDecoder.Factory> types = new ArrayList<>();
+  private byte[] stringBytes = new byte[64];
+
+  /**
+   * Reads the term at the position of {@code buffer} and advances the position past it.
+   *
+   * @throws java.nio.BufferUnderflowException if the buffer ends before the term does
+   * @throws IllegalArgumentException if the buffer does not contain a valid term
+   */
+  public Object decode(ByteBuffer buffer) {
+    vars.clear();
+    types.clear();
+    this.buffer = buffer;
+    try {
+      return read();
+    } finally {
+      this.buffer = null;
+    }
+  }
+
+  /**
+   * Reads a term nested in the one being decoded. This is meant for
+   * {@link TermDecoder.Factory#decode(FieldReader)}; use {@link #decode(ByteBuffer)} to read a
+   * whole term.
+   */
+  @Override
+  public Object read() {
+    int tag = buffer.get() & 0xff;
+    if (tag != TermFormat.CONS) {
+      return readNonCons(tag);
+    }
+
+    // A list is read iteratively. The cells are created from the end once the tail is known.
+    List<Object> cars = new ArrayList<>();
+    while (tag == TermFormat.CONS) {
+      cars.add(read());
+      tag = buffer.get() & 0xff;
+    }
+    Object list = readNonCons(tag);
+    for (int i = cars.size() - 1; i >= 0; i--) {
+      list = Cons.of(cars.get(i), list);
+    }
+    return list;
+  }
+
+  private Object readNonCons(int tag) {
+    switch (tag) {
+      case TermFormat.NULL:
+        return null;
+      case TermFormat.VAR:
+        int number = TermFormat.getVarint(buffer);
+        if (number == vars.size()) {
+          vars.add(new Var());
+        } else if (number < 0 || number > vars.size()) {
+          throw new IllegalArgumentException("Variable number out of order: " + number);
+        }
+        return vars.get(number);
+      case TermFormat.INTEGER:
+        return TermFormat.unZigZag(TermFormat.getVarint(buffer));
+      case TermFormat.LONG:
+        return TermFormat.unZigZag(TermFormat.getVarlong(buffer));
+      case TermFormat.DOUBLE:
+        return readDouble();
+      case TermFormat.TRUE:
+        return true;
+      case TermFormat.FALSE:
+        return false;
+      case TermFormat.STRING:
+        return getString();
+      case TermFormat.VALUE:
+        int typeNumber = TermFormat.getVarint(buffer);
+        if (typeNumber == types.size()) {
+          String className = getString();
+          TermDecoder.Factory factory = TermDecoder.factoryFor(className);
+          if (factory == null) {
+            throw new IllegalArgumentException("No factory registered for " + className);
+          }
+          types.add(factory);
+        } else if (typeNumber < 0 || typeNumber > types.size()) {
+          throw new IllegalArgumentException("Type number out of order: " + typeNumber);
+        }
+        try {
+          return types.get(typeNumber).decode(this);
+        } catch (IOException e) {
+          // This decoder does not throw IOException, so it came from the factory.
+          throw new IllegalArgumentException("Cannot decode value", e);
+        }
+      default:
+        throw new IllegalArgumentException("Unknown tag: " + tag);
+    }
+  }
+
+  private String getString() {
+    int length = TermFormat.getVarint(buffer);
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid string length: " + length);
+    }
+    if (stringBytes.length < length) {
+      stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+    }
+    buffer.get(stringBytes, 0, length);
+    return new String(stringBytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public boolean readBoolean() {
+    return buffer.get() != 0;
+  }
+
+  @Override
+  public byte readByte() {
+    return buffer.get();
+  }
+
+  @Override
+  public short readShort() {
+    return buffer.getShort();
+  }
+
+  @Override
+  public char readChar() {
+    return buffer.getChar();
+  }
+
+  @Override
+  public int readInt() {
+    return buffer.getInt();
+  }
+
+  @Override
+  public long readLong() {
+    return buffer.getLong();
+  }
+
+  @Override
+  public float readFloat() {
+    return Float.intBitsToFloat(buffer.getInt());
+  }
+
+  @Override
+  public double readDouble() {
+    return Double.longBitsToDouble(buffer.getLong());
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes single terms to a {@link ByteBuffer} without allocating, for storing or transferring
+ * terms one at a time. {@link BufferDecoder} reads them back. Unlike {@link TermEncoder}, each term
+ * is a self-contained record, and subterms and strings are not shared, since that would need a
+ * table of everything written. Tags, numbers and strings are written as {@link TermEncoder}
+ * writes them.
+ *
+ * <p>Variables are renumbered in order of first appearance within the term, and classes of logic
+ * values are written by name the first time they appear within the term and by number afterwards.
+ * The tables for both are reused from one term to the next, so once they have grown to fit the
+ * terms being written, {@link #encode(Object, ByteBuffer)} allocates nothing. An instance is not
+ * thread-safe, but is cheap enough to keep one per thread.
+ */
+public final class BufferEncoder implements FieldWriter {
+  private ByteBuffer buffer;
+
+  // Open-addressing table from variable to number, keyed on identity hash code. The number of each
+  // variable is stored at the same index in varNumbers, and usedSlots maps each number back to its
+  // slot so that only the slots filled by the last term need clearing.
+  private Var[] varSlots = new Var[32];
+  private int[] varNumbers = new int[32];
+  private int[] usedSlots = new int[16];
+  private int varCount;
+
+  private Class<?>[] types = new Class<?>[8];
+  private int typeCount;
+
+  /**
+   * Writes {@code term} at the position of {@code buffer} and advances the position past it.
+   *
+   * @throws java.nio.BufferOverflowException if the term does not fit in the remaining space, in
+   *     which case the position of {@code buffer} is undefined
+   * @throws IllegalArgumentException if {@code term} or something nested in it cannot be encoded
+   */
+  public void encode(Object term, ByteBuffer buffer) {
+    for (int i = 0; i < varCount; i++) {
+      varSlots[usedSlots[i]] = null;
+    }
+    varCount = 0;
+    Arrays.fill(types, 0, typeCount, null);
+    typeCount = 0;
+    this.buffer = buffer;
+    try {
+      write(term);
+    } finally {
+      this.buffer = null;
+    }
+  }
+
+  /**
+   * Writes {@code term} as part of the term being encoded. This is meant for
+   * {@link Encodable#encodeFields(FieldWriter)}; use {@link #encode(Object, ByteBuffer)} to write a
+   * whole term.
+   */
+  @Override
+  public void write(Object term) {
+    while (term instanceof Cons) {
+      Cons<?, ?> cons = (Cons<?, ?>) term;
+      buffer.put((byte) TermFormat.CONS);
+      write(cons.car());
+      term = cons.cdr();
+    }
+
+    if (term == null) {
+      buffer.put((byte) TermFormat.NULL);
+    } else if (term instanceof Var) {
+      buffer.put((byte) TermFormat.VAR);
+      TermFormat.putVarint(buffer, varNumber((Var) term));
+    } else if (term instanceof Integer) {
+      int value = (Integer) term;
+      buffer.put((byte) TermFormat.INTEGER);
+      TermFormat.putVarint(buffer, TermFormat.zigZag(value));
+    } else if (term instanceof Long) {
+      long value = (Long) term;
+      buffer.put((byte) TermFormat.LONG);
+      TermFormat.putVarlong(buffer, TermFormat.zigZag(value));
+    } else if (term instanceof Double) {
+      buffer.put((byte) TermFormat.DOUBLE);
+      writeDouble((Double) term);
+    } else if (term instanceof Boolean) {
+      buffer.put((byte) ((Boolean) term ? TermFormat.TRUE : TermFormat.FALSE));
+    } else if (term instanceof String) {
+      buffer.put((byte) TermFormat.STRING);
+      TermFormat.putString(buffer, (String) term);
+    } else if (term instanceof Encodable) {
+      buffer.put((byte) TermFormat.VALUE);
+      Class<?> type = term.getClass();
+      int typeNumber = 0;
+      while ((typeNumber < typeCount) && (types[typeNumber] != type)) {
+        typeNumber++;
+      }
+      TermFormat.putVarint(buffer, typeNumber);
+      if (typeNumber == typeCount) {
+        if (typeCount == types.length) {
+          types = Arrays.copyOf(types, typeCount * 2);
+        }
+        types[typeCount++] = type;
+        TermFormat.putString(buffer, type.getName());
+      }
+      try {
+        ((Encodable) term).encodeFields(this);
+      } catch (IOException e) {
+        // This encoder does not throw IOException, so it came from the value itself.
+        throw new IllegalArgumentException("Cannot encode " + type.getName() + ": " + term, e);
+      }
+    } else {
+      throw new IllegalArgumentException(
+          "Cannot encode " + term.getClass().getName() + ": " + term);
+    }
+  }
+
+  private int varNumber(Var var) {
+    int mask = varSlots.length - 1;
+    int slot = System.identityHashCode(var) & mask;
+    while (varSlots[slot] != null) {
+      if (varSlots[slot] == var) {
+        return varNumbers[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    if ((varCount + 1) * 2 > varSlots.length) {
+      growVarTable();
+      return varNumber(var);
+    }
+    varSlots[slot] = var;
+    varNumbers[slot] = varCount;
+    usedSlots[varCount] = slot;
+    return varCount++;
+  }
+
+  private void growVarTable() {
+    Var[] oldSlots = varSlots;
+    int[] oldNumbers = varNumbers;
+    varSlots = new Var[oldSlots.length * 2];
+    varNumbers = new int[oldSlots.length * 2];
+    usedSlots = new int[oldSlots.length];
+    int mask = varSlots.length - 1;
+    for (int i = 0; i < oldSlots.length; i++) {
+      if (oldSlots[i] != null) {
+        int slot = System.identityHashCode(oldSlots[i]) & mask;
+        while (varSlots[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        varSlots[slot] = oldSlots[i];
+        varNumbers[slot] = oldNumbers[i];
+        usedSlots[oldNumbers[i]] = slot;
+      }
+    }
+  }
+
+  @Override
+  public void writeBoolean(boolean value) {
+    buffer.put((byte) (value ? 1 : 0));
+  }
+
+  @Override
+  public void writeByte(byte value) {
+    buffer.put(value);
+  }
+
+  @Override
+  public void writeShort(short value) {
+    buffer.putShort(value);
+  }
+
+  @Override
+  public void writeChar(char value) {
+    buffer.putChar(value);
+  }
+
+  @Override
+  public void writeInt(int value) {
+    buffer.putInt(value);
+  }
+
+  @Override
+  public void writeLong(long value) {
+    buffer.putLong(value);
+  }
+
+  @Override
+  public void writeFloat(float value) {
+    buffer.putInt(Float.floatToIntBits(value));
+  }
+
+  /**
+   * Writes the bits of {@code value} with {@link Double#doubleToLongBits}, which gives every NaN
+   * the same bits, as {@link java.io.DataOutput#writeDouble} does. So equal doubles are written
+   * the same way.
+   */
+  @Override
+  public void writeDouble(double value) {
+    buffer.putLong(Double.doubleToLongBits(value));
+  }
+}
@@ -46,6 +46,15 @@ public final class CachedGoal implements Dumpable, Goal {
 
   @Override
   public Stream run(Subst s) {
+    Profiler.Call call = Profiler.enter("CachedGoal");
+    try {
+      return Profiler.exit(call, runUnprofiled(s));
+    } finally {
+      Profiler.leave(call);
+    }
+  }
+
+  private Stream runUnprofiled(Subst s) {
     if (prerequisite != null && s.get(prerequisite) == null) {
       return Streams.EMPTY;
     }
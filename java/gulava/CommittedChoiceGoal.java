@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.util.Collection;
+
+/**
+ * Common implementation of {@link CondaGoal} and {@link ConduGoal}. The subgoals are the test and
+ * body of each clause in turn: the test of the first clause, its body, the test of the second
+ * clause, and so on. The tests are tried in order, realizing the stream of each only until its
+ * first solution, and the first clause whose test succeeds is committed to. The clauses after it
+ * are never run. A clause which has nothing to do after its test has {@link Goals#UNIT} as its
+ * body.
+ *
+ * <p>This is not relational: the result depends on the order of the clauses and on which solution
+ * of the test happens to be found first, and reordering the goals in an enclosing conjunction can
+ * change the result. Use these goals only as an opt-in performance tool, where the clauses are
+ * known to be mutually exclusive or the dropped solutions are not wanted.
+ */
+abstract class CommittedChoiceGoal extends CompositeGoal {
+  CommittedChoiceGoal(Goal test, Goal body, Goal[] moreTestsAndBodies) {
+    super(test, body, moreTestsAndBodies);
+    if (moreTestsAndBodies.length % 2 != 0) {
+      throw new IllegalArgumentException(
+          "The last clause has a test but no body: " + allGoals[allGoals.length - 1]);
+    }
+  }
+
+  /**
+   * Returns the stream of the clause which is being committed to, given the stream of its test,
+   * which has the first solution of the test in {@link Stream#subst()}.
+   */
+  abstract Stream commit(Stream testStream, Subst firstSolution, Goal body);
+
+  private Stream choose(final Stream testStream, final int clauseIndex, final Subst s) {
+    if (testStream == Streams.EMPTY) {
+      int nextIndex = clauseIndex + 2;
+      if (nextIndex == allGoals.length) {
+        return Streams.EMPTY;
+      }
+      return choose(allGoals[nextIndex].run(s), nextIndex, s);
+    }
+    Subst firstSolution = testStream.subst();
+    if (firstSolution != null) {
+      return commit(testStream, firstSolution, allGoals[clauseIndex + 1]);
+    }
+    return new ImmatureStream(false) {
+      @Override
+      protected Stream realize() {
+        return choose(testStream.rest(), clauseIndex, s);
+      }
+
+      @Override
+      public void addSubcomponents(Collection<Object> destination) {
+        destination.add(testStream);
+      }
+    };
+  }
+
+  @Override
+  public Stream run(Subst s) {
+    return choose(allGoals[0].run(s), 0, s);
+  }
+}
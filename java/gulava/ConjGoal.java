@@ -36,11 +36,16 @@ public final class ConjGoal extends CompositeGoal {
 
   @Override
   public Stream run(Subst s) {
-    Stream result = allGoals[0].run(s);
-    for (int i = 1; i < allGoals.length; i++) {
-      result = result.bind(allGoals[i]);
+    Profiler.Call call = Profiler.enter("ConjGoal");
+    try {
+      Stream result = allGoals[0].run(s);
+      for (int i = 1; i < allGoals.length; i++) {
+        result = result.bind(allGoals[i]);
+      }
+      return Profiler.exit(call, result);
+    } finally {
+      Profiler.leave(call);
     }
-    return result;
   }
 
   /**
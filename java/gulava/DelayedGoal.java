@@ -47,9 +47,10 @@ public final class DelayedGoal implements Dumpable, Goal {
 
   @Override
   public Stream run(final Subst s) {
-    return new ImmatureStream() {
+    Profiler.Call call = Profiler.enter("DelayedGoal");
+    return Profiler.exit(call, new ImmatureStream() {
       @Override
-      public Stream rest() {
+      protected Stream realize() {
         return g.run(s);
       }
 
@@ -58,6 +59,6 @@ public final class DelayedGoal implements Dumpable, Goal {
         destination.add(g);
         destination.add(s);
       }
-    };
+    });
   }
 }
@@ -30,12 +30,26 @@ public final class DisjGoal extends CompositeGoal {
     super(g1, g2, gs);
   }
 
+  /**
+   * Runs every subgoal. Two streams are combined with {@link Stream#mplus(Stream)}, which
+   * alternates between them. More streams are merged with a {@link RoundRobinStream}, so each
+   * subgoal gets an equal share of the steps, rather than the later subgoals of a chain of
+   * {@code mplus} calls getting exponentially fewer.
+   */
   @Override
   public Stream run(Subst s) {
-    Stream result = allGoals[0].run(s);
-    for (int i = 1; i < allGoals.length; i++) {
-      result = result.mplus(allGoals[i].run(s));
+    Profiler.Call call = Profiler.enter("DisjGoal");
+    try {
+      if (allGoals.length == 2) {
+        return Profiler.exit(call, allGoals[0].run(s).mplus(allGoals[1].run(s)));
+      }
+      Stream[] streams = new Stream[allGoals.length];
+      for (int i = 0; i < allGoals.length; i++) {
+        streams[i] = allGoals[i].run(s);
+      }
+      return Profiler.exit(call, RoundRobinStream.merge(streams));
+    } finally {
+      Profiler.leave(call);
     }
-    return result;
   }
 }
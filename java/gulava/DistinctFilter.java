@@ -0,0 +1,139 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Removes solutions from a stream whose {@link Answer} for some variables has already been seen.
+ * Seen answers are kept in an open-addressing table together with their hash codes, which are
+ * structural. A new answer is compared with {@link Answer#equals(Object)} only to the seen answers
+ * with the same hash code, so two different answers are never treated as the same.
+ *
+ * <p>The filter has state, so the filtered stream should only be realized once.
+ */
+final class DistinctFilter {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final List<Var> vars;
+  private final BatchReifier reifier = new BatchReifier();
+  private Answer[] answers = new Answer[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  private int size;
+
+  DistinctFilter(List<Var> vars) {
+    this.vars = vars;
+  }
+
+  Stream filter(final Stream stream) {
+    if (stream == Streams.EMPTY) {
+      return stream;
+    }
+    Subst subst = stream.subst();
+    if ((subst != null) && !add(reifier.answer(subst, vars))) {
+      subst = null;
+    }
+    if (subst == null) {
+      return new ImmatureStream(false) {
+        @Override
+        protected Stream realize() {
+          return filter(stream.rest());
+        }
+
+        @Override
+        public void addSubcomponents(Collection<Object> destination) {
+          destination.add(stream);
+        }
+      };
+    }
+    final Stream rest = stream.rest();
+    if (rest == Streams.EMPTY) {
+      return subst;
+    }
+    return new SolveStep(subst, new ImmatureStream(false) {
+      @Override
+      protected Stream realize() {
+        return filter(rest);
+      }
+
+      @Override
+      public void addSubcomponents(Collection<Object> destination) {
+        destination.add(rest);
+      }
+    });
+  }
+
+  /**
+   * Spreads the bits of a hash code, so that hash codes which differ only in their high bits do not
+   * probe the same slots.
+   */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /**
+   * Adds {@code answer} to the seen answers. Returns {@code false} if an equal answer was already
+   * seen.
+   */
+  boolean add(Answer answer) {
+    if ((size + 1) * 4 > answers.length * 3) {
+      rehash(answers.length * 2);
+    }
+    if (!insert(answers, hashes, answer, mix(answer.hashCode()))) {
+      return false;
+    }
+    size++;
+    return true;
+  }
+
+  private static boolean insert(Answer[] answers, int[] hashes, Answer answer, int hash) {
+    int mask = answers.length - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      if (answers[i] == null) {
+        answers[i] = answer;
+        hashes[i] = hash;
+        return true;
+      }
+      if ((hashes[i] == hash) && answers[i].equals(answer)) {
+        return false;
+      }
+    }
+  }
+
+  private void rehash(int capacity) {
+    Answer[] newAnswers = new Answer[capacity];
+    int[] newHashes = new int[capacity];
+    for (int i = 0; i < answers.length; i++) {
+      if (answers[i] != null) {
+        insert(newAnswers, newHashes, answers[i], hashes[i]);
+      }
+    }
+    answers = newAnswers;
+    hashes = newHashes;
+  }
+}
@@ -25,13 +25,125 @@ import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * Utilities for text-based, tree-shaped object dumping.
+ *
+ * <p>Dumps are written while the tree is traversed, with an explicit stack rather than recursion,
+ * so deep structures such as long streams can be dumped without overflowing the call stack. A
+ * dumper made with {@link Builder} can limit the depth and the number of nodes of each dump, write
+ * each {@link Dumpable} which is reached more than once only the first time, and write JSON rather
+ * than indented text.
  */
 public final class Dumper implements Flushable {
+  /**
+   * The format of a dump.
+   */
+  public enum Format {
+    /**
+     * Writes each node on its own line, indented two spaces deeper than its parent.
+     */
+    TEXT,
+
+    /**
+     * Writes each dump as one line of JSON. A {@link Dumpable} is an object with a
+     * {@code "heading"} string and a {@code "children"} array, plus an {@code "id"} number if
+     * shared subtrees are detected. A repeated {@code Dumpable} is {@code {"ref":id}}, any other
+     * object is a string, and omitted nodes are {@code {"truncated":true}}.
+     */
+    JSON
+  }
+
+  /**
+   * Builder of {@code Dumper} instances.
+   */
+  public static final class Builder {
+    private int indentation;
+    private Writer writer;
+    private int maxDepth = Integer.MAX_VALUE;
+    private long maxNodes = Long.MAX_VALUE;
+    private boolean detectSharing;
+    private Format format = Format.TEXT;
+
+    /**
+     * Sets the indentation of the heading, as number of spaces. This is ignored by
+     * {@link Format#JSON}.
+     */
+    public Builder setIndentation(int indentation) {
+      this.indentation = indentation;
+      return this;
+    }
+
+    public Builder setWriter(Writer writer) {
+      this.writer = writer;
+      return this;
+    }
+
+    /**
+     * Sets the greatest depth of nodes that are written. The object passed to
+     * {@link Dumper#dump(Object)} has depth {@code 0}. The subcomponents of a {@link Dumpable} at
+     * the greatest depth are replaced by a single truncation marker.
+     */
+    public Builder setMaxDepth(int maxDepth) {
+      if (maxDepth < 0) {
+        throw new IllegalArgumentException("Negative depth: " + maxDepth);
+      }
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * Sets the greatest number of nodes that each dump writes. Once it is reached, a truncation
+     * marker is written in place of the next node and the dump ends.
+     */
+    public Builder setMaxNodes(long maxNodes) {
+      if (maxNodes < 1) {
+        throw new IllegalArgumentException("Node budget must be positive: " + maxNodes);
+      }
+      this.maxNodes = maxNodes;
+      return this;
+    }
+
+    /**
+     * Sets whether each {@link Dumpable} is numbered so that when it is reached again, in the same
+     * dump, only a reference to its number is written. Persistent structures such as {@link Subst}
+     * and streams share much of their structure, so this can make dumps far smaller.
+     */
+    public Builder setDetectSharing(boolean detectSharing) {
+      this.detectSharing = detectSharing;
+      return this;
+    }
+
+    public Builder setFormat(Format format) {
+      if (format == null) {
+        throw new NullPointerException();
+      }
+      this.format = format;
+      return this;
+    }
+
+    public Dumper build() {
+      if (writer == null) {
+        throw new IllegalStateException("No writer set");
+      }
+      return new Dumper(this);
+    }
+  }
+
+  /**
+   * Marks the end of the subcomponents of a node on the traversal stack, for formats which close
+   * each node.
+   */
+  private static final Object END = new Object();
+
   private final int indentation;
   private final Writer writer;
+  private final int maxDepth;
+  private final long maxNodes;
+  private final boolean detectSharing;
+  private final Format format;
 
   /**
    * @param indentation the indentation of the heading, as number of spaces. All sub-elements are
@@ -39,17 +151,16 @@ public final class Dumper implements Flushable {
    * @param writer where to dump to
    */
   public Dumper(int indentation, Writer writer) {
-    this.indentation = indentation;
-    this.writer = writer;
+    this(new Builder().setIndentation(indentation).setWriter(writer));
   }
 
-  /**
-   * Returns a new instance that indents one level deeper. Calling this iteratively has accumulative
-   * effects (e.g. {@code d.plusIndentation().plusIndentation.plusIndentation()}, but never affects
-   * an already-created instance.
-   */
-  private Dumper plusIndentation() {
-    return new Dumper(indentation + 2, writer);
+  private Dumper(Builder builder) {
+    this.indentation = builder.indentation;
+    this.writer = builder.writer;
+    this.maxDepth = builder.maxDepth;
+    this.maxNodes = builder.maxNodes;
+    this.detectSharing = builder.detectSharing;
+    this.format = builder.format;
   }
 
   /**
@@ -61,14 +172,14 @@ public final class Dumper implements Flushable {
    *     {@link #dump(Object)}.
    */
   public void dump(String heading, Object... elements) throws IOException {
-    indent();
-    writer.write(heading);
-    writer.write('\n');
-
-    Dumper deeper = plusIndentation();
+    Traversal traversal = new Traversal();
+    ArrayList<Object> children = new ArrayList<>(elements.length);
     for (Object element : elements) {
-      deeper.dump(element);
+      children.add(element);
     }
+    traversal.nodes++;
+    traversal.open(heading, 0, 0, children);
+    traversal.run();
   }
 
   /**
@@ -79,16 +190,9 @@ public final class Dumper implements Flushable {
    *     {@link String#valueOf(Object)}.
    */
   public void dump(Object what) throws IOException {
-    if (what instanceof Dumpable) {
-      Dumpable dumpable = (Dumpable) what;
-      ArrayList<Object> subcomponents = new ArrayList<>();
-      dumpable.addSubcomponents(subcomponents);
-      dump(dumpable.dumpHeading(), subcomponents.toArray());
-    } else {
-      indent();
-      writer.write(String.valueOf(what));
-      writer.write("\n");
-    }
+    Traversal traversal = new Traversal();
+    traversal.push(what, 0);
+    traversal.run();
   }
 
   /**
@@ -99,9 +203,180 @@ public final class Dumper implements Flushable {
     writer.flush();
   }
 
-  private void indent() throws IOException {
-    for (int i = 0; i < indentation; i++) {
-      writer.write(' ');
+  /**
+   * The state of a single dump. The stack holds nodes which have not been written yet, along with
+   * their depths, and the subcomponents of each {@link Dumpable} are collected in one reused list.
+   */
+  private final class Traversal {
+    private Object[] stack = new Object[16];
+    private int[] depths = new int[16];
+    private int size;
+    private final ArrayList<Object> subcomponents = new ArrayList<>();
+    private final Map<Object, Integer> ids = new IdentityHashMap<>();
+    private long nodes;
+    private boolean needsComma;
+
+    void push(Object what, int depth) {
+      if (size == stack.length) {
+        Object[] newStack = new Object[size * 2];
+        int[] newDepths = new int[size * 2];
+        System.arraycopy(stack, 0, newStack, 0, size);
+        System.arraycopy(depths, 0, newDepths, 0, size);
+        stack = newStack;
+        depths = newDepths;
+      }
+      stack[size] = what;
+      depths[size] = depth;
+      size++;
+    }
+
+    void run() throws IOException {
+      boolean exhausted = false;
+      while (size > 0) {
+        size--;
+        Object what = stack[size];
+        int depth = depths[size];
+        stack[size] = null;
+
+        if (what == END) {
+          writer.write("]}");
+          needsComma = true;
+        } else if (exhausted) {
+          continue;
+        } else if (nodes == maxNodes) {
+          truncated(depth);
+          exhausted = true;
+        } else {
+          nodes++;
+          node(what, depth);
+        }
+      }
+      if (format == Format.JSON) {
+        writer.write('\n');
+      }
+    }
+
+    private void node(Object what, int depth) throws IOException {
+      if (!(what instanceof Dumpable)) {
+        leaf(String.valueOf(what), depth);
+        return;
+      }
+      Dumpable dumpable = (Dumpable) what;
+      int id = 0;
+      if (detectSharing) {
+        Integer seen = ids.get(dumpable);
+        if (seen != null) {
+          reference(dumpable.dumpHeading(), seen, depth);
+          return;
+        }
+        id = ids.size() + 1;
+        ids.put(dumpable, id);
+      }
+      subcomponents.clear();
+      dumpable.addSubcomponents(subcomponents);
+      open(dumpable.dumpHeading(), id, depth, subcomponents);
+    }
+
+    /**
+     * Writes the heading of a node and pushes its children, or a truncation marker in their place
+     * if they are deeper than the limit.
+     */
+    void open(String heading, int id, int depth, ArrayList<Object> children) throws IOException {
+      if (format == Format.JSON) {
+        comma();
+        writer.write("{\"heading\":");
+        writeJsonString(heading);
+        if (id != 0) {
+          writer.write(",\"id\":");
+          writer.write(Integer.toString(id));
+        }
+        writer.write(",\"children\":[");
+        needsComma = false;
+        push(END, depth);
+      } else {
+        indent(depth);
+        writer.write(heading);
+        if (id != 0) {
+          writer.write(" @");
+          writer.write(Integer.toString(id));
+        }
+        writer.write('\n');
+      }
+      if (children.isEmpty()) {
+        return;
+      }
+      if (depth >= maxDepth) {
+        truncated(depth + 1);
+        return;
+      }
+      for (int i = children.size() - 1; i >= 0; i--) {
+        push(children.get(i), depth + 1);
+      }
+    }
+
+    private void leaf(String text, int depth) throws IOException {
+      if (format == Format.JSON) {
+        comma();
+        writeJsonString(text);
+      } else {
+        indent(depth);
+        writer.write(text);
+        writer.write('\n');
+      }
+    }
+
+    private void reference(String heading, int id, int depth) throws IOException {
+      if (format == Format.JSON) {
+        comma();
+        writer.write("{\"ref\":");
+        writer.write(Integer.toString(id));
+        writer.write('}');
+      } else {
+        indent(depth);
+        writer.write(heading);
+        writer.write(" @");
+        writer.write(Integer.toString(id));
+        writer.write(" (repeated)\n");
+      }
+    }
+
+    private void truncated(int depth) throws IOException {
+      if (format == Format.JSON) {
+        comma();
+        writer.write("{\"truncated\":true}");
+      } else {
+        indent(depth);
+        writer.write("...\n");
+      }
+    }
+
+    private void comma() throws IOException {
+      if (needsComma) {
+        writer.write(',');
+      }
+      needsComma = true;
+    }
+
+    private void writeJsonString(String text) throws IOException {
+      writer.write('"');
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if ((c == '"') || (c == '\\')) {
+          writer.write('\\');
+          writer.write(c);
+        } else if (c < 0x20) {
+          writer.write(String.format("\\u%04x", (int) c));
+        } else {
+          writer.write(c);
+        }
+      }
+      writer.write('"');
+    }
+
+    private void indent(int depth) throws IOException {
+      for (int i = 0; i < indentation + depth * 2; i++) {
+        writer.write(' ');
+      }
     }
   }
 }
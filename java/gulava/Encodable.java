@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+
+/**
+ * A value which {@link TermEncoder} and {@link BufferEncoder} can write. Classes generated for
+ * {@code @MakeLogicValue} implement this interface and register a {@link TermDecoder.Factory} which
+ * reads the fields back in the same order, so neither direction needs reflection. Other classes can
+ * do the same by implementing this interface and calling
+ * {@link TermDecoder#register(String, TermDecoder.Factory)} with their class name.
+ */
+public interface Encodable {
+  /**
+   * Writes each field of this value to {@code writer}. This is the same for every encoding, and
+   * must not allocate, so that {@link BufferEncoder} does not.
+   */
+  void encodeFields(FieldWriter writer) throws IOException;
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+
+/**
+ * Where a {@link TermDecoder.Factory} reads the fields of a value, in the order that
+ * {@link Encodable#encodeFields(FieldWriter)} wrote them. {@link TermDecoder} and
+ * {@link BufferDecoder} both implement this.
+ */
+public interface FieldReader {
+  /**
+   * Reads a term written with {@link FieldWriter#write(Object)}.
+   */
+  Object read() throws IOException;
+
+  boolean readBoolean() throws IOException;
+
+  byte readByte() throws IOException;
+
+  short readShort() throws IOException;
+
+  char readChar() throws IOException;
+
+  int readInt() throws IOException;
+
+  long readLong() throws IOException;
+
+  float readFloat() throws IOException;
+
+  double readDouble() throws IOException;
+}
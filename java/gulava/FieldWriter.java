@@ -0,0 +1,56 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+
+/**
+ * Where an {@link Encodable} value writes its fields. {@link TermEncoder} and {@link BufferEncoder}
+ * both implement this, so each class writes its fields with a single method for either encoding.
+ * Fields which may hold terms are written with {@link #write(Object)}, and primitive fields with
+ * the method for their type. {@link FieldReader} reads them back in the same order.
+ */
+public interface FieldWriter {
+  /**
+   * Writes {@code term}, which may be a variable, {@code null}, a boxed primitive, a string, or an
+   * {@link Encodable} value.
+   *
+   * @throws IllegalArgumentException if {@code term} or something nested in it cannot be encoded
+   */
+  void write(Object term) throws IOException;
+
+  void writeBoolean(boolean value) throws IOException;
+
+  void writeByte(byte value) throws IOException;
+
+  void writeShort(short value) throws IOException;
+
+  void writeChar(char value) throws IOException;
+
+  void writeInt(int value) throws IOException;
+
+  void writeLong(long value) throws IOException;
+
+  void writeFloat(float value) throws IOException;
+
+  void writeDouble(double value) throws IOException;
+}
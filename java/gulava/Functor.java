@@ -0,0 +1,176 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compound term with a name and any number of arguments, such as {@code point(X, 3)}. Unlike
+ * classes generated for {@code @MakeLogicValue}, functors can be created at run time with any
+ * name and arity, which makes them suitable for terms read from text or other dynamic data. A
+ * functor with several arguments takes a single object and array, rather than a chain of
+ * {@link Cons} cells.
+ *
+ * <p>Two functors unify if they have the same name and arity and their arguments unify pairwise.
+ * Names are interned when a functor is created, so comparing them is a reference check, and the
+ * arity is compared first since it is cheaper still. Functors can be written by
+ * {@link TermEncoder} and {@link BufferEncoder}.
+ */
+public final class Functor implements LogicValue, Encodable {
+  static {
+    TermDecoder.register(Functor.class.getName(), new TermDecoder.Factory() {
+      @Override
+      public Object decode(FieldReader reader) throws IOException {
+        String name = (String) reader.read();
+        Object[] args = new Object[reader.readInt()];
+        for (int i = 0; i < args.length; i++) {
+          args[i] = reader.read();
+        }
+        return new Functor(name.intern(), args);
+      }
+    });
+  }
+
+  private final String name;
+  private final Object[] args;
+
+  /**
+   * Takes ownership of {@code args}. {@code name} must be interned.
+   */
+  private Functor(String name, Object[] args) {
+    this.name = name;
+    this.args = args;
+  }
+
+  public static Functor of(String name, Object... args) {
+    return new Functor(name.intern(), args.clone());
+  }
+
+  /**
+   * The name of this functor, which is always interned.
+   */
+  public String name() {
+    return name;
+  }
+
+  public int arity() {
+    return args.length;
+  }
+
+  /**
+   * Returns the argument at the given zero-based position.
+   */
+  public Object arg(int index) {
+    return args[index];
+  }
+
+  /**
+   * Returns a map with the name under the key {@code "name"} and each argument under its position,
+   * e.g. {@code "0"}.
+   */
+  @Override
+  public Map<String, ?> asMap() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("name", name);
+    for (int i = 0; i < args.length; i++) {
+      map.put(Integer.toString(i), args[i]);
+    }
+    return map;
+  }
+
+  @Override
+  public Subst unify(Subst subst, LogicValue other) {
+    Functor otherFunctor = (Functor) other;
+    Object[] otherArgs = otherFunctor.args;
+    if ((args.length != otherArgs.length) || (name != otherFunctor.name)) {
+      return null;
+    }
+    // Arguments holding identical references are skipped without calling Subst.unify.
+    for (int i = 0; i < args.length; i++) {
+      if (args[i] != otherArgs[i]) {
+        subst = subst.unify(args[i], otherArgs[i]);
+        if (subst == null) {
+          return null;
+        }
+      }
+    }
+    return subst;
+  }
+
+  /**
+   * Returns a functor with each argument replaced. If every replacement is the same reference as
+   * the original argument, this returns {@code this} rather than a copy, which saves allocating
+   * when ground terms are renamed or reified.
+   */
+  @Override
+  public LogicValue replace(Replacer replacer) {
+    Object[] replaced = null;
+    for (int i = 0; i < args.length; i++) {
+      Object arg = replacer.replace(args[i]);
+      if ((replaced == null) && (arg != args[i])) {
+        replaced = args.clone();
+      }
+      if (replaced != null) {
+        replaced[i] = arg;
+      }
+    }
+    return replaced == null ? this : new Functor(name, replaced);
+  }
+
+  @Override
+  public void encodeFields(FieldWriter writer) throws IOException {
+    writer.write(name);
+    writer.writeInt(args.length);
+    for (Object arg : args) {
+      writer.write(arg);
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof Functor)) {
+      return false;
+    }
+    Functor otherFunctor = (Functor) other;
+    return (name == otherFunctor.name) && Arrays.equals(args, otherFunctor.args);
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode() * 31 + Arrays.hashCode(args);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder(name).append('(');
+    for (int i = 0; i < args.length; i++) {
+      if (i != 0) {
+        result.append(", ");
+      }
+      result.append(args[i]);
+    }
+    return result.append(')').toString();
+  }
+}
@@ -21,6 +21,9 @@
  */
 package gulava;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Basic {@link Goal} factories and singleton instances.
  */
@@ -63,6 +66,118 @@ public enum Goals implements Goal {
     };
   }
 
+  /**
+   * Returns a goal that succeeds once with the substitution reduced to the bindings reachable from
+   * {@code liveVars}. See {@link Subst#compact(Iterable)} for which bindings are kept. This can be
+   * placed in a long-running recursive conjunction to keep the substitution from growing without
+   * bound, as long as {@code liveVars} includes every variable that later goals refer to.
+   */
+  public static Goal compact(Var... liveVars) {
+    final List<Var> liveVarList = Arrays.asList(liveVars.clone());
+    return new Goal() {
+      @Override
+      public Stream run(Subst s) {
+        return s.compact(liveVarList);
+      }
+
+      @Override
+      public String toString() {
+        return "compact" + liveVarList;
+      }
+    };
+  }
+
+  /**
+   * Returns a goal with the solutions of {@code goal}, except for those that give the same values
+   * to {@code vars} as an earlier solution, up to renaming of unbound variables. See
+   * {@link Streams#distinct(Stream, Var...)}.
+   */
+  public static Goal distinct(final Goal goal, Var... vars) {
+    final Var[] varArray = vars.clone();
+    return new Goal() {
+      @Override
+      public Stream run(Subst s) {
+        return Streams.distinct(goal.run(s), varArray);
+      }
+
+      @Override
+      public String toString() {
+        return "distinct" + Arrays.asList(varArray) + "(" + goal + ")";
+      }
+    };
+  }
+
+  /**
+   * Returns a goal with only the first solution of {@code goal}, or no solutions if it has none.
+   * This is the same as {@code limit(1, goal)}.
+   */
+  public static Goal once(Goal goal) {
+    return limit(1, goal);
+  }
+
+  /**
+   * Returns a goal with at most the first {@code count} solutions of {@code goal}. The remainder of
+   * the stream of {@code goal} is never realized. See {@link Streams#limit(Stream, int)}.
+   */
+  public static Goal limit(final int count, final Goal goal) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Negative count: " + count);
+    }
+    return new Goal() {
+      @Override
+      public Stream run(Subst s) {
+        if (count == 0) {
+          return Streams.EMPTY;
+        }
+        return Streams.limit(goal.run(s), count);
+      }
+
+      @Override
+      public String toString() {
+        return "limit(" + count + ", " + goal + ")";
+      }
+    };
+  }
+
+  /**
+   * Returns a goal with a solution for each solution of {@code goal}, in which only {@code vars}
+   * keep the values {@code goal} gave them. Each solution is the substitution passed to the goal
+   * extended with the fully-walked values of {@code vars}, so any temporary variables the inner
+   * goal bound are discarded, and the substitution does not grow with each step of a long
+   * computation.
+   *
+   * <p>Bindings made by {@code goal} to variables that are not reachable from {@code vars} are
+   * lost, so {@code vars} should include every variable which {@code goal} is meant to affect and
+   * which later goals refer to.
+   */
+  public static Goal project(final Goal goal, Var... vars) {
+    final Var[] varArray = vars.clone();
+    return new Goal() {
+      @Override
+      public Stream run(final Subst s) {
+        return goal.run(s).bind(new Goal() {
+          @Override
+          public Stream run(Subst solution) {
+            Reifier reifier = new Reifier(solution);
+            Subst projected = s;
+            for (Var var : varArray) {
+              projected = projected.unify(var, reifier.reify(var));
+              if (projected == null) {
+                return Streams.EMPTY;
+              }
+            }
+            return projected;
+          }
+        });
+      }
+
+      @Override
+      public String toString() {
+        return "project" + Arrays.asList(varArray) + "(" + goal + ")";
+      }
+    };
+  }
+
   /**
    * Returns a goal that generates substitutions which satisfy any one subgoal.
    */
@@ -76,4 +191,26 @@ public enum Goals implements Goal {
   public static ConjGoal conj(Goal g1, Goal g2, Goal... gs) {
     return new ConjGoal(g1, g2, gs);
   }
+
+  /**
+   * Returns a soft-cut goal which commits to the first clause whose test succeeds. Each clause is
+   * given as its test followed by its body. This is impure and is meant as an opt-in performance
+   * tool; see {@link CondaGoal}.
+   *
+   * @throws IllegalArgumentException if {@code moreTestsAndBodies} has an odd number of goals
+   */
+  public static CondaGoal conda(Goal test, Goal body, Goal... moreTestsAndBodies) {
+    return new CondaGoal(test, body, moreTestsAndBodies);
+  }
+
+  /**
+   * Returns a committed-choice goal which commits to the first clause whose test succeeds and to
+   * the first solution of that test. Each clause is given as its test followed by its body. This is
+   * impure and is meant as an opt-in performance tool; see {@link ConduGoal}.
+   *
+   * @throws IllegalArgumentException if {@code moreTestsAndBodies} has an odd number of goals
+   */
+  public static ConduGoal condu(Goal test, Goal body, Goal... moreTestsAndBodies) {
+    return new ConduGoal(test, body, moreTestsAndBodies);
+  }
 }
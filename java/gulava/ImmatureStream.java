@@ -24,11 +24,52 @@ package gulava;
 import java.util.Collection;
 
 public abstract class ImmatureStream implements Dumpable, Stream {
+  private final boolean thunk;
+
+  /**
+   * Creates a stream whose realizations are reported to the installed {@link SolverMetrics} as
+   * realized thunks.
+   */
+  protected ImmatureStream() {
+    this(true);
+  }
+
+  /**
+   * @param thunk whether realizing this stream does suspended work of its own, and so is reported
+   *     as a realized thunk. This is {@code false} for streams which only realize the stream they
+   *     wrap, which is reported itself if it is a thunk.
+   */
+  protected ImmatureStream(boolean thunk) {
+    this.thunk = thunk;
+  }
+
   @Override
   public final Subst subst() {
     return null;
   }
 
+  /**
+   * Realizes this stream, reporting it as a realized thunk if it is one. Subclasses should override
+   * {@link #realize()} rather than this method. Those written before it existed may still override
+   * this method instead, but their realizations are then not reported.
+   */
+  @Override
+  public Stream rest() {
+    if (thunk) {
+      InstalledMetrics.metrics.thunkRealized();
+    }
+    return realize();
+  }
+
+  /**
+   * Returns the stream which this stream becomes when it is realized. This must be overridden
+   * unless {@link #rest()} is.
+   */
+  protected Stream realize() {
+    throw new UnsupportedOperationException(
+        getClass().getName() + " overrides neither realize() nor rest()");
+  }
+
   @Override
   public String dumpHeading() {
     return "ImmatureStream";
@@ -38,9 +79,9 @@ public abstract class ImmatureStream implements Dumpable, Stream {
   public final Stream mplus(final Stream s2) {
     final ImmatureStream outer = this;
 
-    return new ImmatureStream() {
+    return new ImmatureStream(false) {
       @Override
-      public Stream rest() {
+      protected Stream realize() {
         return s2.mplus(outer.rest());
       }
 
@@ -56,9 +97,9 @@ public abstract class ImmatureStream implements Dumpable, Stream {
   public final Stream bind(final Goal goal) {
     final ImmatureStream outer = this;
 
-    return new ImmatureStream() {
+    return new ImmatureStream(false) {
       @Override
-      public Stream rest() {
+      protected Stream realize() {
         return outer.rest().bind(goal);
       }
 
@@ -0,0 +1,241 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * {@link SolverMetrics} which keep counters and histograms in memory. Each counter is a
+ * {@link LongAdder}, which spreads updates from different threads over separate cells rather than
+ * contending on one, so recording is cheap even when many threads run goals. Reading a value sums
+ * the cells, so it is slower, and is only exact while no thread is recording.
+ */
+public final class InMemorySolverMetrics implements SolverMetrics {
+  /**
+   * A histogram of non-negative values with a bucket for each power of two. Bucket {@code 0} holds
+   * the value {@code 0}, and bucket {@code i > 0} holds values from {@code 2^(i-1)} to
+   * {@code 2^i - 1}.
+   */
+  public static final class Histogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(new LongBinaryOperator() {
+      @Override
+      public long applyAsLong(long left, long right) {
+        return Math.max(left, right);
+      }
+    }, 0);
+
+    Histogram() {
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    void record(long value) {
+      buckets[Math.min(BUCKETS - Long.numberOfLeadingZeros(value), BUCKETS - 1)].increment();
+      sum.add(value);
+      max.accumulate(value);
+    }
+
+    public long count() {
+      long count = 0;
+      for (LongAdder bucket : buckets) {
+        count += bucket.sum();
+      }
+      return count;
+    }
+
+    public long sum() {
+      return sum.sum();
+    }
+
+    public long max() {
+      return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values, or {@code 0} if there are none.
+     */
+    public double mean() {
+      long count = count();
+      return (count == 0) ? 0 : (double) sum() / count;
+    }
+
+    /**
+     * Returns the number of recorded values in bucket {@code index}.
+     */
+    public long bucketCount(int index) {
+      return buckets[index].sum();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded values, which is the largest
+     * value of the bucket that the percentile falls in, but no more than the maximum. Returns
+     * {@code 0} if there are no values.
+     */
+    public long percentile(double percent) {
+      if (!(percent >= 0) || (percent > 100)) {
+        throw new IllegalArgumentException("Not a percentage: " + percent);
+      }
+      long rank = (long) Math.ceil(count() * percent / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += buckets[i].sum();
+        if ((seen >= rank) && (seen > 0)) {
+          return Math.min((1L << i) - 1, max());
+        }
+      }
+      return max();
+    }
+
+    void reset() {
+      for (LongAdder bucket : buckets) {
+        bucket.reset();
+      }
+      sum.reset();
+      max.reset();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d mean=%.2f p50=%d p99=%d max=%d",
+          count(), mean(), percentile(50), percentile(99), max());
+    }
+  }
+
+  private final LongAdder unifications = new LongAdder();
+  private final LongAdder extensions = new LongAdder();
+  private final LongAdder thunksRealized = new LongAdder();
+  private final Histogram walkChainLengths = new Histogram();
+  private final Histogram substSizes = new Histogram();
+  private final Histogram answersPerQuery = new Histogram();
+  private final Histogram nanosToFirstAnswer = new Histogram();
+  private volatile long startNanos = System.nanoTime();
+
+  @Override
+  public void unified() {
+    unifications.increment();
+  }
+
+  @Override
+  public void extended(int substSize) {
+    extensions.increment();
+    substSizes.record(substSize);
+  }
+
+  @Override
+  public void walked(int chainLength) {
+    walkChainLengths.record(chainLength);
+  }
+
+  @Override
+  public void thunkRealized() {
+    thunksRealized.increment();
+  }
+
+  @Override
+  public void queryEnded(int answers, long nanosToFirstAnswer) {
+    answersPerQuery.record(answers);
+    if (nanosToFirstAnswer >= 0) {
+      this.nanosToFirstAnswer.record(nanosToFirstAnswer);
+    }
+  }
+
+  public long unifications() {
+    return unifications.sum();
+  }
+
+  /**
+   * Returns the number of unifications per second since these metrics were created or reset.
+   */
+  public double unificationsPerSecond() {
+    long elapsed = System.nanoTime() - startNanos;
+    return (elapsed <= 0) ? 0 : unifications() * 1e9 / elapsed;
+  }
+
+  public long extensions() {
+    return extensions.sum();
+  }
+
+  public long thunksRealized() {
+    return thunksRealized.sum();
+  }
+
+  public Histogram walkChainLengths() {
+    return walkChainLengths;
+  }
+
+  /**
+   * Returns the histogram of the sizes of substitutions created by
+   * {@link Subst#ext(Object, Object)}.
+   */
+  public Histogram substSizes() {
+    return substSizes;
+  }
+
+  public Histogram answersPerQuery() {
+    return answersPerQuery;
+  }
+
+  /**
+   * Returns the histogram of the time to the first answer of each query which had one.
+   */
+  public Histogram nanosToFirstAnswer() {
+    return nanosToFirstAnswer;
+  }
+
+  /**
+   * Clears every counter and histogram and restarts the clock for
+   * {@link #unificationsPerSecond()}.
+   */
+  public void reset() {
+    unifications.reset();
+    extensions.reset();
+    thunksRealized.reset();
+    walkChainLengths.reset();
+    substSizes.reset();
+    answersPerQuery.reset();
+    nanosToFirstAnswer.reset();
+    startNanos = System.nanoTime();
+  }
+
+  /**
+   * Writes each counter and histogram on its own line.
+   */
+  public void writeReport(Appendable destination) throws IOException {
+    destination
+        .append(String.format("unifications: %d (%.0f/s)%n", unifications(),
+            unificationsPerSecond()))
+        .append(String.format("extensions: %d%n", extensions()))
+        .append(String.format("thunks realized: %d%n", thunksRealized()))
+        .append(String.format("walk chain length: %s%n", walkChainLengths))
+        .append(String.format("subst size: %s%n", substSizes))
+        .append(String.format("answers per query: %s%n", answersPerQuery))
+        .append(String.format("nanos to first answer: %s%n", nanosToFirstAnswer));
+  }
+}
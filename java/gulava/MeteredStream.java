@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.util.Collection;
+
+/**
+ * Counts the answers of a stream and the time until its first answer, and reports them to
+ * {@link SolverMetrics#queryEnded(int, long)} when the stream ends. Each step of the metered stream
+ * is exactly one step of the original stream. Thunks realized by the stream are reported by
+ * {@link ImmatureStream} itself, so the meter does not report them again.
+ *
+ * <p>The meter has state, so the metered stream should only be realized once.
+ */
+final class MeteredStream {
+  private final SolverMetrics metrics;
+  private final long startNanos = System.nanoTime();
+  private long nanosToFirstAnswer = -1;
+  private int answers;
+
+  MeteredStream(SolverMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  Stream meter(Stream stream) {
+    if (stream == Streams.EMPTY) {
+      metrics.queryEnded(answers, nanosToFirstAnswer);
+      return stream;
+    }
+    if ((stream.subst() != null) && (answers++ == 0)) {
+      nanosToFirstAnswer = System.nanoTime() - startNanos;
+    }
+    return new Step(stream);
+  }
+
+  /**
+   * A step of the metered stream, which delegates to the same step of the original stream.
+   */
+  private final class Step implements Dumpable, Stream {
+    private final Stream delegate;
+
+    Step(Stream delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Subst subst() {
+      return delegate.subst();
+    }
+
+    @Override
+    public Stream rest() {
+      return meter(delegate.rest());
+    }
+
+    @Override
+    public Stream mplus(final Stream s2) {
+      Subst subst = subst();
+      if (subst != null) {
+        return new SolveStep(subst, rest().mplus(s2));
+      }
+      return new ImmatureStream(false) {
+        @Override
+        protected Stream realize() {
+          return s2.mplus(Step.this.rest());
+        }
+
+        @Override
+        public void addSubcomponents(Collection<Object> destination) {
+          destination.add(s2);
+          destination.add(Step.this);
+        }
+      };
+    }
+
+    @Override
+    public Stream bind(final Goal goal) {
+      Subst subst = subst();
+      if (subst != null) {
+        return goal.run(subst).mplus(rest().bind(goal));
+      }
+      return new ImmatureStream(false) {
+        @Override
+        protected Stream realize() {
+          return Step.this.rest().bind(goal);
+        }
+
+        @Override
+        public void addSubcomponents(Collection<Object> destination) {
+          destination.add(goal);
+          destination.add(Step.this);
+        }
+      };
+    }
+
+    @Override
+    public String dumpHeading() {
+      return "MeteredStream";
+    }
+
+    @Override
+    public void addSubcomponents(Collection<Object> destination) {
+      destination.add(delegate);
+    }
+  }
+}
@@ -0,0 +1,688 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records, for each goal that reports to it, how many times it was run, how many solutions and
+ * failures it produced, how many {@link Stream#rest()} steps its streams took, and how long those
+ * took. Predicates and clauses generated by the annotation processors report under their qualified
+ * names, e.g. {@code gulava.Cons.Goals.append_iterate}, and the core goals report under their class
+ * names, e.g. {@code ConjGoal}.
+ *
+ * <p>Statistics are kept per calling context, i.e. per path of goals which were running or whose
+ * streams were being realized when a goal was run. A run of a predicate or clause whose path
+ * already includes one of the same name is a recursive run: it is counted as a call of that earlier
+ * context, and its solutions, steps and time are attributed to the runs enclosing it. Core goals
+ * are only collapsed this way into a goal of the same name run by the same predicate or clause, so
+ * the goals of one predicate are never folded into those of another that it calls. So the number
+ * of contexts does not grow with the depth of recursion, and neither does the cost of profiling a
+ * step. The
+ * statistics can be written as a flat profile with
+ * {@link #writeFlatProfile(Appendable)} or as collapsed stacks, which flame graph tools accept,
+ * with {@link #writeCollapsedStacks(Appendable)}. A profiler started with a {@link TraceListener}
+ * also reports each goal run and its outcome to the listener as it happens.
+ *
+ * <p>At most one profiler is active at a time. While none is, and no {@link CallObserver} is set,
+ * reporting costs two reads of static fields. The core goals report whenever they run while a
+ * profiler is active, but generated predicates and clauses are only profiled if they were created
+ * while it was active, so the query should be built after calling {@link #start()}. A failure is
+ * counted when a stream ends without having produced any solution; streams which are abandoned
+ * before they end are not counted as failures. The profiler is not thread-safe.
+ */
+public final class Profiler {
+  private static Profiler active;
+  private static CallObserver callObserver;
+
+  /**
+   * Receives the name of each goal that reports to the profiler when it is run, whether or not a
+   * profiler is active. This allows other tools, such as event recorders, to observe goal runs
+   * through the same instrumentation.
+   */
+  public interface CallObserver {
+    void called(String name);
+  }
+
+  /**
+   * Receives the events of the goal runs of a profiler in the order they happen, so that they can
+   * be traced. Calling contexts are numbered from {@code 1} in the order they are first entered,
+   * and {@code 0} is the context outside of any goal. The listener is called on the thread running
+   * the goals, so it should be fast.
+   */
+  public interface TraceListener {
+    /**
+     * Called when a goal called {@code name} is first run in a new calling context, before
+     * {@link #entered(int, boolean)} is called for it.
+     */
+    void contextCreated(int context, int parentContext, String name);
+
+    /**
+     * Called when a goal is run in {@code context}. Returns whether this run is traced. The other
+     * methods are only called for runs which are traced, which allows the listener to sample runs.
+     * They are never called for recursive runs, whose solutions are reported as those of the runs
+     * enclosing them, so a recursive run never exits.
+     *
+     * @param recursive whether the run is recursive, i.e. was collapsed into {@code context}
+     */
+    boolean entered(int context, boolean recursive);
+
+    /**
+     * Called when the stream of a traced run produces a solution.
+     */
+    void answered(int context);
+
+    /**
+     * Called when the stream of a traced run ends, with the number of solutions it produced. The
+     * run failed if that number is {@code 0}. Streams which are abandoned before they end are
+     * never reported.
+     */
+    void exited(int context, long answers);
+  }
+
+  /**
+   * The statistics of a goal in one calling context.
+   */
+  private static final class Frame {
+    final Frame parent;
+    final String name;
+    final int id;
+
+    /**
+     * Whether this is the frame of a predicate or clause reported with {@link Profiler#wrap},
+     * rather than that of a core goal.
+     */
+    final boolean predicate;
+
+    /**
+     * The frames of the goals run in this context, by name. These are the children of this frame,
+     * and the ancestors that recursive runs were collapsed into.
+     */
+    final Map<String, Frame> callees = new LinkedHashMap<>();
+    long calls;
+    long answers;
+    long failures;
+    long steps;
+    long nanos;
+    long selfNanos;
+
+    Frame(Frame parent, String name, int id, boolean predicate) {
+      this.parent = parent;
+      this.name = name;
+      this.id = id;
+      this.predicate = predicate;
+    }
+
+    /**
+     * Returns the frame which a run of a goal called {@code name} in this context is a recursive
+     * run of, or {@code null} if it is not recursive. A predicate may recur into any ancestor, but
+     * a core goal only into one below the nearest predicate.
+     */
+    Frame recursionOf(String name, boolean predicate) {
+      for (Frame frame = this; frame != null; frame = frame.parent) {
+        if (name.equals(frame.name)) {
+          return frame;
+        }
+        if (!predicate && frame.predicate) {
+          return null;
+        }
+      }
+      return null;
+    }
+
+    List<Frame> children() {
+      List<Frame> children = new ArrayList<>();
+      for (Frame callee : callees.values()) {
+        if (callee.parent == this) {
+          children.add(callee);
+        }
+      }
+      return children;
+    }
+  }
+
+  /**
+   * A period of time during which some frame is running. Time spent in nested sections is not
+   * counted as self time of the outer section's frame.
+   */
+  private static final class Section {
+    final Section outer;
+    final Frame frame;
+    final long start = System.nanoTime();
+    long childNanos;
+
+    Section(Section outer, Frame frame) {
+      this.outer = outer;
+      this.frame = frame;
+    }
+  }
+
+  /**
+   * A single run of a goal. Returned by {@link Profiler#enter(String)} and passed to
+   * {@link Profiler#exit(Call, Stream)} and {@link Profiler#leave(Call)}.
+   */
+  public static final class Call {
+    private final Profiler profiler;
+    private final Frame frame;
+    private final boolean traced;
+    private Section section;
+    private long answers;
+
+    /**
+     * The number of streams of this run which have not ended. This is more than one after the
+     * stream has been split into the streams it merges fairly.
+     */
+    private int liveStreams = 1;
+
+    private Call(Profiler profiler, Frame frame, Section section, boolean traced) {
+      this.profiler = profiler;
+      this.frame = frame;
+      this.section = section;
+      this.traced = traced;
+    }
+  }
+
+  private final Frame root = new Frame(null, null, 0, false);
+  private final TraceListener traceListener;
+  private int frameCount;
+  private Section section;
+
+  private Profiler(TraceListener traceListener) {
+    this.traceListener = traceListener;
+  }
+
+  /**
+   * Creates a profiler and makes it the active one, replacing any profiler that is already active.
+   */
+  public static Profiler start() {
+    return start(null);
+  }
+
+  /**
+   * Creates a profiler which also reports each goal run to {@code traceListener}, and makes it the
+   * active one, replacing any profiler that is already active.
+   */
+  public static Profiler start(TraceListener traceListener) {
+    Profiler profiler = new Profiler(traceListener);
+    active = profiler;
+    return profiler;
+  }
+
+  /**
+   * Stops reporting to this profiler, if it is the active one. Streams of goals that were already
+   * profiled keep reporting to it.
+   */
+  public void stop() {
+    if (active == this) {
+      active = null;
+    }
+  }
+
+  /**
+   * Sets the observer that is notified of goal runs, replacing any existing one, or removes it if
+   * {@code observer} is {@code null}. As with profilers, generated predicates and clauses only
+   * notify it if they were created while it was set.
+   */
+  public static void setCallObserver(CallObserver observer) {
+    callObserver = observer;
+  }
+
+  /**
+   * Returns {@code goal} itself if no profiler is active and no call observer is set. Otherwise,
+   * returns a goal which reports each run of {@code goal} under {@code name} to them.
+   */
+  public static Goal wrap(final String name, final Goal goal) {
+    final Profiler profiler = active;
+    final CallObserver observer = callObserver;
+    if ((profiler == null) && (observer == null)) {
+      return goal;
+    }
+    return new ProfiledGoal(name, goal, profiler, observer);
+  }
+
+  /**
+   * A goal which reports each of its runs to a profiler and call observer captured when it was
+   * created.
+   */
+  private static final class ProfiledGoal implements Dumpable, Goal {
+    private final String name;
+    private final Goal goal;
+    private final Profiler profiler;
+    private final CallObserver observer;
+
+    ProfiledGoal(String name, Goal goal, Profiler profiler, CallObserver observer) {
+      this.name = name;
+      this.goal = goal;
+      this.profiler = profiler;
+      this.observer = observer;
+    }
+
+    @Override
+    public Stream run(Subst s) {
+      if (observer != null) {
+        observer.called(name);
+      }
+      if (profiler == null) {
+        return goal.run(s);
+      }
+      Call call = profiler.enterCall(name, true);
+      try {
+        return exit(call, goal.run(s));
+      } finally {
+        leave(call);
+      }
+    }
+
+    @Override
+    public String dumpHeading() {
+      return "Profiled " + name;
+    }
+
+    @Override
+    public void addSubcomponents(Collection<Object> destination) {
+      destination.add(goal);
+    }
+
+    @Override
+    public String toString() {
+      return goal.toString();
+    }
+  }
+
+  /**
+   * Notifies the call observer, if any, and records the start of a run of a goal called
+   * {@code name}. Returns {@code null} if no profiler is active or the run is recursive. The result
+   * must be passed to {@link #exit(Call, Stream)} with the stream of the goal, and then to
+   * {@link #leave(Call)} in a {@code finally} block, in case the goal throws:
+   *
+   * <pre>
+   * Profiler.Call call = Profiler.enter("MyGoal");
+   * try {
+   *   return Profiler.exit(call, ...);
+   * } finally {
+   *   Profiler.leave(call);
+   * }
+   * </pre>
+   */
+  public static Call enter(String name) {
+    CallObserver observer = callObserver;
+    if (observer != null) {
+      observer.called(name);
+    }
+    Profiler profiler = active;
+    return (profiler == null) ? null : profiler.enterCall(name, false);
+  }
+
+  /**
+   * Records the end of a run of a goal, and returns {@code result} or a stream that reports its
+   * solutions and steps. If {@code call} is {@code null}, just returns {@code result}.
+   */
+  public static Stream exit(Call call, Stream result) {
+    if (call == null) {
+      return result;
+    }
+    leave(call);
+    return call.profiler.track(call, result);
+  }
+
+  /**
+   * Records the end of a run of a goal if {@link #exit(Call, Stream)} was not reached for it
+   * because the goal threw. Does nothing if it was, or if {@code call} is {@code null}.
+   */
+  public static void leave(Call call) {
+    if ((call != null) && (call.section != null)) {
+      call.profiler.endSection(call.section);
+      call.section = null;
+    }
+  }
+
+  private Call enterCall(String name, boolean predicate) {
+    Frame parent = (section == null) ? root : section.frame;
+    Frame frame = parent.callees.get(name);
+    if (frame == null) {
+      frame = parent.recursionOf(name, predicate);
+      if (frame == null) {
+        frame = new Frame(parent, name, ++frameCount, predicate);
+        if (traceListener != null) {
+          traceListener.contextCreated(frame.id, parent.id, name);
+        }
+      }
+      parent.callees.put(name, frame);
+    }
+    frame.calls++;
+    boolean recursive = frame.parent != parent;
+    boolean traced = (traceListener != null) && traceListener.entered(frame.id, recursive);
+    if (recursive) {
+      // A recursive run. Its stream is part of the stream of an enclosing run, which is tracked.
+      return null;
+    }
+    return new Call(this, frame, beginSection(frame), traced);
+  }
+
+  private Section beginSection(Frame frame) {
+    section = new Section(section, frame);
+    return section;
+  }
+
+  private void endSection(Section ended) {
+    long elapsed = System.nanoTime() - ended.start;
+    ended.frame.nanos += elapsed;
+    ended.frame.selfNanos += elapsed - ended.childNanos;
+    section = ended.outer;
+    if (section != null) {
+      section.childNanos += elapsed;
+    }
+  }
+
+  private Stream track(Call call, Stream stream) {
+    if (stream == Streams.EMPTY) {
+      if (--call.liveStreams > 0) {
+        return stream;
+      }
+      if (call.answers == 0) {
+        call.frame.failures++;
+      }
+      if (call.traced) {
+        traceListener.exited(call.frame.id, call.answers);
+      }
+      return stream;
+    }
+    if (stream.subst() != null) {
+      answered(call);
+    }
+    return new ProfiledStream(call, stream);
+  }
+
+  private void answered(Call call) {
+    call.answers++;
+    call.frame.answers++;
+    if (call.traced) {
+      traceListener.answered(call.frame.id);
+    }
+  }
+
+  /**
+   * Delegates to a stream of a profiled call, reporting the solutions and steps of the stream. Each
+   * step of this stream is exactly one step of the delegate, and streams are merged with it the
+   * same way as with the delegate, so profiling does not change how much work is done or the order
+   * of the solutions.
+   */
+  private static final class ProfiledStream implements Dumpable, Stream {
+    private final Call call;
+    private final Stream delegate;
+
+    ProfiledStream(Call call, Stream delegate) {
+      this.call = call;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Subst subst() {
+      return delegate.subst();
+    }
+
+    @Override
+    public Stream rest() {
+      Profiler profiler = call.profiler;
+      call.frame.steps++;
+      Section stepSection = profiler.beginSection(call.frame);
+      Stream rest;
+      try {
+        rest = delegate.rest();
+      } finally {
+        profiler.endSection(stepSection);
+      }
+      return profiler.track(call, rest);
+    }
+
+    /**
+     * If the delegate merges streams fairly, possibly inside other profiled streams, returns those
+     * streams each wrapped the same way as the delegate, followed by {@code extra} empty slots.
+     * Otherwise returns {@code null}.
+     */
+    private Stream[] split(int extra) {
+      Stream[] parts;
+      if (delegate instanceof RoundRobinStream) {
+        parts = ((RoundRobinStream) delegate).streams(extra);
+      } else if (delegate instanceof ProfiledStream) {
+        parts = ((ProfiledStream) delegate).split(extra);
+        if (parts == null) {
+          return null;
+        }
+      } else {
+        return null;
+      }
+      // The solution of the first stream has already been reported as that of this stream. Those
+      // of the others are reported now, since they would otherwise only be seen after rest().
+      int count = parts.length - extra;
+      for (int i = 0; i < count; i++) {
+        if ((i > 0) && (parts[i].subst() != null)) {
+          call.profiler.answered(call);
+        }
+        parts[i] = new ProfiledStream(call, parts[i]);
+      }
+      call.liveStreams += count - 1;
+      return parts;
+    }
+
+    @Override
+    public Stream mplus(final Stream s2) {
+      // A RoundRobinStream appends s2 to the streams it merges. Do the same with the wrapped
+      // streams, so that s2 gets the same share of the steps as it would without profiling.
+      Stream[] parts = split(1);
+      if (parts != null) {
+        parts[parts.length - 1] = s2;
+        return RoundRobinStream.merge(parts);
+      }
+      Subst subst = subst();
+      if (subst != null) {
+        return new SolveStep(subst, rest().mplus(s2));
+      }
+      final Stream outer = this;
+      return new ImmatureStream(false) {
+        @Override
+        protected Stream realize() {
+          return s2.mplus(outer.rest());
+        }
+
+        @Override
+        public void addSubcomponents(Collection<Object> destination) {
+          destination.add(s2);
+          destination.add(outer);
+        }
+      };
+    }
+
+    @Override
+    public Stream bind(final Goal goal) {
+      Subst subst = subst();
+      if (subst != null) {
+        return goal.run(subst).mplus(rest().bind(goal));
+      }
+      final Stream outer = this;
+      return new ImmatureStream(false) {
+        @Override
+        protected Stream realize() {
+          return outer.rest().bind(goal);
+        }
+
+        @Override
+        public void addSubcomponents(Collection<Object> destination) {
+          destination.add(goal);
+          destination.add(outer);
+        }
+      };
+    }
+
+    @Override
+    public String dumpHeading() {
+      return "ProfiledStream " + call.frame.name;
+    }
+
+    @Override
+    public void addSubcomponents(Collection<Object> destination) {
+      destination.add(delegate);
+    }
+  }
+
+  /**
+   * The statistics of one goal, summed over all calling contexts.
+   */
+  public static final class Entry {
+    private final String name;
+    private long calls;
+    private long answers;
+    private long failures;
+    private long steps;
+    private long selfNanos;
+    private long totalNanos;
+
+    private Entry(String name) {
+      this.name = name;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public long calls() {
+      return calls;
+    }
+
+    public long answers() {
+      return answers;
+    }
+
+    public long failures() {
+      return failures;
+    }
+
+    /**
+     * The number of {@link Stream#rest()} steps taken by the streams of this goal, including steps
+     * of the streams of goals it ran.
+     */
+    public long steps() {
+      return steps;
+    }
+
+    /**
+     * Time spent running this goal or realizing its streams, not counting time attributed to other
+     * profiled goals.
+     */
+    public long selfNanos() {
+      return selfNanos;
+    }
+
+    /**
+     * Time spent running this goal or realizing its streams, including time attributed to other
+     * profiled goals. Time spent in recursive calls is only counted once.
+     */
+    public long totalNanos() {
+      return totalNanos;
+    }
+  }
+
+  /**
+   * Returns the statistics of each goal, summed over all calling contexts, in decreasing order of
+   * self time.
+   */
+  public List<Entry> flatProfile() {
+    Map<String, Entry> entries = new HashMap<>();
+    List<Frame> pending = root.children();
+    while (!pending.isEmpty()) {
+      Frame frame = pending.remove(pending.size() - 1);
+      pending.addAll(frame.children());
+
+      Entry entry = entries.get(frame.name);
+      if (entry == null) {
+        entry = new Entry(frame.name);
+        entries.put(frame.name, entry);
+      }
+      entry.calls += frame.calls;
+      entry.answers += frame.answers;
+      entry.failures += frame.failures;
+      entry.steps += frame.steps;
+      entry.selfNanos += frame.selfNanos;
+      entry.totalNanos += frame.nanos;
+    }
+
+    List<Entry> sorted = new ArrayList<>(entries.values());
+    Collections.sort(sorted, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry e1, Entry e2) {
+        int bySelfNanos = Long.compare(e2.selfNanos, e1.selfNanos);
+        return (bySelfNanos != 0) ? bySelfNanos : e1.name.compareTo(e2.name);
+      }
+    });
+    return sorted;
+  }
+
+  /**
+   * Writes the flat profile as a table with one line per goal.
+   */
+  public void writeFlatProfile(Appendable destination) throws IOException {
+    destination.append(String.format("%12s %12s %12s %12s %12s %12s  %s%n",
+        "self-us", "total-us", "calls", "answers", "failures", "steps", "goal"));
+    for (Entry entry : flatProfile()) {
+      destination.append(String.format("%12d %12d %12d %12d %12d %12d  %s%n",
+          entry.selfNanos / 1000, entry.totalNanos / 1000, entry.calls, entry.answers,
+          entry.failures, entry.steps, entry.name));
+    }
+  }
+
+  /**
+   * Writes one line per calling context in the collapsed stack format, in which the names of the
+   * goals on the path are separated by semicolons and followed by the self time of the last goal in
+   * nanoseconds, e.g. <code>gulava.Cons.Goals.order;DisjGoal 1200</code>. Contexts with no self
+   * time are omitted.
+   */
+  public void writeCollapsedStacks(Appendable destination) throws IOException {
+    List<Frame> pendingFrames = new ArrayList<>();
+    List<String> pendingPaths = new ArrayList<>();
+    for (Frame frame : root.children()) {
+      pendingFrames.add(frame);
+      pendingPaths.add(frame.name);
+    }
+    Collections.reverse(pendingFrames);
+    Collections.reverse(pendingPaths);
+    while (!pendingFrames.isEmpty()) {
+      Frame frame = pendingFrames.remove(pendingFrames.size() - 1);
+      String path = pendingPaths.remove(pendingPaths.size() - 1);
+      if (frame.selfNanos > 0) {
+        destination.append(path).append(' ').append(Long.toString(frame.selfNanos)).append('\n');
+      }
+      List<Frame> children = frame.children();
+      for (int i = children.size() - 1; i >= 0; i--) {
+        pendingFrames.add(children.get(i));
+        pendingPaths.add(path + ";" + children.get(i).name);
+      }
+    }
+  }
+}
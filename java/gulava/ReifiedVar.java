@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+/**
+ * An unbound variable in an {@link Answer}. Unlike {@link Var}, which is numbered by a global
+ * counter, a reified variable is numbered by the order in which it first appears in the answer, so
+ * it is equal to the variable in the same position of an equivalent answer from any query.
+ */
+public final class ReifiedVar implements Comparable<ReifiedVar> {
+  private final int index;
+
+  ReifiedVar(int index) {
+    this.index = index;
+  }
+
+  /**
+   * The zero-based position of this variable among the distinct unbound variables in its answer,
+   * in order of first appearance.
+   */
+  public int index() {
+    return index;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return (other instanceof ReifiedVar) && (((ReifiedVar) other).index == index);
+  }
+
+  @Override
+  public int hashCode() {
+    return index;
+  }
+
+  @Override
+  public String toString() {
+    return "_." + index;
+  }
+
+  @Override
+  public int compareTo(ReifiedVar other) {
+    return Integer.compare(index, other.index);
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the fully-walked values of variables in a substitution. A fully-walked value is the
+ * value of the variable with every variable nested inside it recursively replaced by its own
+ * fully-walked value, so only unbound variables remain.
+ *
+ * <p>Unlike {@link View}, this only visits terms reachable from the values being reified rather
+ * than every binding in the substitution, and visits each variable and each {@link LogicValue}
+ * instance at most once per instance, so the cost is proportional to the size of the result even
+ * when subterms are shared. The spine of a {@link Cons} sequence is followed in a loop rather than
+ * by recursion, so long sequences do not overflow the stack. The values of several variables can be
+ * obtained lazily with {@link #entries(Iterable)} or written out with
+ * {@link #appendTo(Appendable, Iterable)} without building a map of all of them.
+ */
+public final class Reifier {
+  /**
+   * Marks a variable whose value is being reified. If the variable is reached again before it is
+   * finished, its value contains itself, and the variable is left in place rather than recursing
+   * forever.
+   */
+  private static final Object IN_PROGRESS = new Object();
+
+  private final Subst subst;
+  private final Map<Var, Object> reified = new HashMap<>();
+  private final Map<Object, Object> reifiedValues = new IdentityHashMap<>();
+  private final Replacer replacer = new Replacer() {
+    @Override
+    public Object replace(Object original) {
+      return reify(original);
+    }
+  };
+
+  public Reifier(Subst subst) {
+    this.subst = subst;
+  }
+
+  /**
+   * Returns the fully-walked value of {@code value}.
+   */
+  public Object reify(Object value) {
+    if (value instanceof Var) {
+      Var var = (Var) value;
+      Object cached = reified.get(var);
+      if (cached == IN_PROGRESS) {
+        return var;
+      }
+      if ((cached != null) || reified.containsKey(var)) {
+        return cached;
+      }
+      Object walked = subst.walk(var);
+      if (walked instanceof Var) {
+        reified.put(var, walked);
+        return walked;
+      }
+      reified.put(var, IN_PROGRESS);
+      Object result = reify(walked);
+      reified.put(var, result);
+      return result;
+    }
+    if (value instanceof Cons) {
+      return reifySequence((Cons<?, ?>) value);
+    }
+    if (value instanceof LogicValue) {
+      LogicValue logicValue = (LogicValue) value;
+      Object cached = reifiedValues.get(logicValue);
+      if (cached == null) {
+        cached = logicValue.replace(replacer);
+        reifiedValues.put(logicValue, cached);
+      }
+      return cached;
+    }
+    return value;
+  }
+
+  /**
+   * Reifies a {@link Cons} sequence by following the cdr fields in a loop, and then building the
+   * result from the last cell back to the first. A variable along the spine is marked in progress
+   * until the cells after it are finished, just as when {@link #reify(Object)} recurses into it.
+   */
+  private Object reifySequence(Cons<?, ?> head) {
+    List<Cons<?, ?>> cells = new ArrayList<>();
+    List<Object> cars = new ArrayList<>();
+    // The variables along the spine, and the index in cells of the cell each is bound to.
+    List<Var> spineVars = new ArrayList<>();
+    List<Integer> spineVarCells = new ArrayList<>();
+
+    Object tail = head;
+    while (true) {
+      if (tail instanceof Var) {
+        Var var = (Var) tail;
+        Object walked = subst.walk(var);
+        if (!reified.containsKey(var) && (walked instanceof Cons)) {
+          reified.put(var, IN_PROGRESS);
+          spineVars.add(var);
+          spineVarCells.add(cells.size());
+          tail = walked;
+          continue;
+        }
+        tail = reify(var);
+        break;
+      }
+      if (!(tail instanceof Cons)) {
+        tail = reify(tail);
+        break;
+      }
+      Cons<?, ?> cell = (Cons<?, ?>) tail;
+      Object cached = reifiedValues.get(cell);
+      if (cached != null) {
+        tail = cached;
+        break;
+      }
+      cells.add(cell);
+      cars.add(reify(cell.car()));
+      tail = cell.cdr();
+    }
+
+    Object result = tail;
+    int spineVar = spineVars.size() - 1;
+    for (int i = cells.size(); ; i--) {
+      while ((spineVar >= 0) && (spineVarCells.get(spineVar) == i)) {
+        reified.put(spineVars.get(spineVar), result);
+        spineVar--;
+      }
+      if (i == 0) {
+        return result;
+      }
+      result = Cons.of(cars.get(i - 1), result);
+      reifiedValues.put(cells.get(i - 1), result);
+    }
+  }
+
+  /**
+   * Returns the fully-walked values of {@code vars} as an {@link Answer}, in which unbound
+   * variables are numbered canonically.
+   */
+  public Answer answer(Iterable<? extends Var> vars) {
+    List<Object> values = new ArrayList<>();
+    for (Var var : vars) {
+      values.add(reify(var));
+    }
+    return Answer.of(values);
+  }
+
+  /**
+   * Returns the variables in {@code vars} paired with their fully-walked values. Each value is
+   * computed when the iterator reaches it.
+   */
+  public Iterable<Map.Entry<Var, Object>> entries(final Iterable<? extends Var> vars) {
+    return new Iterable<Map.Entry<Var, Object>>() {
+      @Override
+      public Iterator<Map.Entry<Var, Object>> iterator() {
+        final Iterator<? extends Var> varIterator = vars.iterator();
+        return new Iterator<Map.Entry<Var, Object>>() {
+          @Override
+          public boolean hasNext() {
+            return varIterator.hasNext();
+          }
+
+          @Override
+          public Map.Entry<Var, Object> next() {
+            Var var = varIterator.next();
+            return new AbstractMap.SimpleImmutableEntry<>(var, reify(var));
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Writes the variables in {@code vars} and their fully-walked values to {@code destination} in
+   * the same format as {@link AbstractMap#toString()}, e.g. <code>{_.2a=[1,2], _.2b=foo}</code>.
+   * The variables, including any unbound variables in the values, are written with
+   * {@link Var#toString()} rather than numbered canonically as in an {@link Answer}.
+   */
+  public void appendTo(Appendable destination, Iterable<? extends Var> vars) throws IOException {
+    destination.append('{');
+    String delimiter = "";
+    for (Map.Entry<Var, Object> entry : entries(vars)) {
+      destination
+          .append(delimiter)
+          .append(String.valueOf(entry.getKey()))
+          .append('=')
+          .append(String.valueOf(entry.getValue()));
+      delimiter = ", ";
+    }
+    destination.append('}');
+  }
+}
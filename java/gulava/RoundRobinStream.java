@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.util.Collection;
+
+/**
+ * A stream that merges several streams by taking one step from each in turn. Every merged stream
+ * gets an equal share of the steps, unlike a chain of {@link Stream#mplus(Stream)} calls, in which
+ * the first stream of a chain of <i>k</i> streams gets 1/2 of the steps, the second 1/4, and so
+ * on. Each step of this stream is a step of exactly one of the merged streams, so merging does not
+ * add any steps of its own.
+ *
+ * <p>The merged streams are kept in a persistent queue of two immutable lists: the front in order
+ * and the back in reverse order. So taking a step and merging one more stream take amortized
+ * constant time however many streams are merged, and like other streams, this one is never
+ * modified.
+ */
+final class RoundRobinStream implements Dumpable, Stream {
+  private static final class Node {
+    final Stream stream;
+    final Node next;
+
+    Node(Stream stream, Node next) {
+      this.stream = stream;
+      this.next = next;
+    }
+  }
+
+  /**
+   * The merged streams, none of which is {@link Streams#EMPTY}, starting with the one whose step
+   * this stream represents. Never {@code null}.
+   */
+  private final Node front;
+
+  /**
+   * The merged streams which take steps after those in {@link #front}, last first.
+   */
+  private final Node back;
+
+  private final int size;
+
+  private RoundRobinStream(Node front, Node back, int size) {
+    this.front = front;
+    this.back = back;
+    this.size = size;
+  }
+
+  /**
+   * Returns a stream which merges {@code streams} fairly.
+   */
+  static Stream merge(Stream[] streams) {
+    Node front = null;
+    int size = 0;
+    for (int i = streams.length - 1; i >= 0; i--) {
+      if (streams[i] != Streams.EMPTY) {
+        front = new Node(streams[i], front);
+        size++;
+      }
+    }
+    return of(front, null, size);
+  }
+
+  private static Stream of(Node front, Node back, int size) {
+    switch (size) {
+      case 0:
+        return Streams.EMPTY;
+      case 1:
+        return (front != null) ? front.stream : back.stream;
+      default:
+        if (front == null) {
+          for (; back != null; back = back.next) {
+            front = new Node(back.stream, front);
+          }
+        }
+        return new RoundRobinStream(front, back, size);
+    }
+  }
+
+  /**
+   * Returns a new array with the merged streams, in the order they take steps, followed by
+   * {@code extra} empty slots.
+   */
+  Stream[] streams(int extra) {
+    Stream[] streams = new Stream[size + extra];
+    int i = 0;
+    for (Node node = front; node != null; node = node.next) {
+      streams[i++] = node.stream;
+    }
+    int j = size;
+    for (Node node = back; node != null; node = node.next) {
+      streams[--j] = node.stream;
+    }
+    return streams;
+  }
+
+  @Override
+  public Subst subst() {
+    return front.stream.subst();
+  }
+
+  @Override
+  public Stream rest() {
+    Stream rest = front.stream.rest();
+    if (rest == Streams.EMPTY) {
+      return of(front.next, back, size - 1);
+    }
+    return of(front.next, new Node(rest, back), size);
+  }
+
+  @Override
+  public Stream mplus(Stream s2) {
+    if (s2 == Streams.EMPTY) {
+      return this;
+    }
+    return new RoundRobinStream(front, new Node(s2, back), size + 1);
+  }
+
+  @Override
+  public Stream bind(final Goal goal) {
+    Subst subst = subst();
+    if (subst != null) {
+      return goal.run(subst).mplus(rest().bind(goal));
+    }
+    final Stream outer = this;
+    return new ImmatureStream(false) {
+      @Override
+      protected Stream realize() {
+        return outer.rest().bind(goal);
+      }
+
+      @Override
+      public void addSubcomponents(Collection<Object> destination) {
+        destination.add(goal);
+        destination.add(outer);
+      }
+    };
+  }
+
+  @Override
+  public String dumpHeading() {
+    return "RoundRobinStream";
+  }
+
+  @Override
+  public void addSubcomponents(Collection<Object> destination) {
+    for (Stream stream : streams(0)) {
+      destination.add(stream);
+    }
+  }
+}
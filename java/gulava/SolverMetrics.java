@@ -0,0 +1,113 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+/**
+ * Receives measurements of the work done by the logic engine. {@link Subst} reports each
+ * unification, extension and walk, {@link ImmatureStream} reports each thunk it realizes, and
+ * streams returned by {@link Streams#metered(Stream)} report the answers of a query when it ends.
+ *
+ * <p>The engine reports to the installed metrics, which are {@link #NONE} unless
+ * {@link #install(SolverMetrics)} is called. Implementations are called from every thread that
+ * runs goals, very frequently, so they should be thread-safe and cheap;
+ * {@link InMemorySolverMetrics} is a simple implementation which keeps counters and histograms.
+ */
+public interface SolverMetrics {
+  /**
+   * Metrics which ignore every measurement. These are installed by default.
+   */
+  SolverMetrics NONE = new SolverMetrics() {
+    @Override
+    public void unified() {}
+
+    @Override
+    public void extended(int substSize) {}
+
+    @Override
+    public void walked(int chainLength) {}
+
+    @Override
+    public void thunkRealized() {}
+
+    @Override
+    public void queryEnded(int answers, long nanosToFirstAnswer) {}
+
+    @Override
+    public String toString() {
+      return "SolverMetrics.NONE";
+    }
+  };
+
+  /**
+   * Called for each call to {@link Subst#unify(Object, Object)}, including those made while
+   * unifying the fields of logic values.
+   */
+  void unified();
+
+  /**
+   * Called for each call to {@link Subst#ext(Object, Object)} with the size of the new
+   * substitution.
+   */
+  void extended(int substSize);
+
+  /**
+   * Called for each call to {@link Subst#walk(Object)} with the number of bound variables that were
+   * followed, which is zero if the value walked was not a bound variable.
+   */
+  void walked(int chainLength);
+
+  /**
+   * Called each time an {@link ImmatureStream} which suspends work of its own, such as the stream
+   * of a {@link DelayedGoal}, is realized. Streams which only wrap other streams, e.g. to
+   * interleave or bind them, are not counted.
+   */
+  void thunkRealized();
+
+  /**
+   * Called when a stream returned by {@link Streams#metered(Stream)} ends, with the number of
+   * answers it had and the nanoseconds from the call to {@code metered} until the first of them,
+   * or {@code -1} if there were none.
+   */
+  void queryEnded(int answers, long nanosToFirstAnswer);
+
+  /**
+   * Installs {@code metrics} as the metrics which the engine reports to, replacing the ones that
+   * were installed, and returns the replaced metrics. Passing {@link #NONE} turns reporting off.
+   * Goals which are already running report to the new metrics from their next report onwards, on
+   * every thread.
+   */
+  static SolverMetrics install(SolverMetrics metrics) {
+    if (metrics == null) {
+      throw new NullPointerException();
+    }
+    SolverMetrics replaced = InstalledMetrics.metrics;
+    InstalledMetrics.metrics = metrics;
+    return replaced;
+  }
+
+  /**
+   * Returns the metrics which the engine reports to.
+   */
+  static SolverMetrics installed() {
+    return InstalledMetrics.metrics;
+  }
+}
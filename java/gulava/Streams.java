@@ -21,6 +21,9 @@
  */
 package gulava;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 /**
  * Common singleton implementations of {@link Stream}.
  */
@@ -49,4 +52,92 @@ public enum Streams implements Stream {
       return null;
     }
   };
+
+  /**
+   * Realizes {@code stream} until its first solution is found and returns that solution. Returns
+   * {@code null} if the stream has no solutions. Note that this never returns if the stream is
+   * infinite but has no solutions.
+   */
+  public static Subst first(Stream stream) {
+    while (stream != EMPTY) {
+      Subst subst = stream.subst();
+      if (subst != null) {
+        return subst;
+      }
+      stream = stream.rest();
+    }
+    return null;
+  }
+
+  /**
+   * Returns a stream with the solutions of all of {@code streams}, each of which gets an equal
+   * share of the steps, in the same way as the subgoals of a {@link DisjGoal}.
+   */
+  public static Stream merge(Stream... streams) {
+    return RoundRobinStream.merge(streams);
+  }
+
+  /**
+   * Returns a stream with the solutions of {@code stream}, in the same order, except for those with
+   * the same {@link Answer} for {@code vars} as an earlier solution. The returned stream should
+   * only be realized once.
+   */
+  public static Stream distinct(Stream stream, Var... vars) {
+    return new DistinctFilter(Arrays.asList(vars.clone())).filter(stream);
+  }
+
+  /**
+   * Returns a stream with the same steps and solutions as {@code stream} which reports the number
+   * of solutions and the time until the first of them to the installed {@link SolverMetrics} when
+   * it ends. The returned stream should only be realized once.
+   */
+  public static Stream metered(Stream stream) {
+    return new MeteredStream(SolverMetrics.installed()).meter(stream);
+  }
+
+  /**
+   * Returns a stream with at most the first {@code count} solutions of {@code stream}. After the
+   * last of those solutions is found, the rest of {@code stream} is dropped without being
+   * realized, so it does no more work.
+   */
+  public static Stream limit(final Stream stream, final int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Negative count: " + count);
+    }
+    if ((count == 0) || (stream == EMPTY)) {
+      return EMPTY;
+    }
+    Subst subst = stream.subst();
+    if (subst == null) {
+      return new ImmatureStream(false) {
+        @Override
+        protected Stream realize() {
+          return limit(stream.rest(), count);
+        }
+
+        @Override
+        public void addSubcomponents(Collection<Object> destination) {
+          destination.add(stream);
+        }
+      };
+    }
+    if (count == 1) {
+      return subst;
+    }
+    final Stream rest = stream.rest();
+    if (rest == EMPTY) {
+      return subst;
+    }
+    return new SolveStep(subst, new ImmatureStream(false) {
+      @Override
+      protected Stream realize() {
+        return limit(rest, count - 1);
+      }
+
+      @Override
+      public void addSubcomponents(Collection<Object> destination) {
+        destination.add(rest);
+      }
+    });
+  }
 }
@@ -25,9 +25,11 @@ import org.pcollections.Empty;
 import org.pcollections.PMap;
 
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -41,17 +43,34 @@ public final class Subst extends AbstractMap<Object, Object> implements Dumpable
   }
 
   public Subst ext(Object x, Object v) {
-    return new Subst(map.plus(x, v));
+    Subst extended = new Subst(map.plus(x, v));
+    InstalledMetrics.metrics.extended(extended.map.size());
+    return extended;
   }
 
   public Object walk(Object u) {
-    while ((u instanceof Var) && map.containsKey(u)) {
-      u = map.get(u);
+    int chainLength = 0;
+    while (u instanceof Var) {
+      // Variables may be bound to null, so containsKey is only needed to tell a null binding apart
+      // from an unbound variable.
+      Object bound = map.get(u);
+      if ((bound == null) && !map.containsKey(u)) {
+        break;
+      }
+      u = bound;
+      chainLength++;
     }
+    InstalledMetrics.metrics.walked(chainLength);
     return u;
   }
 
   public Subst unify(Object u, Object v) {
+    InstalledMetrics.metrics.unified();
+    // Identical references unify without walking, which is common for interned strings, shared
+    // substructures and null.
+    if (u == v) {
+      return this;
+    }
     u = walk(u);
     v = walk(v);
     if (u == v) {
@@ -74,6 +93,94 @@ public final class Subst extends AbstractMap<Object, Object> implements Dumpable
     return null;
   }
 
+  /**
+   * Returns whether {@code value} is ground, which means that it contains no unbound variables
+   * after walking it and each of its fields. Nested values are visited with an explicit stack
+   * rather than by recursion, so long lists and deep terms do not overflow the call stack. Values
+   * that are not logic values are checked without allocating. The fields of a {@link Cons} are read
+   * directly, but those of other logic values are visited with
+   * {@link LogicValue#replace(Replacer)}, which copies each value it visits.
+   */
+  public boolean isGround(Object value) {
+    value = walk(value);
+    if (!(value instanceof LogicValue)) {
+      return !(value instanceof Var);
+    }
+
+    final ArrayDeque<Object> pending = new ArrayDeque<>();
+    Replacer enqueuer = new Replacer() {
+      @Override
+      public Object replace(Object original) {
+        if ((original instanceof Var) || (original instanceof LogicValue)) {
+          pending.push(original);
+        }
+        return original;
+      }
+    };
+    pending.push(value);
+    while (!pending.isEmpty()) {
+      Object next = walk(pending.pop());
+      if (next instanceof Var) {
+        return false;
+      }
+      if (next instanceof Cons) {
+        enqueuer.replace(((Cons<?, ?>) next).cdr());
+        enqueuer.replace(((Cons<?, ?>) next).car());
+      } else if (next instanceof LogicValue) {
+        ((LogicValue) next).replace(enqueuer);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns a substitution with only the bindings that are reachable from {@code liveVars}. A
+   * binding is reachable if its variable is a live variable, or appears in the value of another
+   * reachable binding, including nested in the fields of a {@link LogicValue}. Keys which are not
+   * variables, such as those added by {@link CachedGoal}, are always kept.
+   *
+   * <p>Walking any live variable in the returned substitution gives the same result as in this one.
+   * Bindings of variables that are not reachable are dropped, so the caller must include every
+   * variable that may still be unified or walked later, e.g. by goals that have not run yet.
+   */
+  public Subst compact(Iterable<? extends Var> liveVars) {
+    PMap<Object, Object> compacted = Empty.map();
+    for (Map.Entry<Object, Object> entry : map.entrySet()) {
+      if (!(entry.getKey() instanceof Var)) {
+        compacted = compacted.plus(entry.getKey(), entry.getValue());
+      }
+    }
+
+    final ArrayDeque<Object> pending = new ArrayDeque<>();
+    Replacer enqueuer = new Replacer() {
+      @Override
+      public Object replace(Object original) {
+        if ((original instanceof Var) || (original instanceof LogicValue)) {
+          pending.push(original);
+        }
+        return original;
+      }
+    };
+    for (Var liveVar : liveVars) {
+      pending.push(liveVar);
+    }
+    Set<Var> visited = new HashSet<>();
+    while (!pending.isEmpty()) {
+      Object value = pending.pop();
+      if (value instanceof Var) {
+        if (visited.add((Var) value) && map.containsKey(value)) {
+          Object bound = map.get(value);
+          compacted = compacted.plus(value, bound);
+          enqueuer.replace(bound);
+        }
+      } else {
+        ((LogicValue) value).replace(enqueuer);
+      }
+    }
+
+    return compacted.size() == map.size() ? this : new Subst(compacted);
+  }
+
   @Override
   public Object get(Object key) {
     return map.get(key);
@@ -0,0 +1,247 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads terms and substitutions written by a {@link TermEncoder}. Each method call must match the
+ * corresponding call on the encoder, i.e. {@link #read()} for {@link TermEncoder#write(Object)} and
+ * {@link #readSubst()} for {@link TermEncoder#writeSubst(Subst)}.
+ *
+ * <p>Logic values are created by the {@link Factory} registered under their class name. Classes
+ * generated for {@code @MakeLogicValue} register their factory when they are initialized, and the
+ * decoder initializes a class by name the first time it sees a value of that class if nothing is
+ * registered yet. This is the only use of reflection, and happens at most once per class.
+ */
+public final class TermDecoder implements FieldReader {
+  /**
+   * Creates a value of one class from its fields.
+   */
+  public interface Factory {
+    /**
+     * Reads the fields in the order that {@link Encodable#encodeFields(FieldWriter)} wrote them and
+     * returns the new value. {@code reader} is a {@link TermDecoder} or a {@link BufferDecoder}.
+     */
+    Object decode(FieldReader reader) throws IOException;
+  }
+
+  private static final Map<String, Factory> FACTORIES = new ConcurrentHashMap<>();
+
+  /**
+   * Registers the factory for values whose class has the given name, as returned by
+   * {@link Class#getName()}.
+   */
+  public static void register(String className, Factory factory) {
+    FACTORIES.put(className, factory);
+  }
+
+  private final DataInput in;
+  private final List<Var> vars = new ArrayList<>();
+  private final List<String> strings = new ArrayList<>();
+  private final List<Object> shared = new ArrayList<>();
+
+  public TermDecoder(DataInput in) {
+    this.in = in;
+  }
+
+  /**
+   * Reads the next term.
+   */
+  @Override
+  public Object read() throws IOException {
+    int tag = in.readUnsignedByte();
+    if (tag != TermFormat.CONS) {
+      return readNonCons(tag);
+    }
+
+    // A list is read iteratively. The cells are created from the end once the tail is known.
+    List<Object> cars = new ArrayList<>();
+    List<Integer> ids = new ArrayList<>();
+    while (tag == TermFormat.CONS) {
+      ids.add(reserveShared());
+      cars.add(read());
+      tag = in.readUnsignedByte();
+    }
+    Object list = readNonCons(tag);
+    for (int i = cars.size() - 1; i >= 0; i--) {
+      list = Cons.of(cars.get(i), list);
+      shared.set(ids.get(i), list);
+    }
+    return list;
+  }
+
+  /**
+   * Reads a substitution.
+   */
+  public Subst readSubst() throws IOException {
+    int size = TermFormat.readVarint(in);
+    Subst subst = Subst.EMPTY;
+    for (int i = 0; i < size; i++) {
+      Object key = read();
+      subst = subst.ext(key, read());
+    }
+    return subst;
+  }
+
+  private Object readNonCons(int tag) throws IOException {
+    switch (tag) {
+      case TermFormat.NULL:
+        return null;
+      case TermFormat.VAR:
+        int number = TermFormat.readVarint(in);
+        if (number == vars.size()) {
+          vars.add(new Var());
+        } else if (number < 0 || number > vars.size()) {
+          throw new IOException("Variable number out of order: " + number);
+        }
+        return vars.get(number);
+      case TermFormat.INTEGER:
+        return TermFormat.unZigZag(TermFormat.readVarint(in));
+      case TermFormat.LONG:
+        return TermFormat.unZigZag(TermFormat.readVarlong(in));
+      case TermFormat.DOUBLE:
+        return in.readDouble();
+      case TermFormat.TRUE:
+        return true;
+      case TermFormat.FALSE:
+        return false;
+      case TermFormat.STRING:
+      case TermFormat.STRING_REF:
+        return readString(tag);
+      case TermFormat.VALUE:
+        int id = reserveShared();
+        String className = readString(in.readUnsignedByte());
+        Factory factory = factoryFor(className);
+        if (factory == null) {
+          throw new IOException("No factory registered for " + className);
+        }
+        Object value = factory.decode(this);
+        shared.set(id, value);
+        return value;
+      case TermFormat.SHARED_REF:
+        int ref = TermFormat.readVarint(in);
+        if ((ref < 0) || (ref >= shared.size()) || (shared.get(ref) == null)) {
+          throw new IOException("Reference to a value not read yet: " + ref);
+        }
+        return shared.get(ref);
+      default:
+        throw new IOException("Unknown tag: " + tag);
+    }
+  }
+
+  private int reserveShared() {
+    shared.add(null);
+    return shared.size() - 1;
+  }
+
+  private String readString(int tag) throws IOException {
+    if (tag == TermFormat.STRING_REF) {
+      int index = TermFormat.readVarint(in);
+      if (index < 0 || index >= strings.size()) {
+        throw new IOException("Reference to a string not read yet: " + index);
+      }
+      return strings.get(index);
+    }
+    if (tag != TermFormat.STRING) {
+      throw new IOException("Expected a string but got tag: " + tag);
+    }
+    int length = TermFormat.readVarint(in);
+    if (length < 0) {
+      throw new IOException("Negative string length: " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    String value = new String(bytes, StandardCharsets.UTF_8);
+    strings.add(value);
+    return value;
+  }
+
+  /**
+   * Returns the factory registered for {@code className}, or {@code null} if there is none. If
+   * nothing is registered yet, the class is initialized first so that it can register itself, but
+   * only if it implements {@link Encodable}. The name comes from the input, so this keeps decoding
+   * from running the static initializer of an arbitrary class.
+   */
+  static Factory factoryFor(String className) {
+    Factory factory = FACTORIES.get(className);
+    if (factory == null) {
+      ClassLoader loader = TermDecoder.class.getClassLoader();
+      try {
+        if (!Encodable.class.isAssignableFrom(Class.forName(className, false, loader))) {
+          return null;
+        }
+        Class.forName(className, true, loader);
+      } catch (ClassNotFoundException e) {
+        return null;
+      }
+      factory = FACTORIES.get(className);
+    }
+    return factory;
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    return in.readBoolean();
+  }
+
+  @Override
+  public byte readByte() throws IOException {
+    return in.readByte();
+  }
+
+  @Override
+  public short readShort() throws IOException {
+    return in.readShort();
+  }
+
+  @Override
+  public char readChar() throws IOException {
+    return in.readChar();
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    return in.readInt();
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    return in.readLong();
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    return in.readFloat();
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    return in.readDouble();
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes terms and substitutions in a compact binary form which {@link TermDecoder} reads back.
+ * This is meant for caching large sets of answers on disk, so the encoding keeps the size down in
+ * the ways that matter for such sets:
+ *
+ * <ul>
+ *   <li>Variables are renumbered in order of first appearance, so each one takes a byte or two no
+ *       matter how many variables the process has created. The decoder creates a fresh variable
+ *       for each number, and the same number always decodes to the same variable.
+ *   <li>Strings, including the type names of logic values, are written once and referred to by
+ *       index afterwards, so equal strings in one stream decode to the same object.
+ *   <li>Logic values and {@link Cons} cells are shared by identity. A value reached a second time
+ *       is written as a reference to the first, so a DAG stays a DAG when it is read back.
+ * </ul>
+ *
+ * <p>All three tables are kept for the life of the encoder, so everything written by one encoder
+ * must be read by one decoder in the same order. Integers, longs, doubles, booleans and
+ * {@code null} are supported as plain values, and any other value must implement
+ * {@link Encodable}. Lists are written iteratively, so long lists do not use stack space, but other
+ * nested values are written recursively.
+ */
+public final class TermEncoder implements FieldWriter {
+  private final DataOutput out;
+  private final Map<Var, Integer> varNumbers = new HashMap<>();
+  private final Map<String, Integer> stringIndexes = new HashMap<>();
+  private final Map<Object, Integer> sharedIds = new IdentityHashMap<>();
+
+  public TermEncoder(DataOutput out) {
+    this.out = out;
+  }
+
+  @Override
+  public void write(Object term) throws IOException {
+    while (term instanceof Cons) {
+      if (writeSharedRef(term)) {
+        return;
+      }
+      Cons<?, ?> cons = (Cons<?, ?>) term;
+      out.writeByte(TermFormat.CONS);
+      write(cons.car());
+      term = cons.cdr();
+    }
+    writeNonCons(term);
+  }
+
+  /**
+   * Writes the number of bindings in {@code subst} followed by each key and value.
+   */
+  public void writeSubst(Subst subst) throws IOException {
+    TermFormat.writeVarint(out, subst.size());
+    for (Map.Entry<Object, Object> entry : subst.entrySet()) {
+      write(entry.getKey());
+      write(entry.getValue());
+    }
+  }
+
+  private void writeNonCons(Object term) throws IOException {
+    if (term == null) {
+      out.writeByte(TermFormat.NULL);
+    } else if (term instanceof Var) {
+      Integer number = varNumbers.get(term);
+      if (number == null) {
+        number = varNumbers.size();
+        varNumbers.put((Var) term, number);
+      }
+      out.writeByte(TermFormat.VAR);
+      TermFormat.writeVarint(out, number);
+    } else if (term instanceof Integer) {
+      out.writeByte(TermFormat.INTEGER);
+      TermFormat.writeVarint(out, TermFormat.zigZag((Integer) term));
+    } else if (term instanceof Long) {
+      out.writeByte(TermFormat.LONG);
+      TermFormat.writeVarlong(out, TermFormat.zigZag((Long) term));
+    } else if (term instanceof Double) {
+      out.writeByte(TermFormat.DOUBLE);
+      out.writeDouble((Double) term);
+    } else if (term instanceof Boolean) {
+      out.writeByte((Boolean) term ? TermFormat.TRUE : TermFormat.FALSE);
+    } else if (term instanceof String) {
+      writeString((String) term);
+    } else if (term instanceof Encodable) {
+      if (writeSharedRef(term)) {
+        return;
+      }
+      out.writeByte(TermFormat.VALUE);
+      writeString(term.getClass().getName());
+      ((Encodable) term).encodeFields(this);
+    } else {
+      throw new IllegalArgumentException(
+          "Cannot encode " + term.getClass().getName() + ": " + term);
+    }
+  }
+
+  /**
+   * Writes a reference to {@code value} and returns true if it was written before. Otherwise,
+   * gives it the next id and returns false, and the caller writes it in full.
+   */
+  private boolean writeSharedRef(Object value) throws IOException {
+    Integer id = sharedIds.get(value);
+    if (id != null) {
+      out.writeByte(TermFormat.SHARED_REF);
+      TermFormat.writeVarint(out, id);
+      return true;
+    }
+    sharedIds.put(value, sharedIds.size());
+    return false;
+  }
+
+  private void writeString(String value) throws IOException {
+    Integer index = stringIndexes.get(value);
+    if (index != null) {
+      out.writeByte(TermFormat.STRING_REF);
+      TermFormat.writeVarint(out, index);
+      return;
+    }
+    stringIndexes.put(value, stringIndexes.size());
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeByte(TermFormat.STRING);
+    TermFormat.writeVarint(out, bytes.length);
+    out.write(bytes);
+  }
+
+  @Override
+  public void writeBoolean(boolean value) throws IOException {
+    out.writeBoolean(value);
+  }
+
+  @Override
+  public void writeByte(byte value) throws IOException {
+    out.writeByte(value);
+  }
+
+  @Override
+  public void writeShort(short value) throws IOException {
+    out.writeShort(value);
+  }
+
+  @Override
+  public void writeChar(char value) throws IOException {
+    out.writeChar(value);
+  }
+
+  @Override
+  public void writeInt(int value) throws IOException {
+    out.writeInt(value);
+  }
+
+  @Override
+  public void writeLong(long value) throws IOException {
+    out.writeLong(value);
+  }
+
+  @Override
+  public void writeFloat(float value) throws IOException {
+    out.writeFloat(value);
+  }
+
+  @Override
+  public void writeDouble(double value) throws IOException {
+    out.writeDouble(value);
+  }
+}
@@ -31,6 +31,9 @@ import java.util.Set;
  * A view of a substitution. This may or may not be the same as a raw substitution. A raw
  * substitution often has unused variables, and/or variables that only appear once and ought to be
  * expanded.
+ *
+ * <p>Building a view visits every binding in the substitution several times. If only the values
+ * of the requested variables are needed, {@link Reifier} is cheaper.
  */
 public final class View {
   /**
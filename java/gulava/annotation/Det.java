@@ -0,0 +1,41 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that a predicate method in a class annotated with @{@link MakePredicates} has exactly
+ * one solution. If the predicate also has a @{@link Mode} annotation, this only holds when the
+ * {@code "in"} arguments are ground.
+ *
+ * <p>The generated predicate uses this declaration to skip the {@code disj} of its clauses: it
+ * runs each clause in order and returns the first solution it finds. The declaration is trusted and
+ * is not verified, so annotating a predicate that really has several solutions will drop all but
+ * the first one. The first solution is found eagerly when the goal is run, so a clause whose stream
+ * is infinite but has no solutions keeps the goal from returning, where the undeclared predicate
+ * would return a stream that could be realized a step at a time. Otherwise, this is the same as
+ * @{@link Semidet}.
+ */
+@Target(ElementType.METHOD)
+public @interface Det {}
@@ -65,6 +65,13 @@ import java.lang.annotation.Target;
  * syntax to invoke the constructor to avoid compiler warnings, e.g.
  * {@code MyValue v = new MyValue<>("x", "y")}.
  *
+ * <p>A field method may instead return a primitive type such as {@code int}, {@code long} or
+ * {@code double}. Such a field does not have a type parameter. It is stored unboxed and compared
+ * directly in the generated {@code unify}, {@code equals} and {@code hashCode} methods, so it is
+ * cheaper than a generic field, but it can never hold a {@code Var}. For the same reason, a type
+ * with primitive fields cannot be used as a pattern in a clause of a {@link MakePredicates}
+ * predicate.
+ *
  * <p>Note that to suppress a rawtypes warning for {@code MyValue v} (these are shown by default in
  * Eclipse), you should qualify it as {@code MyValue<?, ?> v}.
  */
@@ -85,6 +85,10 @@ import java.lang.annotation.Target;
  * {@code null} is required for some value. Generic types like {@code Cons<?, ?>} are allowed, but
  * can also be nested arbitrarily, as in {@code Cons<?, Cons<?, ?>>}, which would indicate a
  * sequence of length 2 or more.
+ *
+ * <p>A predicate method may be annotated with @{@link Det} or @{@link Semidet}, and optionally
+ * @{@link Mode}, to declare that it has at most one solution. The generated implementation then
+ * returns the first solution of its clauses directly rather than interleaving them.
  */
 @Target(ElementType.TYPE)
 public @interface MakePredicates {}
@@ -0,0 +1,49 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the mode in which a @{@link Det} or @{@link Semidet} predicate has its declared number
+ * of solutions. The value has one comma-separated entry for each parameter of the predicate, each
+ * of which is {@code "in"} or {@code "out"}. For instance:
+ *
+ * <pre>
+ * @Semidet
+ * @Mode("in,in")
+ * public abstract Goal less(Object a, Object b);
+ * </pre>
+ *
+ * <p>The generated predicate checks that each {@code "in"} argument is ground when the goal is run.
+ * If so, it uses the faster code path described in @{@link Det}. Otherwise, it runs the clauses as
+ * though the predicate had no declarations at all. The predicate's own recursive calls made by its
+ * clauses on the faster code path are trusted to have ground inputs and are not checked, so that
+ * checking does not take time proportional to the depth of the recursion at every level. To tell
+ * those calls apart, the generated class runs the clauses on a separate instance of the annotated
+ * class, which it constructs once for each such predicate with the same constructor arguments.
+ */
+@Target(ElementType.METHOD)
+public @interface Mode {
+  String value();
+}
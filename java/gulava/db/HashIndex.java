@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An index which maps each distinct value of a column to the rows which have it. A lookup takes
+ * constant time.
+ */
+final class HashIndex extends Index {
+  private final Map<Object, int[]> rowsByValue;
+
+  HashIndex(Object[] column, int size) {
+    // Count the rows of each value first, so that each array of rows is allocated at its final
+    // size.
+    Map<Object, int[]> counts = new HashMap<>();
+    for (int row = 0; row < size; row++) {
+      int[] count = counts.get(column[row]);
+      if (count == null) {
+        counts.put(column[row], new int[] {1});
+      } else {
+        count[0]++;
+      }
+    }
+    rowsByValue = new HashMap<>(counts.size() * 4 / 3 + 1);
+    for (Map.Entry<Object, int[]> entry : counts.entrySet()) {
+      rowsByValue.put(entry.getKey(), new int[entry.getValue()[0]]);
+      entry.getValue()[0] = 0;
+    }
+    for (int row = 0; row < size; row++) {
+      int[] filled = counts.get(column[row]);
+      rowsByValue.get(column[row])[filled[0]++] = row;
+    }
+  }
+
+  @Override
+  Rows lookup(Object key) {
+    int[] rows = rowsByValue.get(key);
+    return (rows == null) ? Rows.NONE : new Rows(rows, 0, rows.length);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+/**
+ * A relation whose columns and indexes are on the heap. See {@link Relation.Builder}.
+ */
+final class HeapRelation extends Relation {
+  private final Object[][] columns;
+  private final int size;
+  private final Index[] indexes;
+
+  HeapRelation(String name, Object[][] columns, int size, Index[] indexes) {
+    super(name, columns.length);
+    this.columns = columns;
+    this.size = size;
+    this.indexes = indexes;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  Object value(int column, int row) {
+    return columns[column][row];
+  }
+
+  @Override
+  boolean indexed(int column) {
+    return indexes[column] != null;
+  }
+
+  @Override
+  Rows rowsWithValue(int column, Object key) {
+    return indexes[column].lookup(key);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only file which is mapped into memory in segments of a fixed size, so that it can be
+ * larger than a single {@link ByteBuffer} can address. Offsets are {@code long}s, and a value may
+ * span two segments. All reads are absolute, so an instance can be shared between threads.
+ */
+final class MappedFile {
+  /**
+   * The size of each segment used by {@link #map(Path)}.
+   */
+  static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+  private final ByteBuffer[] segments;
+  private final int segmentShift;
+  private final int segmentMask;
+  private final long size;
+
+  private MappedFile(ByteBuffer[] segments, int segmentShift, long size) {
+    this.segments = segments;
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1 << segmentShift) - 1;
+    this.size = size;
+  }
+
+  /**
+   * Maps {@code file} in segments of {@link #DEFAULT_SEGMENT_SIZE} bytes.
+   */
+  static MappedFile map(Path file) throws IOException {
+    return map(file, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Maps {@code file} in segments of {@code segmentSize} bytes, which must be a power of two.
+   */
+  static MappedFile map(Path file, int segmentSize) throws IOException {
+    if ((segmentSize <= 0) || (Integer.bitCount(segmentSize) != 1)) {
+      throw new IllegalArgumentException("Segment size must be a power of two: " + segmentSize);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long segmentCount = (size + segmentSize - 1) / segmentSize;
+      if (segmentCount > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Too many segments to map " + file);
+      }
+      ByteBuffer[] segments = new ByteBuffer[(int) segmentCount];
+      for (int i = 0; i < segments.length; i++) {
+        long start = (long) i * segmentSize;
+        segments[i] = channel.map(
+            FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+      }
+      return new MappedFile(segments, Integer.numberOfTrailingZeros(segmentSize), size);
+    }
+  }
+
+  long size() {
+    return size;
+  }
+
+  byte get(long offset) {
+    return segments[(int) (offset >>> segmentShift)].get((int) offset & segmentMask);
+  }
+
+  /**
+   * Reads the big-endian {@code int} at {@code offset}.
+   */
+  int getInt(long offset) {
+    ByteBuffer segment = segments[(int) (offset >>> segmentShift)];
+    int position = (int) offset & segmentMask;
+    if (position + 4 <= segment.limit()) {
+      return segment.getInt(position);
+    }
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      value = (value << 8) | (get(offset + i) & 0xff);
+    }
+    return value;
+  }
+
+  /**
+   * Reads the big-endian {@code long} at {@code offset}.
+   */
+  long getLong(long offset) {
+    ByteBuffer segment = segments[(int) (offset >>> segmentShift)];
+    int position = (int) offset & segmentMask;
+    if (position + 8 <= segment.limit()) {
+      return segment.getLong(position);
+    }
+    return ((long) getInt(offset) << 32) | (getInt(offset + 4) & 0xffffffffL);
+  }
+
+  /**
+   * Returns a buffer of the {@code length} bytes starting at {@code offset}. This shares the mapped
+   * memory if the bytes are all in one segment, and otherwise copies them.
+   */
+  ByteBuffer slice(long offset, int length) {
+    ByteBuffer segment = segments[(int) (offset >>> segmentShift)].duplicate();
+    int position = (int) offset & segmentMask;
+    if (position + length > segment.limit()) {
+      byte[] bytes = new byte[length];
+      get(offset, bytes);
+      return ByteBuffer.wrap(bytes);
+    }
+    segment.position(position);
+    segment.limit(position + length);
+    return segment.slice();
+  }
+
+  /**
+   * Reads {@code bytes.length} bytes starting at {@code offset} into {@code bytes}.
+   */
+  void get(long offset, byte[] bytes) {
+    int done = 0;
+    while (done < bytes.length) {
+      long at = offset + done;
+      ByteBuffer segment = segments[(int) (at >>> segmentShift)].duplicate();
+      segment.position((int) at & segmentMask);
+      int count = Math.min(bytes.length - done, segment.remaining());
+      segment.get(bytes, done, count);
+      done += count;
+    }
+  }
+}
@@ -0,0 +1,417 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A relation stored in a file in a columnar format, which is mapped into memory rather than read
+ * onto the heap. Opening a relation only maps the file and reads its header, so it takes the same
+ * time for any number of tuples, and the operating system pages the data in as lookups touch it.
+ *
+ * <p>Values may be any ground terms which {@link gulava.BufferEncoder} can write, such as
+ * {@link Integer}s, {@link String}s, {@code null}, lists and logic values. A column whose values
+ * are all integers is stored as an array of them. Any other column is stored as an array of
+ * offsets into a heap of values encoded by {@link ValueCodec}, in which equal values are stored
+ * once. A lookup by an indexed column compares the encoded bytes of the key
+ * with the stored values, and only the values of the rows which match are decoded, when they are
+ * unified with the arguments of the lookup.
+ *
+ * <p>Each indexed column has an open-addressing hash table, stored in the file, from the hash of
+ * each distinct value to the range of rows which have it. Offsets in the file are {@code long}s and
+ * the file is mapped in segments (see {@link MappedFile}), so it may be larger than 2 GiB.
+ */
+public final class MappedRelation extends Relation {
+  static final int MAGIC = 0x4752454c;
+  static final int VERSION = 3;
+
+  private static final int INT_COLUMN = 0;
+  private static final int VALUE_COLUMN = 1;
+
+  /**
+   * The size of the fixed part of the header, which is followed by the name of the relation.
+   */
+  private static final int HEADER_SIZE = 36;
+
+  /**
+   * The size of the header of each column: its kind, four bytes of padding, the offset of its cells
+   * and the offset of its index, which is {@code 0} if it has none.
+   */
+  private static final int COLUMN_HEADER_SIZE = 24;
+
+  /**
+   * The number of ints in each slot of a hash table: the hash, the position of the first row in
+   * the row array, and the number of rows, which is {@code 0} for an empty slot.
+   */
+  private static final int SLOT_INTS = 3;
+
+  private final MappedFile file;
+  private final int size;
+  private final long heapOffset;
+  private final boolean[] intColumns;
+  private final long[] cellsOffsets;
+  private final int[] slotCounts;
+  private final long[] slotsOffsets;
+  private final long[] rowsOffsets;
+
+  private MappedRelation(String name, int arity, int size, MappedFile file) {
+    super(name, arity);
+    this.file = file;
+    this.size = size;
+    this.heapOffset = file.getLong(16);
+    this.intColumns = new boolean[arity];
+    this.cellsOffsets = new long[arity];
+    this.slotCounts = new int[arity];
+    this.slotsOffsets = new long[arity];
+    this.rowsOffsets = new long[arity];
+
+    long columnHeader = align(HEADER_SIZE + file.getInt(32));
+    for (int column = 0; column < arity; column++) {
+      intColumns[column] = file.getInt(columnHeader) == INT_COLUMN;
+      cellsOffsets[column] = file.getLong(columnHeader + 8);
+      long indexOffset = file.getLong(columnHeader + 16);
+      columnHeader += COLUMN_HEADER_SIZE;
+      if (indexOffset != 0) {
+        slotCounts[column] = file.getInt(indexOffset);
+        slotsOffsets[column] = indexOffset + 8;
+        rowsOffsets[column] = slotsOffsets[column] + slotCounts[column] * (SLOT_INTS * 4L);
+      }
+    }
+  }
+
+  /**
+   * Rounds {@code length} up to a multiple of 8, so that each part of the file starts at an offset
+   * at which its {@code int}s and {@code long}s are aligned.
+   */
+  private static long align(long length) {
+    return (length + 7) & ~7L;
+  }
+
+  /**
+   * Maps the relation stored in {@code file}. Throws {@link IllegalArgumentException} if the file
+   * is not a relation written by {@link #write(Path, String, int, Iterable, int...)}.
+   */
+  public static MappedRelation open(Path file) throws IOException {
+    return open(file, MappedFile.DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Maps the relation stored in {@code file} in segments of {@code segmentSize} bytes, which must
+   * be a power of two. Tests use small segments to read values which span two of them.
+   */
+  static MappedRelation open(Path file, int segmentSize) throws IOException {
+    MappedFile mapped = MappedFile.map(file, segmentSize);
+    if ((mapped.size() < HEADER_SIZE) || (mapped.getInt(0) != MAGIC)) {
+      throw new IllegalArgumentException("Not a relation file: " + file);
+    }
+    if (mapped.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("Unsupported relation file version: " + mapped.getInt(4));
+    }
+    int nameLength = mapped.getInt(32);
+    if ((nameLength < 0) || (HEADER_SIZE + (long) nameLength > mapped.size())) {
+      throw new IllegalArgumentException("Not a relation file: " + file);
+    }
+    byte[] nameBytes = new byte[nameLength];
+    mapped.get(HEADER_SIZE, nameBytes);
+    return new MappedRelation(new String(nameBytes, StandardCharsets.UTF_8),
+        mapped.getInt(8), mapped.getInt(12), mapped);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private int intCell(int column, int row) {
+    return file.getInt(cellsOffsets[column] + row * 4L);
+  }
+
+  /**
+   * Returns the offset in the file of the value in a cell of a column which is not an int column.
+   */
+  private long valueOffset(int column, int row) {
+    return heapOffset + file.getLong(cellsOffsets[column] + row * 8L);
+  }
+
+  @Override
+  Object value(int column, int row) {
+    return intColumns[column]
+        ? Integer.valueOf(intCell(column, row))
+        : ValueCodec.decode(file, valueOffset(column, row));
+  }
+
+  @Override
+  boolean indexed(int column) {
+    return slotCounts[column] != 0;
+  }
+
+  @Override
+  Rows rowsWithValue(int column, Object key) {
+    if (intColumns[column] && !(key instanceof Integer)) {
+      return Rows.NONE;
+    }
+    byte[] encoded = ValueCodec.encode(key);
+    if (encoded == null) {
+      return Rows.NONE;
+    }
+    int hash = ValueCodec.hash(encoded);
+    int mask = slotCounts[column] - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      long slotOffset = slotsOffsets[column] + slot * (SLOT_INTS * 4L);
+      int count = file.getInt(slotOffset + 8);
+      if (count == 0) {
+        return Rows.NONE;
+      }
+      if (file.getInt(slotOffset) == hash) {
+        int start = file.getInt(slotOffset + 4);
+        int row = file.getInt(rowsOffsets[column] + start * 4L);
+        boolean equal = intColumns[column]
+            ? (intCell(column, row) == (Integer) key)
+            : ValueCodec.equalsAt(file, valueOffset(column, row), encoded);
+        if (equal) {
+          return new Rows(file, rowsOffsets[column], start, start + count);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes {@code tuples} to {@code file} as a relation called {@code name} with {@code arity}
+   * columns, with a hash index on each of {@code indexedColumns}. This keeps every distinct value
+   * on the heap while it runs, so it is meant to be run once, ahead of time, where memory is
+   * plentiful.
+   */
+  public static void write(Path file, String name, int arity, Iterable<? extends List<?>> tuples,
+      int... indexedColumns) throws IOException {
+    new RelationWriter(arity).addAll(tuples).write(file, name, indexedColumns);
+  }
+
+  /**
+   * Collects the cells of each column and the heap of encoded values for
+   * {@link MappedRelation#write(Path, String, int, Iterable, int...)}.
+   */
+  private static final class RelationWriter {
+    private final int arity;
+
+    /**
+     * The cells of each column: the values of an int column, and the heap offsets of the values
+     * of any other column.
+     */
+    private final long[][] columns;
+    private final boolean[] intColumns;
+    private final Map<Object, Long> heapOffsets = new HashMap<>();
+    private final Map<Long, byte[]> heapValues = new LinkedHashMap<>();
+    private long heapSize;
+    private int size;
+
+    RelationWriter(int arity) {
+      if (arity < 1) {
+        throw new IllegalArgumentException("Arity must be positive: " + arity);
+      }
+      this.arity = arity;
+      this.columns = new long[arity][16];
+      this.intColumns = new boolean[arity];
+      Arrays.fill(intColumns, true);
+    }
+
+    RelationWriter addAll(Iterable<? extends List<?>> tuples) {
+      for (List<?> tuple : tuples) {
+        if (tuple.size() != arity) {
+          throw new IllegalArgumentException("Expected " + arity + " values but got " + tuple);
+        }
+        if (size == columns[0].length) {
+          for (int column = 0; column < arity; column++) {
+            columns[column] = Arrays.copyOf(columns[column], size * 2);
+          }
+        }
+        for (int column = 0; column < arity; column++) {
+          add(column, tuple.get(column));
+        }
+        size++;
+      }
+      return this;
+    }
+
+    private void add(int column, Object value) {
+      if (intColumns[column]) {
+        if (value instanceof Integer) {
+          columns[column][size] = (Integer) value;
+          return;
+        }
+        intColumns[column] = false;
+        for (int row = 0; row < size; row++) {
+          columns[column][row] = heapOffset((int) columns[column][row]);
+        }
+      }
+      columns[column][size] = heapOffset(value);
+    }
+
+    private long heapOffset(Object value) {
+      Long offset = heapOffsets.get(value);
+      if (offset == null) {
+        byte[] encoded = ValueCodec.encode(value);
+        if (encoded == null) {
+          throw new IllegalArgumentException("Cannot store value: " + value);
+        }
+        offset = heapSize;
+        heapOffsets.put(value, offset);
+        heapValues.put(offset, encoded);
+        heapSize += 4 + encoded.length;
+      }
+      return offset;
+    }
+
+    private byte[] encodedCell(int column, int row) {
+      return intColumns[column]
+          ? ValueCodec.encode((int) columns[column][row])
+          : heapValues.get(columns[column][row]);
+    }
+
+    private static void pad(DataOutputStream out, long length) throws IOException {
+      out.write(new byte[(int) (align(length) - length)]);
+    }
+
+    void write(Path file, String name, int[] indexedColumns) throws IOException {
+      boolean[] indexed = new boolean[arity];
+      for (int column : indexedColumns) {
+        if ((column < 0) || (column >= arity)) {
+          throw new IndexOutOfBoundsException("No column " + column);
+        }
+        indexed[column] = true;
+      }
+      byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+
+      long offset = align(HEADER_SIZE + nameBytes.length) + arity * (long) COLUMN_HEADER_SIZE;
+      long[] cellsOffsets = new long[arity];
+      for (int column = 0; column < arity; column++) {
+        cellsOffsets[column] = offset;
+        offset += align(size * (intColumns[column] ? 4L : 8L));
+      }
+      int[][] tables = new int[arity][];
+      int[][] indexRows = new int[arity][];
+      long[] indexOffsets = new long[arity];
+      for (int column = 0; column < arity; column++) {
+        if (indexed[column]) {
+          buildIndex(column, tables, indexRows);
+          indexOffsets[column] = offset;
+          offset += align(8 + tables[column].length * 4L + size * 4L);
+        }
+      }
+      long heapOffset = offset;
+
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(file)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(arity);
+        out.writeInt(size);
+        out.writeLong(heapOffset);
+        out.writeLong(heapSize);
+        out.writeInt(nameBytes.length);
+        out.write(nameBytes);
+        pad(out, HEADER_SIZE + nameBytes.length);
+        for (int column = 0; column < arity; column++) {
+          out.writeInt(intColumns[column] ? INT_COLUMN : VALUE_COLUMN);
+          out.writeInt(0);
+          out.writeLong(cellsOffsets[column]);
+          out.writeLong(indexOffsets[column]);
+        }
+        for (int column = 0; column < arity; column++) {
+          for (int row = 0; row < size; row++) {
+            if (intColumns[column]) {
+              out.writeInt((int) columns[column][row]);
+            } else {
+              out.writeLong(columns[column][row]);
+            }
+          }
+          pad(out, size * (intColumns[column] ? 4L : 8L));
+        }
+        for (int column = 0; column < arity; column++) {
+          if (indexed[column]) {
+            out.writeInt(tables[column].length / SLOT_INTS);
+            out.writeInt(0);
+            for (int value : tables[column]) {
+              out.writeInt(value);
+            }
+            for (int row : indexRows[column]) {
+              out.writeInt(row);
+            }
+            pad(out, 8 + tables[column].length * 4L + size * 4L);
+          }
+        }
+        for (byte[] value : heapValues.values()) {
+          out.writeInt(value.length);
+          out.write(value);
+        }
+      }
+    }
+
+    /**
+     * Groups the rows of {@code column} by value, in order of first appearance, and builds the
+     * hash table of the groups. The table has at least twice as many slots as there are groups,
+     * so that at most half of the slots are used.
+     */
+    private void buildIndex(int column, int[][] tables, int[][] indexRows) {
+      // Equal values share a heap offset, so cells are equal exactly when their values are.
+      Map<Long, List<Integer>> groups = new LinkedHashMap<>();
+      for (int row = 0; row < size; row++) {
+        List<Integer> group = groups.get(columns[column][row]);
+        if (group == null) {
+          group = new ArrayList<>();
+          groups.put(columns[column][row], group);
+        }
+        group.add(row);
+      }
+      int slotCount = Integer.highestOneBit(Math.max(groups.size(), 1) * 2 - 1) << 1;
+      int mask = slotCount - 1;
+      int[] table = new int[slotCount * SLOT_INTS];
+      int[] rows = new int[size];
+      int start = 0;
+      for (List<Integer> group : groups.values()) {
+        int hash = ValueCodec.hash(encodedCell(column, group.get(0)));
+        int slot = hash & mask;
+        while (table[slot * SLOT_INTS + 2] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot * SLOT_INTS] = hash;
+        table[slot * SLOT_INTS + 1] = start;
+        table[slot * SLOT_INTS + 2] = group.size();
+        for (int row : group) {
+          rows[start++] = row;
+        }
+      }
+      tables[column] = table;
+      indexRows[column] = rows;
+    }
+  }
+}
@@ -0,0 +1,397 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+import gulava.Dumpable;
+import gulava.Goal;
+import gulava.ImmatureStream;
+import gulava.LogicValue;
+import gulava.Reifier;
+import gulava.SolveStep;
+import gulava.Stream;
+import gulava.Streams;
+import gulava.Subst;
+import gulava.Var;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable set of facts, each of which is a tuple of ground values, with optional indexes on
+ * some of its columns. {@link #lookup(Object...)} returns a goal which succeeds once for each
+ * tuple that unifies with its arguments. When the goal runs, it uses the index of whichever bound
+ * argument matches the fewest rows, so a lookup by an indexed column takes constant time with a
+ * hash index and logarithmic time with a sorted index, rather than time linear in the number of
+ * facts as a disjunction of {@code same} goals would.
+ *
+ * <p>Relations on the heap are built with a {@link Builder}, which stores the tuples column by
+ * column and builds every index at once in {@link Builder#build()}, so loading many tuples is
+ * fast. Relations which are too large for the heap can be stored in a file and mapped into memory
+ * with {@link MappedRelation}.
+ */
+public abstract class Relation {
+  /**
+   * Builder of {@code Relation} instances.
+   */
+  public static final class Builder {
+    private final String name;
+    private final int arity;
+    private final Object[][] columns;
+    private final boolean[] hashIndexed;
+    private final boolean[] sortIndexed;
+    private int size;
+
+    /**
+     * Creates a builder of a relation called {@code name} with {@code arity} columns.
+     */
+    public Builder(String name, int arity) {
+      if (arity < 1) {
+        throw new IllegalArgumentException("Arity must be positive: " + arity);
+      }
+      this.name = name;
+      this.arity = arity;
+      this.columns = new Object[arity][16];
+      this.hashIndexed = new boolean[arity];
+      this.sortIndexed = new boolean[arity];
+    }
+
+    private void checkColumn(int column) {
+      if ((column < 0) || (column >= arity)) {
+        throw new IndexOutOfBoundsException("No column " + column + " in " + name + "/" + arity);
+      }
+    }
+
+    /**
+     * Adds a hash index on {@code column}. A lookup with this column bound takes constant time.
+     */
+    public Builder addHashIndex(int column) {
+      checkColumn(column);
+      hashIndexed[column] = true;
+      return this;
+    }
+
+    /**
+     * Adds a sorted index on {@code column}, whose values must all be {@link Comparable} with each
+     * other. A lookup with this column bound takes logarithmic time, and the index uses much less
+     * memory than a hash index.
+     */
+    public Builder addSortedIndex(int column) {
+      checkColumn(column);
+      sortIndexed[column] = true;
+      return this;
+    }
+
+    /**
+     * Makes room for {@code capacity} tuples, so that loading that many does not have to grow the
+     * columns repeatedly.
+     */
+    public Builder ensureCapacity(int capacity) {
+      if (capacity > columns[0].length) {
+        for (int i = 0; i < arity; i++) {
+          columns[i] = Arrays.copyOf(columns[i], capacity);
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Adds a tuple. Each value must be ground, i.e. it must not be or contain a {@link Var}.
+     */
+    public Builder add(Object... tuple) {
+      return add(Arrays.asList(tuple));
+    }
+
+    /**
+     * Adds each of {@code tuples}. See {@link #add(Object...)}.
+     */
+    public Builder addAll(Iterable<? extends List<?>> tuples) {
+      for (List<?> tuple : tuples) {
+        add(tuple);
+      }
+      return this;
+    }
+
+    private Builder add(List<?> tuple) {
+      if (tuple.size() != arity) {
+        throw new IllegalArgumentException(
+            "Expected " + arity + " values for " + name + " but got " + tuple);
+      }
+      for (Object value : tuple) {
+        if (!Subst.EMPTY.isGround(value)) {
+          throw new IllegalArgumentException("Value is not ground: " + value);
+        }
+      }
+      if (size == columns[0].length) {
+        ensureCapacity(size * 2);
+      }
+      for (int i = 0; i < arity; i++) {
+        columns[i][size] = tuple.get(i);
+      }
+      size++;
+      return this;
+    }
+
+    /**
+     * Builds a relation with the tuples added so far and builds its indexes. The builder can still
+     * be used afterwards, and changes to it do not affect the relation.
+     */
+    public Relation build() {
+      Object[][] builtColumns = new Object[arity][];
+      Index[] indexes = new Index[arity];
+      for (int i = 0; i < arity; i++) {
+        builtColumns[i] = Arrays.copyOf(columns[i], size);
+        if (hashIndexed[i]) {
+          indexes[i] = new HashIndex(builtColumns[i], size);
+        } else if (sortIndexed[i]) {
+          indexes[i] = new SortedIndex(builtColumns[i], size);
+        }
+      }
+      return new HeapRelation(name, builtColumns, size, indexes);
+    }
+  }
+
+  private final String name;
+  private final int arity;
+
+  Relation(String name, int arity) {
+    this.name = name;
+    this.arity = arity;
+  }
+
+  public final String name() {
+    return name;
+  }
+
+  public final int arity() {
+    return arity;
+  }
+
+  /**
+   * Returns the number of tuples in this relation.
+   */
+  public abstract int size();
+
+  /**
+   * Returns the value in {@code column} of {@code row}.
+   */
+  abstract Object value(int column, int row);
+
+  /**
+   * Returns whether {@code column} has an index.
+   */
+  abstract boolean indexed(int column);
+
+  /**
+   * Returns the rows whose value in {@code column}, which is indexed, equals {@code key}, which is
+   * ground.
+   */
+  abstract Rows rowsWithValue(int column, Object key);
+
+  /**
+   * Returns a goal which succeeds once for each tuple of this relation that unifies with
+   * {@code args}, in the order the tuples were added. The arguments may be any values, including
+   * unbound variables and partially bound logic values. An argument is used for an index lookup
+   * if it is ground when the goal runs.
+   */
+  public Goal lookup(Object... args) {
+    if (args.length != arity) {
+      throw new IllegalArgumentException(
+          "Expected " + arity + " arguments for " + name + " but got " + args.length);
+    }
+    final Object[] argArray = args.clone();
+    return new Goal() {
+      @Override
+      public Stream run(Subst s) {
+        Rows rows = candidates(s, argArray);
+        return (rows.size() == 0) ? Streams.EMPTY : solutions(s, argArray, rows, 0);
+      }
+
+      @Override
+      public String toString() {
+        return name + Arrays.asList(argArray);
+      }
+    };
+  }
+
+  /**
+   * Returns the rows which may unify with {@code args}, which are the rows that the index of a
+   * bound argument returns, or all of them if no indexed argument is bound.
+   */
+  private Rows candidates(Subst s, Object[] args) {
+    Rows best = null;
+    Reifier reifier = null;
+    for (int column = 0; column < args.length; column++) {
+      if (!indexed(column)) {
+        continue;
+      }
+      Object key = s.walk(args[column]);
+      if (key instanceof Var) {
+        continue;
+      }
+      if (key instanceof LogicValue) {
+        if (!s.isGround(key)) {
+          continue;
+        }
+        if (reifier == null) {
+          reifier = new Reifier(s);
+        }
+        key = reifier.reify(key);
+      }
+      Rows rows = rowsWithValue(column, key);
+      if ((best == null) || (rows.size() < best.size())) {
+        best = rows;
+      }
+      if (best.size() == 0) {
+        break;
+      }
+    }
+    return (best == null) ? Rows.all(size()) : best;
+  }
+
+  /**
+   * The most candidate rows which are unified with the arguments of a lookup in one step. A scan
+   * of many rows which mostly do not unify, e.g. a lookup by a column without an index, takes a
+   * step for each this many, so that other goals get their share of the steps in the meantime.
+   */
+  static final int ROWS_PER_STEP = 64;
+
+  /**
+   * Returns the stream of solutions for the candidate rows from {@code start} onwards. Up to
+   * {@link #ROWS_PER_STEP} rows which do not unify with {@code args} are skipped without taking a
+   * step, and the rows after those are scanned in an {@link ImmatureStream}.
+   */
+  private Stream solutions(final Subst s, final Object[] args, final Rows rows, int start) {
+    int end = start + Math.min(ROWS_PER_STEP, rows.size() - start);
+    for (int i = start; i < end; i++) {
+      Subst solution = unifyRow(s, args, rows.get(i));
+      if (solution != null) {
+        return new RowStream(solution, s, args, rows, i + 1);
+      }
+    }
+    if (end == rows.size()) {
+      return Streams.EMPTY;
+    }
+    final int next = end;
+    return new ImmatureStream() {
+      @Override
+      protected Stream realize() {
+        return solutions(s, args, rows, next);
+      }
+
+      @Override
+      public String dumpHeading() {
+        return "ImmatureStream " + name + " from candidate " + next;
+      }
+
+      @Override
+      public void addSubcomponents(Collection<Object> destination) {
+        destination.add(s);
+      }
+    };
+  }
+
+  /**
+   * A solution for one row, whose rest finds the solution for the next row that unifies. Each
+   * answer of a lookup takes one step, and the rows after it are not visited until the rest is
+   * realized.
+   */
+  private final class RowStream implements Dumpable, Stream {
+    private final Subst solution;
+    private final Subst s;
+    private final Object[] args;
+    private final Rows rows;
+    private final int next;
+
+    RowStream(Subst solution, Subst s, Object[] args, Rows rows, int next) {
+      this.solution = solution;
+      this.s = s;
+      this.args = args;
+      this.rows = rows;
+      this.next = next;
+    }
+
+    @Override
+    public Subst subst() {
+      return solution;
+    }
+
+    @Override
+    public Stream rest() {
+      return solutions(s, args, rows, next);
+    }
+
+    @Override
+    public Stream mplus(final Stream s2) {
+      return new SolveStep(solution, new ImmatureStream(false) {
+        @Override
+        protected Stream realize() {
+          return s2.mplus(RowStream.this.rest());
+        }
+
+        @Override
+        public void addSubcomponents(Collection<Object> destination) {
+          destination.add(s2);
+          destination.add(RowStream.this);
+        }
+      });
+    }
+
+    @Override
+    public Stream bind(final Goal goal) {
+      return goal.run(solution).mplus(new ImmatureStream(false) {
+        @Override
+        protected Stream realize() {
+          return RowStream.this.rest().bind(goal);
+        }
+
+        @Override
+        public void addSubcomponents(Collection<Object> destination) {
+          destination.add(goal);
+          destination.add(RowStream.this);
+        }
+      });
+    }
+
+    @Override
+    public String dumpHeading() {
+      return "RowStream " + name + " from candidate " + next;
+    }
+
+    @Override
+    public void addSubcomponents(Collection<Object> destination) {
+      destination.add(solution);
+    }
+  }
+
+  private Subst unifyRow(Subst s, Object[] args, int row) {
+    for (int column = 0; (s != null) && (column < args.length); column++) {
+      s = s.unify(args[column], value(column, row));
+    }
+    return s;
+  }
+
+  @Override
+  public String toString() {
+    return name + "/" + arity;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+/**
+ * A range of row numbers of a relation, which an index returns for a lookup. The row numbers may
+ * be stored in an array or in a file which is mapped into memory.
+ */
+final class Rows {
+  static final Rows NONE = all(0);
+
+  /**
+   * The row numbers, or {@code null} if they are in {@link #file} or if this is the range of row
+   * numbers themselves.
+   */
+  private final int[] rows;
+
+  /**
+   * The file which has the row numbers, as consecutive {@code int}s starting at {@link #offset},
+   * or {@code null} if they are not in a file.
+   */
+  private final MappedFile file;
+  private final long offset;
+  private final int from;
+  private final int to;
+
+  private Rows(int[] rows, MappedFile file, long offset, int from, int to) {
+    this.rows = rows;
+    this.file = file;
+    this.offset = offset;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Creates a range of the row numbers in {@code rows} from {@code from}, inclusive, to {@code to},
+   * exclusive. The array is not copied.
+   */
+  Rows(int[] rows, int from, int to) {
+    this(rows, null, 0, from, to);
+  }
+
+  /**
+   * Creates a range of the row numbers from {@code from}, inclusive, to {@code to}, exclusive, in
+   * the array of {@code int}s at {@code offset} in {@code file}. Nothing is read until
+   * {@link #get(int)} is called.
+   */
+  Rows(MappedFile file, long offset, int from, int to) {
+    this(null, file, offset, from, to);
+  }
+
+  /**
+   * Returns the range of every row of a relation with {@code size} rows.
+   */
+  static Rows all(int size) {
+    return new Rows(null, null, 0, 0, size);
+  }
+
+  int size() {
+    return to - from;
+  }
+
+  /**
+   * Returns the {@code index}th row number in this range.
+   */
+  int get(int index) {
+    if (rows != null) {
+      return rows[from + index];
+    }
+    if (file != null) {
+      return file.getInt(offset + (from + index) * 4L);
+    }
+    return from + index;
+  }
+}
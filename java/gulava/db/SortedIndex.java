@@ -0,0 +1,99 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An index which keeps the rows of a relation sorted by the value of a column, so that the rows
+ * with a value can be found with two binary searches. This takes {@code O(log n)} time per lookup
+ * but only one {@code int} per row, so it uses much less memory than {@link HashIndex} for columns
+ * with many distinct values. The values of the column must all be {@link Comparable} with each
+ * other.
+ */
+final class SortedIndex extends Index {
+  private final Object[] column;
+  private final int[] rows;
+
+  SortedIndex(final Object[] column, int size) {
+    this.column = column;
+    Integer[] sorted = new Integer[size];
+    for (int row = 0; row < size; row++) {
+      if (!(column[row] instanceof Comparable)) {
+        throw new IllegalArgumentException(
+            "Value in row " + row + " cannot be sorted: " + column[row]);
+      }
+      sorted[row] = row;
+    }
+    // The sort is stable, so rows with equal values stay in increasing order.
+    Arrays.sort(sorted, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer row1, Integer row2) {
+        return compareValues(column[row1], column[row2]);
+      }
+    });
+    rows = new int[size];
+    for (int i = 0; i < size; i++) {
+      rows[i] = sorted[i];
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compareValues(Object value1, Object value2) {
+    return ((Comparable<Object>) value1).compareTo(value2);
+  }
+
+  /**
+   * Returns the first position in {@link #rows} whose value is greater than {@code key}, or is
+   * greater than or equal to it if {@code inclusive} is {@code true}.
+   */
+  private int search(Object key, boolean inclusive) {
+    int low = 0;
+    int high = rows.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compareValues(column[rows[middle]], key);
+      if ((comparison < 0) || (!inclusive && (comparison == 0))) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  Rows lookup(Object key) {
+    if (!(key instanceof Comparable)) {
+      return Rows.NONE;
+    }
+    try {
+      int from = search(key, true);
+      int to = search(key, false);
+      return (from == to) ? Rows.NONE : new Rows(rows, from, to);
+    } catch (ClassCastException e) {
+      // The key is of a type which cannot be compared to the values, so it equals none of them.
+      return Rows.NONE;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+import gulava.BufferDecoder;
+import gulava.BufferEncoder;
+import gulava.Subst;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes the values which {@link MappedRelation} can store, and decodes them from a
+ * {@link MappedFile}. Values are encoded by {@link BufferEncoder}, and each one on the heap of a
+ * relation file is stored as the big-endian 32-bit length of its encoding followed by the encoding.
+ *
+ * <p>Only ground values are stored. The encoding of a ground value depends on nothing but the
+ * value, and equal values have equal encodings, so two values are equal if and only if their
+ * encodings are. This lets lookups compare encoded bytes rather than decoded values.
+ */
+final class ValueCodec {
+  private ValueCodec() {}
+
+  /**
+   * Returns the encoding of {@code value}, or {@code null} if it is not ground or contains a value
+   * that cannot be encoded.
+   */
+  static byte[] encode(Object value) {
+    if (!Subst.EMPTY.isGround(value)) {
+      return null;
+    }
+    BufferEncoder encoder = new BufferEncoder();
+    for (int capacity = 64; ; capacity *= 2) {
+      ByteBuffer buffer = ByteBuffer.allocate(capacity);
+      try {
+        encoder.encode(value, buffer);
+      } catch (BufferOverflowException e) {
+        continue;
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+      return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+  }
+
+  /**
+   * Returns a 32-bit FNV-1a hash of {@code bytes}. Unlike {@link Object#hashCode()}, this is the
+   * same in every JVM, so it can be stored in a file.
+   */
+  static int hash(byte[] bytes) {
+    int hash = 0x811c9dc5;
+    for (byte b : bytes) {
+      hash ^= b & 0xff;
+      hash *= 0x01000193;
+    }
+    return hash;
+  }
+
+  /**
+   * Returns whether the value stored at {@code offset} in {@code file} is equal to the value
+   * encoded in {@code encoded}. Nothing is decoded.
+   */
+  static boolean equalsAt(MappedFile file, long offset, byte[] encoded) {
+    if (file.getInt(offset) != encoded.length) {
+      return false;
+    }
+    for (int i = 0; i < encoded.length; i++) {
+      if (file.get(offset + 4 + i) != encoded[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decodes the value stored at {@code offset} in {@code file}.
+   */
+  static Object decode(MappedFile file, long offset) {
+    return new BufferDecoder().decode(file.slice(offset + 4, file.getInt(offset)));
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.jfr;
+
+import gulava.Profiler;
+
+import jdk.jfr.EventType;
+
+/**
+ * Emits a {@link PredicateCallEvent} for every Nth run of a predicate, clause or core goal, using
+ * the call observer of {@link Profiler}. Sampling keeps the cost of recording low for predicates
+ * which are run millions of times in a query. Like the profiler, the sampler is not thread-safe,
+ * and only observes generated predicates and clauses which are created while it is installed.
+ */
+public final class PredicateCallSampler implements Profiler.CallObserver {
+  private static final EventType EVENT_TYPE = EventType.getEventType(PredicateCallEvent.class);
+
+  private final int interval;
+  private int untilSample;
+
+  private PredicateCallSampler(int interval) {
+    this.interval = interval;
+    this.untilSample = interval;
+  }
+
+  /**
+   * Installs a sampler which emits an event for one in every {@code interval} goal runs, replacing
+   * any call observer that is already set.
+   */
+  public static PredicateCallSampler install(int interval) {
+    if (interval < 1) {
+      throw new IllegalArgumentException("Interval must be positive: " + interval);
+    }
+    PredicateCallSampler sampler = new PredicateCallSampler(interval);
+    Profiler.setCallObserver(sampler);
+    return sampler;
+  }
+
+  /**
+   * Removes the call observer of {@link Profiler}.
+   */
+  public static void uninstall() {
+    Profiler.setCallObserver(null);
+  }
+
+  @Override
+  public void called(String name) {
+    if (--untilSample > 0) {
+      return;
+    }
+    untilSample = interval;
+    if (EVENT_TYPE.isEnabled()) {
+      PredicateCallEvent event = new PredicateCallEvent();
+      event.name = name;
+      event.samplingInterval = interval;
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.jfr;
+
+import gulava.Goal;
+import gulava.Stream;
+import gulava.Streams;
+import gulava.Subst;
+
+import jdk.jfr.EventType;
+
+/**
+ * Runs a goal with a budget of steps and records the query, each of its answers, and whether it
+ * exhausted its budget as Java Flight Recorder events in the "Gulava" category. A step is one
+ * call to {@link Stream#rest()}, which is the same unit of work that
+ * {@code LogicAsserter.workUnits(int)} counts.
+ *
+ * <p>The {@link QueryEvent} spans from construction until the stream ends, the budget is exhausted
+ * or {@link #close()} is called, whichever is first. If running the goal or realizing its stream
+ * throws, the query ends there too, and its event records the exception. Events are only
+ * allocated and committed when they are enabled in a running recording, so a query that is not
+ * being recorded costs one check per answer, of an event type which is looked up once.
+ */
+public final class RecordedQuery implements AutoCloseable {
+  private static final EventType ANSWER_EVENT_TYPE = EventType.getEventType(AnswerEvent.class);
+  private static final EventType BUDGET_EXHAUSTED_EVENT_TYPE =
+      EventType.getEventType(BudgetExhaustedEvent.class);
+
+  private final QueryEvent queryEvent = new QueryEvent();
+  private final String goal;
+  private final long maxSteps;
+  private Stream stream;
+  private int answers;
+  private long steps;
+  private boolean budgetExhausted;
+  private String failure;
+  private boolean ended;
+
+  public RecordedQuery(Goal goal, long maxSteps) {
+    if (maxSteps < 0) {
+      throw new IllegalArgumentException("Negative step budget: " + maxSteps);
+    }
+    this.goal = goal.toString();
+    this.maxSteps = maxSteps;
+    queryEvent.begin();
+    try {
+      this.stream = goal.run(Subst.EMPTY);
+    } catch (RuntimeException | Error e) {
+      fail(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the next answer of the query, or {@code null} if there are no more answers or the step
+   * budget is exhausted.
+   */
+  public Subst next() {
+    while (!ended) {
+      if (stream == Streams.EMPTY) {
+        end();
+      } else if (steps == maxSteps) {
+        budgetExhausted = true;
+        if (BUDGET_EXHAUSTED_EVENT_TYPE.isEnabled()) {
+          BudgetExhaustedEvent event = new BudgetExhaustedEvent();
+          event.goal = goal;
+          event.budget = maxSteps;
+          event.answers = answers;
+          event.commit();
+        }
+        end();
+      } else {
+        steps++;
+        Subst subst = stream.subst();
+        try {
+          stream = stream.rest();
+        } catch (RuntimeException | Error e) {
+          fail(e);
+          throw e;
+        }
+        if (subst != null) {
+          if (ANSWER_EVENT_TYPE.isEnabled()) {
+            AnswerEvent event = new AnswerEvent();
+            event.index = answers;
+            event.steps = steps;
+            event.substSize = subst.size();
+            event.commit();
+          }
+          answers++;
+          return subst;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of answers produced so far.
+   */
+  public int answers() {
+    return answers;
+  }
+
+  /**
+   * Returns the number of steps taken so far.
+   */
+  public long steps() {
+    return steps;
+  }
+
+  /**
+   * Returns whether the query was stopped because it took as many steps as its budget allows.
+   */
+  public boolean budgetExhausted() {
+    return budgetExhausted;
+  }
+
+  /**
+   * Ends the query, committing its {@link QueryEvent} if it has not ended already. The remainder of
+   * the stream is dropped.
+   */
+  @Override
+  public void close() {
+    end();
+  }
+
+  private void fail(Throwable e) {
+    failure = e.toString();
+    end();
+  }
+
+  private void end() {
+    if (ended) {
+      return;
+    }
+    ended = true;
+    stream = Streams.EMPTY;
+    queryEvent.end();
+    if (queryEvent.shouldCommit()) {
+      queryEvent.goal = goal;
+      queryEvent.answers = answers;
+      queryEvent.steps = steps;
+      queryEvent.budgetExhausted = budgetExhausted;
+      queryEvent.failure = failure;
+      queryEvent.commit();
+    }
+  }
+}
@@ -64,7 +64,7 @@ public final class AnnotatedType {
     if (generateErrorClass()) {
       return new ClassWriter(new StringWriter(), generatedClassName);
     } else {
-      return new ClassWriter(env, pkg, generatedClassName);
+      return new ClassWriter(env, pkg, generatedClassName, type);
     }
   }
 
@@ -109,7 +109,8 @@ public final class AnnotatedType {
           String errorsClassName = Processors.generatedClassName(type) + "_Errors";
           try {
             ClassWriter errorsClassWriter = annotatedType.generateErrorClass()
-                ? new ClassWriter(processingEnv, annotatedType.getPkg(), errorsClassName)
+                ? new ClassWriter(
+                    processingEnv, annotatedType.getPkg(), errorsClassName, type)
                 : new ClassWriter(new StringWriter(), errorsClassName);
 
             try (ClassGeneratingMessager classGeneratingMessager =
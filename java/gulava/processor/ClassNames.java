@@ -33,6 +33,12 @@ public class ClassNames {
 
   public static final String DELAYED_GOAL = "gulava.DelayedGoal";
 
+  public static final String ENCODABLE = "gulava.Encodable";
+
+  public static final String FIELD_READER = "gulava.FieldReader";
+
+  public static final String FIELD_WRITER = "gulava.FieldWriter";
+
   public static final String LOGIC_VALUE = "gulava.LogicValue";
 
   public static final String GOAL = "gulava.Goal";
@@ -41,8 +47,14 @@ public class ClassNames {
 
   public static final String STREAM = "gulava.Stream";
 
+  public static final String STREAMS = "gulava.Streams";
+
   public static final String SUBST = "gulava.Subst";
 
+  public static final String TERM_DECODER = "gulava.TermDecoder";
+
+  public static final String PROFILER = "gulava.Profiler";
+
   public static final String REPLACER = "gulava.Replacer";
 
   public static final String VAR = "gulava.Var";
@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.Writer;
 
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.PackageElement;
 
 /**
@@ -45,11 +46,15 @@ public final class ClassWriter extends FilterWriter {
   /**
    * Creates an instance for generating a class of the given name in the given package.
    * This automatically generates a {@code package} line.
+   *
+   * @param originatingElement the annotated type the class is generated from. This is passed to
+   *     the {@link javax.annotation.processing.Filer} so that incremental build tools know which
+   *     source file the generated class depends on.
    */
-  public ClassWriter(ProcessingEnvironment env, PackageElement pkg, String className)
-      throws IOException {
+  public ClassWriter(ProcessingEnvironment env, PackageElement pkg, String className,
+      Element originatingElement) throws IOException {
     this(env.getFiler()
-            .createSourceFile(pkg.getQualifiedName() + "." + className)
+            .createSourceFile(pkg.getQualifiedName() + "." + className, originatingElement)
             .openWriter(),
          className);
     write("package " + pkg.getQualifiedName() + ";\n");
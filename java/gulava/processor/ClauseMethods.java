@@ -97,7 +97,8 @@ public final class ClauseMethods {
         continue;
       }
 
-      metadata.add(new Predicate(predicate, clauses));
+      metadata.add(
+          new Predicate(predicate, clauses, ModeDeclaration.of(predicate, messager)));
     }
     return metadata;
   }
@@ -28,6 +28,7 @@ import java.util.List;
 
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.Name;
 import javax.lang.model.element.TypeElement;
@@ -37,6 +38,7 @@ import javax.lang.model.type.NoType;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVisitor;
 import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.SimpleTypeVisitor6;
 import javax.tools.Diagnostic;
 
@@ -87,6 +89,13 @@ public final class FreshInstantiation extends SimpleTypeVisitor6<String, Void> {
       return "null";
     }
 
+    if (hasPrimitiveFields(typeElement)) {
+      messager.printMessage(Diagnostic.Kind.ERROR,
+          "Cannot instantiate a logic value with primitive fields as a pattern: " + type,
+          element);
+      return "null";
+    }
+
     List<String> subInstantiations = new ArrayList<>();
     for (TypeMirror typeArgument : type.getTypeArguments()) {
       subInstantiations.add(visit(typeArgument));
@@ -103,6 +112,23 @@ public final class FreshInstantiation extends SimpleTypeVisitor6<String, Void> {
     return "new " + typeName + "<>(" + Processors.join(", ", subInstantiations) + ")";
   }
 
+  /**
+   * Returns whether the given type is annotated with @{@link MakeLogicValue} and has a field of a
+   * primitive type. Such fields cannot be bound to a fresh {@code Var}.
+   */
+  private static boolean hasPrimitiveFields(TypeElement typeElement) {
+    if (typeElement.getAnnotation(MakeLogicValue.class) == null) {
+      return false;
+    }
+    for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+      if (!method.getModifiers().contains(Modifier.STATIC)
+          && method.getReturnType().getKind().isPrimitive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public String visitUnknown(TypeMirror type, Void v) {
     messager.printMessage(Diagnostic.Kind.ERROR,
@@ -28,6 +28,7 @@ import java.util.List;
 
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.PrimitiveType;
@@ -102,6 +103,39 @@ public final class GoalExpressions {
     writer.write("  }\n");
   }
 
+  /**
+   * Writes a method which runs each clause in order on a substitution and returns the first
+   * solution found, or {@link gulava.Streams#EMPTY} if no clause has a solution. Unlike the method
+   * written by {@link #writeInlineMethod(Writer, String, String, List, Parameters)}, this does not
+   * combine the clauses with {@code disj}, so it is only correct for predicates which have at most
+   * one solution. The first parameter of the written method is the substitution, which is named
+   * {@code __subst__}.
+   *
+   * @param writer where to write the method signature and source to
+   * @param modifiers modifiers to attach before the return type, such as {@code "private"}
+   * @param name the name of the method
+   * @param clauseMethods the clauses to try, in order
+   */
+  public void writeFirstSolutionMethod(
+      Writer writer, String modifiers, String name, List<ExecutableElement> clauseMethods,
+      Parameters parameters) throws IOException {
+    writer.write("  " + modifiers + " " + ClassNames.STREAM + " " + name + "("
+        + ClassNames.SUBST + " __subst__"
+        + (parameters.getCount() == 0 ? "" : ", " + parameters) + ") {\n");
+    writer.write("    " + ClassNames.SUBST + " __solution__;\n");
+    for (ExecutableElement clauseMethod : clauseMethods) {
+      PreparedExpression clause = clause(clauseMethod);
+      clause.writePreparationStatements(writer);
+      writer.write("    __solution__ = " + ClassNames.STREAMS + ".first("
+          + clause.getExpression() + ".run(__subst__));\n");
+      writer.write("    if (__solution__ != null) {\n");
+      writer.write("      return __solution__;\n");
+      writer.write("    }\n");
+    }
+    writer.write("    return " + ClassNames.STREAMS + ".EMPTY;\n");
+    writer.write("  }\n");
+  }
+
   /**
    * Generates the expression for the invocation of a certain clause required by a predicate method
    * implementation. A predicate method needs at least one clause to be valid - each clause
@@ -158,6 +192,12 @@ public final class GoalExpressions {
               Processors.join(", ", decomposedArgList)));
     }
 
-    return new PreparedExpression(Processors.compoundGoal("conj", subGoals), preparationStatements);
+    // Report each run of the clause to the profiler, if one is active, under the qualified name of
+    // the clause method.
+    String clauseName = ((TypeElement) clauseMethod.getEnclosingElement()).getQualifiedName()
+        + "." + clauseMethod.getSimpleName();
+    String expression = String.format("%s.wrap(\"%s\", %s)",
+        ClassNames.PROFILER, clauseName, Processors.compoundGoal("conj", subGoals));
+    return new PreparedExpression(expression, preparationStatements);
   }
 }
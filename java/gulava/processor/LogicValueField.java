@@ -23,14 +23,32 @@ package gulava.processor;
 
 import java.util.Locale;
 
+import javax.lang.model.type.TypeKind;
+
 /**
- * Information about a field in a generated logic value.
+ * Information about a field in a generated logic value. A field either has a generic type, in which
+ * case it can hold any value including a {@code Var}, or a primitive type such as {@code int}, in
+ * which case it is stored unboxed and never needs a substitution to unify.
  */
 public final class LogicValueField {
   private final String name;
+  private final TypeKind primitiveKind;
 
+  /**
+   * Creates a field with a generic type.
+   */
   public LogicValueField(String name) {
+    this(name, null);
+  }
+
+  /**
+   * @param name the name of the field
+   * @param primitiveKind the primitive type of the field, or {@code null} if the field has a
+   *     generic type
+   */
+  public LogicValueField(String name, TypeKind primitiveKind) {
     this.name = name;
+    this.primitiveKind = primitiveKind;
   }
 
   /**
@@ -41,12 +59,27 @@ public final class LogicValueField {
   }
 
   /**
-   * The name of the type parameter.
+   * Whether this field has a primitive type rather than a generic type.
+   */
+  public boolean isPrimitive() {
+    return primitiveKind != null;
+  }
+
+  /**
+   * The name of the type parameter. This is only meaningful for fields that are not primitive.
    */
   public String getTypeParameter() {
     return name.toUpperCase(Locale.US) + "_TYPE";
   }
 
+  /**
+   * The type of the field as it appears in generated code: either the primitive type or the type
+   * parameter.
+   */
+  public String getType() {
+    return isPrimitive() ? primitiveKind.name().toLowerCase(Locale.US) : getTypeParameter();
+  }
+
   /**
    * The name of the setter method in the generated value builder.
    */
@@ -55,11 +88,49 @@ public final class LogicValueField {
   }
 
   /**
-   * Returns the type parameter and name separate by a space - useable as a kind of declaration or
-   * in a method signature.
+   * Returns the type and name separate by a space - useable as a kind of declaration or in a method
+   * signature.
    */
   public String getTypeAndName() {
-    return getTypeParameter() + " " + getName();
+    return getType() + " " + getName();
+  }
+
+  /**
+   * Returns an expression which is true if the values of this field in {@code a} and {@code b} are
+   * not equal. This is only valid for primitive fields. Floating point values are compared the same
+   * way as {@link Double#equals(Object)} so that this is consistent with the boxed value.
+   */
+  public String primitiveNotEqualExpression(String a, String b) {
+    switch (primitiveKind) {
+      case FLOAT:
+        return String.format("java.lang.Float.compare(%s.%s, %s.%s) != 0", a, name, b, name);
+      case DOUBLE:
+        return String.format("java.lang.Double.compare(%s.%s, %s.%s) != 0", a, name, b, name);
+      default:
+        return String.format("%s.%s != %s.%s", a, name, b, name);
+    }
+  }
+
+  /**
+   * Returns an expression which computes the hash code of this field in {@code instance}. This is
+   * only valid for primitive fields, and gives the same result as the hash code of the boxed value.
+   */
+  public String primitiveHashCodeExpression(String instance) {
+    String boxedType = primitiveKind == TypeKind.INT
+        ? "Integer"
+        : primitiveKind == TypeKind.CHAR
+            ? "Character"
+            : Processors.capitalizeFirst(primitiveKind.name().toLowerCase(Locale.US));
+    return String.format("java.lang.%s.hashCode(%s.%s)", boxedType, instance, name);
+  }
+
+  /**
+   * Returns the part of the {@code gulava.FieldWriter} and {@code gulava.FieldReader} method names
+   * that follows {@code write} or {@code read} for this field's type, e.g. {@code "Int"} for
+   * {@code writeInt} and {@code readInt}. This is only valid for primitive fields.
+   */
+  public String dataMethodSuffix() {
+    return Processors.capitalizeFirst(primitiveKind.name().toLowerCase(Locale.US));
   }
 
   @Override
@@ -31,6 +31,7 @@ import javax.annotation.processing.Messager;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
 
@@ -69,16 +70,18 @@ public final class MakeLogicValueMetadata {
   }
 
   /**
-   * Returns the type parameters of each field, separated by commas, and enclosed in alligator
-   * brackets, e.g. {@code "<FOO_TYPE, BAR_TYPE>"}.
+   * Returns the type parameters of each non-primitive field, separated by commas, and enclosed in
+   * alligator brackets, e.g. {@code "<FOO_TYPE, BAR_TYPE>"}.
    */
   public String typeParametersAlligator() {
-    if (fields.isEmpty()) {
-      return "";
-    }
     List<String> typeParameters = new ArrayList<>();
     for (LogicValueField field : fields) {
-      typeParameters.add(field.getTypeParameter());
+      if (!field.isPrimitive()) {
+        typeParameters.add(field.getTypeParameter());
+      }
+    }
+    if (typeParameters.isEmpty()) {
+      return "";
     }
     return "<" + Processors.join(", ", typeParameters) + ">";
   }
@@ -89,7 +92,7 @@ public final class MakeLogicValueMetadata {
   public String instantiation(Iterable<String> arguments) {
     return String.format("new %s%s(%s)",
         name,
-        fields.isEmpty() ? "" : "<>",
+        typeParametersAlligator().isEmpty() ? "" : "<>",
         Processors.join(", ", arguments));
   }
 
@@ -105,17 +108,25 @@ public final class MakeLogicValueMetadata {
       if (method.getSimpleName().contentEquals("toString")) {
         autoDefineToString = false;
       } else if (!method.getModifiers().contains(Modifier.STATIC)) {
-        fields.add(new LogicValueField(method.getSimpleName().toString()));
+        TypeKind returnKind = method.getReturnType().getKind();
+        fields.add(new LogicValueField(method.getSimpleName().toString(),
+            returnKind.isPrimitive() ? returnKind : null));
       }
     }
 
     String name = "MakeLogicValue_" + Processors.generatedClassName(interfaze);
     int typeParameterCount = interfaze.getTypeParameters().size();
+    int genericFieldCount = 0;
+    for (LogicValueField field : fields) {
+      if (!field.isPrimitive()) {
+        genericFieldCount++;
+      }
+    }
 
-    if (typeParameterCount != fields.size()) {
+    if (typeParameterCount != genericFieldCount) {
       messager.printMessage(Diagnostic.Kind.ERROR,
           "Expect one generic type parameter for each field. There are "
-          + fields.size() + " field(s) and "
+          + genericFieldCount + " field(s) and "
           + typeParameterCount + " type parameter(s).", interfaze);
     }
 
@@ -43,7 +43,8 @@ public final class MakeLogicValueProcessor extends AnnotatedType.Processor {
         MakeLogicValueMetadata.forInterface(interfaze, messager);
     try (Writer writer = annotatedType.openWriter(metadata.getName())) {
       String extendsClause = "";
-      String implementsClause = " implements " + ClassNames.LOGIC_VALUE;
+      String implementsClause =
+          " implements " + ClassNames.LOGIC_VALUE + ", " + ClassNames.ENCODABLE;
       switch (interfaze.getKind()) {
         case INTERFACE:
           implementsClause += ", " + interfaze.getQualifiedName()
@@ -96,18 +97,30 @@ public final class MakeLogicValueProcessor extends AnnotatedType.Processor {
       writer.write("\n");
 
       // LogicValue method: unify
+      // Primitive fields are compared first since they never need the substitution.
       writer.write("  @Override public " + ClassNames.SUBST + " unify("
           + ClassNames.SUBST + " subst, " + ClassNames.LOGIC_VALUE + " other) {\n");
-      boolean first = true;
+      writer.write("    " + metadata.getName() + " __other__ = ("
+          + metadata.getName() + ") other;\n");
       for (LogicValueField field : metadata.getFields()) {
-        if (!first) {
-          writer.write("    if (subst == null) {\n");
+        if (field.isPrimitive()) {
+          writer.write("    if (" + field.primitiveNotEqualExpression("this", "__other__")
+              + ") {\n");
           writer.write("      return null;\n");
           writer.write("    }\n");
         }
-        writer.write("    subst = subst.unify(this." + field + ", "
-            + "((" + metadata.getName() + ") other)." + field + ");\n");
-        first = false;
+      }
+      // Fields holding identical references are skipped without calling Subst.unify.
+      for (LogicValueField field : metadata.getFields()) {
+        if (field.isPrimitive()) {
+          continue;
+        }
+        writer.write("    if (this." + field + " != __other__." + field + ") {\n");
+        writer.write("      subst = subst.unify(this." + field + ", __other__." + field + ");\n");
+        writer.write("      if (subst == null) {\n");
+        writer.write("        return null;\n");
+        writer.write("      }\n");
+        writer.write("    }\n");
       }
       writer.write("    return subst;\n");
       writer.write("  }\n");
@@ -118,11 +131,40 @@ public final class MakeLogicValueProcessor extends AnnotatedType.Processor {
           + ClassNames.REPLACER + " replacer) {\n");
       List<String> replaceInstantiateArgs = new ArrayList<>();
       for (LogicValueField field : metadata.getFields()) {
-        replaceInstantiateArgs.add("replacer.replace(" + field + ")");
+        replaceInstantiateArgs.add(
+            field.isPrimitive() ? field.getName() : "replacer.replace(" + field + ")");
       }
       writer.write("    return " + metadata.instantiation(replaceInstantiateArgs) + ";\n");
       writer.write("  }\n");
 
+      // Encodable methods: encodeFields, and the matching factory. Both handle the fields in
+      // declaration order, and Java evaluates constructor arguments left to right.
+      writer.write("  @Override public void encodeFields(" + ClassNames.FIELD_WRITER
+          + " writer) throws java.io.IOException {\n");
+      List<String> decodeInstantiateArgs = new ArrayList<>();
+      for (LogicValueField field : metadata.getFields()) {
+        if (field.isPrimitive()) {
+          writer.write("    writer.write" + field.dataMethodSuffix() + "(" + field + ");\n");
+          decodeInstantiateArgs.add("reader.read" + field.dataMethodSuffix() + "()");
+        } else {
+          writer.write("    writer.write(" + field + ");\n");
+          decodeInstantiateArgs.add("reader.read()");
+        }
+      }
+      writer.write("  }\n");
+      writer.write("\n");
+
+      writer.write("  static {\n");
+      writer.write("    " + ClassNames.TERM_DECODER + ".register(" + metadata.getName()
+          + ".class.getName(), new " + ClassNames.TERM_DECODER + ".Factory() {\n");
+      writer.write("      @Override public Object decode(" + ClassNames.FIELD_READER
+          + " reader) throws java.io.IOException {\n");
+      writer.write("        return " + metadata.instantiation(decodeInstantiateArgs) + ";\n");
+      writer.write("      }\n");
+      writer.write("    });\n");
+      writer.write("  }\n");
+      writer.write("\n");
+
       // Object method: equals
       writer.write("  @Override public boolean equals(Object o) {\n");
       writer.write("    if (o == null) return false;\n");
@@ -130,6 +172,13 @@ public final class MakeLogicValueProcessor extends AnnotatedType.Processor {
       writer.write("\n");
       writer.write("    " + metadata.getName() + " other = (" + metadata.getName() + ") o;\n");
       for (LogicValueField field : metadata.getFields()) {
+        if (field.isPrimitive()) {
+          writer.write("    if (" + field.primitiveNotEqualExpression("this", "other") + ") {\n");
+          writer.write("      return false;\n");
+          writer.write("    }\n");
+          writer.write("\n");
+          continue;
+        }
         writer.write("    if (this." + field + " == null) {\n");
         writer.write("      if (other." + field + " != null) return false;\n");
         writer.write("    } else if (!this." + field + ".equals(other." + field + ")) {\n");
@@ -145,6 +194,10 @@ public final class MakeLogicValueProcessor extends AnnotatedType.Processor {
       writer.write("    int code = 1;\n");
       for (LogicValueField field : metadata.getFields()) {
         writer.write("    code *= 31;\n");
+        if (field.isPrimitive()) {
+          writer.write("    code ^= " + field.primitiveHashCodeExpression("this") + ";\n");
+          continue;
+        }
         writer.write("    if (this." + field + " != null) {\n");
         writer.write("      code ^= this." + field + ".hashCode();\n");
         writer.write("    }\n");
@@ -157,7 +210,7 @@ public final class MakeLogicValueProcessor extends AnnotatedType.Processor {
         writer.write("  @Override public String toString() {\n");
         writer.write("    StringBuilder s = new StringBuilder(\""
             + metadata.getInterface().getSimpleName() + "(\");\n");
-        first = true;
+        boolean first = true;
         for (LogicValueField field : metadata.getFields()) {
           if (!first) {
             writer.write("    s.append(\", \");\n");
@@ -25,6 +25,8 @@ import gulava.annotation.MakePredicates;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.SupportedAnnotationTypes;
@@ -45,6 +47,24 @@ public final class MakePredicatesProcessor extends AnnotatedType.Processor {
           + " extends " + metadata.getAnnotatedType().getQualifiedName()
           + " {\n");
 
+      // Each predicate with mode-declared inputs gets an index into the array of unchecked
+      // instances. The unchecked instance for a predicate runs its clauses when it takes the
+      // faster code path, so that the recursive calls made by those clauses go straight to the
+      // faster code path rather than checking that their inputs are ground at every level.
+      List<Predicate> uncheckedPredicates = new ArrayList<>();
+      for (Predicate predicate : metadata.getPredicates()) {
+        ModeDeclaration modeDeclaration = predicate.getModeDeclaration();
+        if ((modeDeclaration != null) && !modeDeclaration.getInputNames().isEmpty()) {
+          uncheckedPredicates.add(predicate);
+        }
+      }
+      if (!uncheckedPredicates.isEmpty()) {
+        writer.write("\n");
+        writer.write("  private final " + metadata.getName() + " " + CHECKED + ";\n");
+        writer.write("  private final int " + UNCHECKED_INDEX + ";\n");
+        writer.write("  private final " + metadata.getName() + "[] " + UNCHECKED + ";\n");
+      }
+
       // Write constructors that delegate to accessible superclass constructors
       for (ExecutableElement constructor : metadata.getConstructors()) {
         Parameters parameters = Parameters.from(constructor);
@@ -52,7 +72,29 @@ public final class MakePredicatesProcessor extends AnnotatedType.Processor {
         writer.write("\n");
         writer.write("  " + metadata.getName() + "(" + parameters + ") {\n");
         writer.write("    super(" + parameters.getNames() + ");\n");
+        if (!uncheckedPredicates.isEmpty()) {
+          writer.write("    this." + CHECKED + " = this;\n");
+          writer.write("    this." + UNCHECKED_INDEX + " = -1;\n");
+          writer.write("    this." + UNCHECKED + " = new " + metadata.getName() + "[] {\n");
+          for (int i = 0; i < uncheckedPredicates.size(); i++) {
+            writer.write("        new " + metadata.getName() + "(this, " + i
+                + (parameters.getCount() == 0 ? "" : ", " + parameters.getNames()) + "),\n");
+          }
+          writer.write("    };\n");
+        }
         writer.write("  }\n");
+
+        if (!uncheckedPredicates.isEmpty()) {
+          writer.write("\n");
+          writer.write("  private " + metadata.getName() + "(" + metadata.getName() + " " + CHECKED
+              + ", int " + UNCHECKED_INDEX
+              + (parameters.getCount() == 0 ? "" : ", " + parameters) + ") {\n");
+          writer.write("    super(" + parameters.getNames() + ");\n");
+          writer.write("    this." + CHECKED + " = " + CHECKED + ";\n");
+          writer.write("    this." + UNCHECKED_INDEX + " = " + UNCHECKED_INDEX + ";\n");
+          writer.write("    this." + UNCHECKED + " = null;\n");
+          writer.write("  }\n");
+        }
       }
 
       for (Predicate predicate : metadata.getPredicates()) {
@@ -60,16 +102,30 @@ public final class MakePredicatesProcessor extends AnnotatedType.Processor {
         String inlineName = "__" + predicate.getName() + "Inline__";
         expressions.writeInlineMethod(
             writer, "private", inlineName, predicate.getClauses(), predicate.getParameters());
+        ModeDeclaration modeDeclaration = predicate.getModeDeclaration();
+        String firstSolutionName = "__" + predicate.getName() + "FirstSolution__";
+        if (modeDeclaration != null) {
+          expressions.writeFirstSolutionMethod(writer, "private", firstSolutionName,
+              predicate.getClauses(), predicate.getParameters());
+        }
         writer.write("\n");
         writer.write("  @java.lang.Override\n");
         writer.write("  public " + ClassNames.GOAL + " " + predicate.getName() + "("
             + predicate.getParameters() + ") {\n");
-        writer.write("    return new " + ClassNames.GOAL + "() {\n");
+        writer.write("    return " + ClassNames.PROFILER + ".wrap(\""
+            + metadata.getAnnotatedType().getQualifiedName() + "." + predicate.getName()
+            + "\", new " + ClassNames.GOAL + "() {\n");
         writer.write("      @java.lang.Override\n");
         writer.write("      public " + ClassNames.STREAM + " run("
             + ClassNames.SUBST + " __subst__) {\n");
-        writer.write("        return " + metadata.getName() + ".this." + inlineName + "("
-            + predicate.getParameters().getNames() + ").run(__subst__);\n");
+        String inlineCall = metadata.getName() + ".this." + inlineName + "("
+            + predicate.getParameters().getNames() + ").run(__subst__)";
+        if (modeDeclaration == null) {
+          writer.write("        return " + inlineCall + ";\n");
+        } else {
+          writeFirstSolutionRun(writer, metadata, modeDeclaration, firstSolutionName,
+              predicate.getParameters(), inlineCall, uncheckedPredicates.indexOf(predicate));
+        }
         writer.write("      }\n");
         writer.write("\n");
         writer.write("      @java.lang.Override\n");
@@ -77,11 +133,48 @@ public final class MakePredicatesProcessor extends AnnotatedType.Processor {
         writer.write("        return \"" + predicate.getName() + "(\" + "
             + predicate.getParameters().stringExpression() + " + \")\";\n");
         writer.write("      }\n");
-        writer.write("    };\n");
+        writer.write("    });\n");
         writer.write("  }\n");
       }
 
       writer.write("}\n");
     }
   }
+
+  private static final String CHECKED = "__checked__";
+  private static final String UNCHECKED_INDEX = "__uncheckedIndex__";
+  private static final String UNCHECKED = "__unchecked__";
+
+  /**
+   * Writes the body of a predicate's {@code run} method when the predicate has a determinism
+   * declaration. The body returns the result of the first-solution method when each {@code "in"}
+   * argument is ground, and otherwise falls back to {@code inlineCall}. The first-solution method
+   * is called on the unchecked instance at {@code uncheckedIndex}, and a call on that instance
+   * uses the first-solution method without checking its inputs. This way the recursive calls of
+   * the predicate are not checked, but calls to it from elsewhere are. If the predicate has no
+   * {@code "in"} parameters, the first-solution method is always used.
+   */
+  private static void writeFirstSolutionRun(Writer writer, MakePredicatesMetadata metadata,
+      ModeDeclaration modeDeclaration, String firstSolutionName, Parameters parameters,
+      String inlineCall, int uncheckedIndex) throws IOException {
+    String arguments = "(__subst__"
+        + (parameters.getCount() == 0 ? "" : ", " + parameters.getNames()) + ")";
+    if (modeDeclaration.getInputNames().isEmpty()) {
+      writer.write("        return " + metadata.getName() + ".this." + firstSolutionName
+          + arguments + ";\n");
+      return;
+    }
+
+    List<String> groundChecks = new ArrayList<>();
+    for (String inputName : modeDeclaration.getInputNames()) {
+      groundChecks.add("__subst__.isGround(" + inputName + ")");
+    }
+    String outer = metadata.getName() + ".this.";
+    writer.write("        if ((" + outer + UNCHECKED_INDEX + " == " + uncheckedIndex + ") || ("
+        + Processors.join(" && ", groundChecks) + ")) {\n");
+    writer.write("          return " + outer + CHECKED + "." + UNCHECKED + "[" + uncheckedIndex
+        + "]." + firstSolutionName + arguments + ";\n");
+    writer.write("        }\n");
+    writer.write("        return " + inlineCall + ";\n");
+  }
 }
@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.processor;
+
+import gulava.annotation.Det;
+import gulava.annotation.Mode;
+import gulava.annotation.Semidet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.ExecutableElement;
+import javax.tools.Diagnostic;
+
+/**
+ * The determinism and mode declared on a predicate method with @{@link Det}, @{@link Semidet} and
+ * @{@link Mode}. A predicate with such a declaration gets a generated code path which returns its
+ * first solution directly rather than running the {@code disj} of its clauses.
+ */
+public final class ModeDeclaration {
+  private final List<String> inputNames;
+
+  private ModeDeclaration(List<String> inputNames) {
+    this.inputNames = Collections.unmodifiableList(new ArrayList<>(inputNames));
+  }
+
+  /**
+   * The names of the parameters declared as {@code "in"}. These must be ground for the predicate to
+   * have at most one solution. This is empty if the predicate has no @{@link Mode} annotation.
+   */
+  public List<String> getInputNames() {
+    return inputNames;
+  }
+
+  /**
+   * Returns the declaration on the given predicate method. Returns {@code null} if the predicate
+   * has no determinism declaration, or if the declarations are invalid, in which case the errors
+   * are printed to {@code messager}.
+   */
+  public static ModeDeclaration of(ExecutableElement predicate, Messager messager) {
+    boolean det = predicate.getAnnotation(Det.class) != null;
+    boolean semidet = predicate.getAnnotation(Semidet.class) != null;
+    Mode mode = predicate.getAnnotation(Mode.class);
+
+    if (det && semidet) {
+      messager.printMessage(Diagnostic.Kind.ERROR,
+          "Predicate cannot be both @Det and @Semidet.", predicate);
+      return null;
+    }
+    if (!det && !semidet) {
+      if (mode != null) {
+        messager.printMessage(Diagnostic.Kind.ERROR,
+            "@Mode requires @Det or @Semidet on the same predicate.", predicate);
+      }
+      return null;
+    }
+
+    List<String> inputNames = new ArrayList<>();
+    if (mode != null) {
+      String[] modes = mode.value().split(",", -1);
+      if (modes.length != predicate.getParameters().size()) {
+        messager.printMessage(Diagnostic.Kind.ERROR,
+            "Expected " + predicate.getParameters().size() + " mode(s) in @Mode but found "
+            + modes.length + ": " + mode.value(),
+            predicate);
+        return null;
+      }
+      for (int i = 0; i < modes.length; i++) {
+        String parameterMode = modes[i].trim();
+        if (parameterMode.equals("in")) {
+          inputNames.add(predicate.getParameters().get(i).getSimpleName().toString());
+        } else if (!parameterMode.equals("out")) {
+          messager.printMessage(Diagnostic.Kind.ERROR,
+              "Expected 'in' or 'out' in @Mode but found: " + parameterMode, predicate);
+          return null;
+        }
+      }
+    }
+
+    return new ModeDeclaration(inputNames);
+  }
+}
@@ -36,10 +36,13 @@ import javax.lang.model.element.VariableElement;
 public final class Predicate {
   private final ExecutableElement method;
   private final List<ExecutableElement> clauses;
+  private final ModeDeclaration modeDeclaration;
 
-  public Predicate(ExecutableElement method, List<ExecutableElement> clauses) {
+  public Predicate(ExecutableElement method, List<ExecutableElement> clauses,
+      ModeDeclaration modeDeclaration) {
     this.method = method;
     this.clauses = Collections.unmodifiableList(new ArrayList<>(clauses));
+    this.modeDeclaration = modeDeclaration;
   }
 
   public ExecutableElement getMethod() {
@@ -64,4 +67,11 @@ public final class Predicate {
   public List<ExecutableElement> getClauses() {
     return clauses;
   }
+
+  /**
+   * The determinism and mode declared on the predicate method, or {@code null} if there is none.
+   */
+  public ModeDeclaration getModeDeclaration() {
+    return modeDeclaration;
+  }
 }
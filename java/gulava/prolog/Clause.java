@@ -0,0 +1,136 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.prolog;
+
+import gulava.Functor;
+import gulava.LogicValue;
+import gulava.Replacer;
+import gulava.Var;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fact or rule read by {@link Parser}. A fact is a clause whose body is {@code true}.
+ */
+public final class Clause {
+  private final Object head;
+  private final Object body;
+  private final Map<Var, Integer> variableIndexes = new HashMap<>();
+  private final String source;
+  private final int line;
+
+  Clause(Object head, Object body, List<Var> variables, String source, int line) {
+    this.head = head;
+    this.body = body;
+    for (Var variable : variables) {
+      variableIndexes.put(variable, variableIndexes.size());
+    }
+    this.source = source;
+    this.line = line;
+  }
+
+  /**
+   * The head of the clause, which is a {@link Functor} or, for a predicate with no arguments, a
+   * {@link String}.
+   */
+  public Object head() {
+    return head;
+  }
+
+  /**
+   * The body of the clause, which is made of {@link Functor}s and {@link String}s.
+   */
+  public Object body() {
+    return body;
+  }
+
+  /**
+   * The name of the predicate this clause belongs to.
+   */
+  public String name() {
+    return head instanceof Functor ? ((Functor) head).name() : (String) head;
+  }
+
+  /**
+   * The number of arguments of the predicate this clause belongs to.
+   */
+  public int arity() {
+    return head instanceof Functor ? ((Functor) head).arity() : 0;
+  }
+
+  /**
+   * The name of the source this clause was read from.
+   */
+  public String source() {
+    return source;
+  }
+
+  /**
+   * The line that this clause starts on.
+   */
+  public int line() {
+    return line;
+  }
+
+  /**
+   * Whether the clause has any variables, which is false for most facts. A clause without variables
+   * does not need to be renamed when it is used.
+   */
+  boolean hasVariables() {
+    return !variableIndexes.isEmpty();
+  }
+
+  /**
+   * Returns a replacer which renames the variables of this clause to fresh ones, so that each call
+   * of the predicate gets its own copy of the clause. The same replacer gives the same fresh
+   * variable for each occurrence of a variable, so it must be used for the head and the body.
+   */
+  Replacer renamer() {
+    final Var[] renamed = new Var[variableIndexes.size()];
+    return new Replacer() {
+      @Override
+      public Object replace(Object original) {
+        if (original instanceof Var) {
+          Integer index = variableIndexes.get(original);
+          if (index == null) {
+            return original;
+          }
+          if (renamed[index] == null) {
+            renamed[index] = new Var();
+          }
+          return renamed[index];
+        }
+        if (original instanceof LogicValue) {
+          return ((LogicValue) original).replace(this);
+        }
+        return original;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "true".equals(body) ? head + "." : head + " :- " + body + ".";
+  }
+}
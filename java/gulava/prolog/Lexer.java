@@ -0,0 +1,289 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.prolog;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits text into tokens, reading it in chunks so that files of any size can be parsed in a
+ * single pass. The current token is held in the fields of this object rather than in a token
+ * object, and {@link #next()} advances to the next one.
+ */
+final class Lexer {
+  enum Kind {
+    /** A name, quoted atom or run of symbol characters. {@link #text} holds the interned name. */
+    ATOM,
+    /** A variable name. {@link #text} holds the name. */
+    VAR,
+    /** An integer. {@link #value} holds an {@link Integer} or {@link Long}. */
+    INTEGER,
+    /** A double-quoted string. {@link #text} holds the contents. */
+    STRING,
+    /** One of {@code ( ) [ ] , |}. {@link #text} holds the character. */
+    PUNCT,
+    /** The period which ends a clause. */
+    END,
+    /** The end of the input. */
+    EOF,
+  }
+
+  private static final String SYMBOL_CHARS = "+-*/\\^<>=~:.?@#&$";
+
+  private final Reader reader;
+  private final String source;
+  private final char[] buffer = new char[8192];
+  private int position;
+  private int limit;
+  private boolean eof;
+
+  private int line = 1;
+  private int column = 1;
+  private final StringBuilder builder = new StringBuilder();
+
+  Kind kind;
+  String text;
+  Object value;
+  int tokenLine;
+  int tokenColumn;
+
+  /**
+   * Whether the current token is an atom immediately followed by an opening parenthesis, which
+   * makes it the name of a compound term.
+   */
+  boolean functional;
+
+  Lexer(Reader reader, String source) {
+    this.reader = reader;
+    this.source = source;
+  }
+
+  String source() {
+    return source;
+  }
+
+  SyntaxException error(String message) {
+    return new SyntaxException(source, tokenLine, tokenColumn, message);
+  }
+
+  /**
+   * Returns the character {@code offset} characters ahead of the current one, or -1 past the end of
+   * the input. {@code offset} must be 0 or 1.
+   */
+  private int peek(int offset) throws IOException {
+    while ((position + offset >= limit) && !eof) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+      int read = reader.read(buffer, limit, buffer.length - limit);
+      if (read < 0) {
+        eof = true;
+      } else {
+        limit += read;
+      }
+    }
+    return position + offset < limit ? buffer[position + offset] : -1;
+  }
+
+  private int read() throws IOException {
+    int c = peek(0);
+    if (c != -1) {
+      position++;
+      if (c == '\n') {
+        line++;
+        column = 1;
+      } else {
+        column++;
+      }
+    }
+    return c;
+  }
+
+  /**
+   * Advances to the next token.
+   */
+  void next() throws IOException {
+    // Cleared first so that if this throws, skipClause() does not mistake the previous token for
+    // the end of the bad clause.
+    kind = null;
+    skipWhitespaceAndComments();
+    tokenLine = line;
+    tokenColumn = column;
+    text = null;
+    value = null;
+    functional = false;
+
+    int c = peek(0);
+    if (c == -1) {
+      kind = Kind.EOF;
+    } else if ((c >= 'a') && (c <= 'z')) {
+      kind = Kind.ATOM;
+      text = readName();
+      functional = peek(0) == '(';
+    } else if (((c >= 'A') && (c <= 'Z')) || (c == '_')) {
+      kind = Kind.VAR;
+      text = readName();
+    } else if (isDigit(c) || ((c == '-') && isDigit(peek(1)))) {
+      kind = Kind.INTEGER;
+      value = readInteger();
+    } else if (c == '"') {
+      kind = Kind.STRING;
+      text = readQuoted();
+    } else if (c == '\'') {
+      kind = Kind.ATOM;
+      text = readQuoted();
+      functional = peek(0) == '(';
+    } else if ("()[],|".indexOf(c) != -1) {
+      kind = Kind.PUNCT;
+      text = String.valueOf((char) read());
+    } else if ((c == '.') && isEndFollower(peek(1))) {
+      kind = Kind.END;
+      read();
+    } else if ((c == '!') || (c == ';')) {
+      kind = Kind.ATOM;
+      text = String.valueOf((char) read()).intern();
+      functional = peek(0) == '(';
+    } else if (SYMBOL_CHARS.indexOf(c) != -1) {
+      kind = Kind.ATOM;
+      builder.setLength(0);
+      while ((SYMBOL_CHARS.indexOf(peek(0)) != -1)
+          && !((peek(0) == '.') && isEndFollower(peek(1)))) {
+        builder.append((char) read());
+      }
+      text = builder.toString().intern();
+      functional = peek(0) == '(';
+    } else {
+      read();
+      throw error("Unexpected character: '" + (char) c + "'");
+    }
+  }
+
+  /**
+   * Skips input up to and including the next end of clause, so that parsing can resume after an
+   * error. Characters that do not form valid tokens are skipped too. Every call of {@link #next()}
+   * that throws has consumed at least one character, so this always makes progress.
+   */
+  void skipClause() throws IOException {
+    while ((kind != Kind.END) && (kind != Kind.EOF)) {
+      try {
+        next();
+      } catch (SyntaxException e) {
+        // Skip the bad token and carry on.
+      }
+    }
+  }
+
+  private void skipWhitespaceAndComments() throws IOException {
+    while (true) {
+      int c = peek(0);
+      if (Character.isWhitespace(c)) {
+        read();
+      } else if (c == '%') {
+        while ((peek(0) != -1) && (peek(0) != '\n')) {
+          read();
+        }
+      } else if ((c == '/') && (peek(1) == '*')) {
+        int startLine = line;
+        int startColumn = column;
+        read();
+        read();
+        while (!((peek(0) == '*') && (peek(1) == '/'))) {
+          if (read() == -1) {
+            throw new SyntaxException(source, startLine, startColumn, "Unterminated comment");
+          }
+        }
+        read();
+        read();
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static boolean isDigit(int c) {
+    return (c >= '0') && (c <= '9');
+  }
+
+  private static boolean isEndFollower(int c) {
+    return (c == -1) || (c == '%') || Character.isWhitespace(c);
+  }
+
+  private String readName() throws IOException {
+    builder.setLength(0);
+    while (true) {
+      int c = peek(0);
+      if (!(Character.isLetterOrDigit(c) || (c == '_'))) {
+        return builder.toString().intern();
+      }
+      builder.append((char) read());
+    }
+  }
+
+  private Object readInteger() throws IOException {
+    builder.setLength(0);
+    builder.append((char) read());
+    while (isDigit(peek(0))) {
+      builder.append((char) read());
+    }
+    try {
+      long parsed = Long.parseLong(builder.toString());
+      if ((parsed >= Integer.MIN_VALUE) && (parsed <= Integer.MAX_VALUE)) {
+        return (int) parsed;
+      }
+      return parsed;
+    } catch (NumberFormatException e) {
+      throw error("Integer out of range: " + builder);
+    }
+  }
+
+  private String readQuoted() throws IOException {
+    int quote = read();
+    builder.setLength(0);
+    while (true) {
+      int c = read();
+      if ((c == -1) || (c == '\n')) {
+        throw error("Unterminated quoted text");
+      }
+      if (c == quote) {
+        return builder.toString().intern();
+      }
+      if (c == '\\') {
+        c = read();
+        switch (c) {
+          case 'n':
+            c = '\n';
+            break;
+          case 't':
+            c = '\t';
+            break;
+          case '\\':
+          case '\'':
+          case '"':
+            break;
+          default:
+            throw new SyntaxException(source, line, column - 1, "Unknown escape sequence");
+        }
+      }
+      builder.append((char) c);
+    }
+  }
+}
@@ -0,0 +1,338 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.prolog;
+
+import gulava.Cons;
+import gulava.Functor;
+import gulava.Var;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads clauses written in a subset of Prolog syntax, one at a time, so that a file of any size
+ * can be loaded in a single pass in time proportional to its length. The supported syntax is:
+ *
+ * <ul>
+ *   <li>Variables start with an uppercase letter or underscore. Each occurrence of {@code _} is a
+ *       distinct variable, and other names refer to the same variable within a clause.
+ *   <li>Atoms are names starting with a lowercase letter, runs of symbol characters such as
+ *       {@code =}, or text in single quotes. They are read as interned {@link String}s.
+ *   <li>Text in double quotes is read as a list of the {@link Integer} code points of its
+ *       characters, as in standard Prolog, so that it does not unify with the atom of the same
+ *       name.
+ *   <li>Integers are read as {@link Integer}, or as {@link Long} if they do not fit.
+ *   <li>Compound terms such as {@code point(X, 3)} are read as {@link Functor}s. The name must be
+ *       followed immediately by the opening parenthesis.
+ *   <li>Lists such as {@code [a, b | T]} are read as {@link Cons} cells, and {@code []} as
+ *       {@code null}.
+ *   <li>The operators {@code :-}, {@code ;}, {@code ,} and {@code =} have their usual precedence
+ *       and are read as functors named after them, e.g. {@code a, b} is {@code ','(a, b)}.
+ *   <li>Comments start with {@code %} and run to the end of the line, or are enclosed in
+ *       {@code /*} and <code>*&#47;</code>.
+ * </ul>
+ *
+ * <p>Each clause ends with a period followed by whitespace or the end of the input. When a clause
+ * has an error, {@link #nextClause()} throws a {@link SyntaxException} giving its line and column,
+ * and skips the rest of the clause, so the caller may report the error and carry on with the next
+ * one.
+ */
+public final class Parser {
+  private static final int MAX_PRECEDENCE = 1200;
+  private static final int ARGUMENT_PRECEDENCE = 999;
+
+  private final Lexer lexer;
+  private Map<String, Var> variables;
+  private List<Var> allVariables;
+
+  /**
+   * @param reader the text to parse
+   * @param source the name of the source of the text, such as a file name, for error messages
+   */
+  public Parser(Reader reader, String source) {
+    this.lexer = new Lexer(reader, source);
+  }
+
+  /**
+   * Returns the next clause, or {@code null} at the end of the input.
+   *
+   * @throws SyntaxException if the next clause is not valid. The rest of the clause is skipped.
+   * @throws IOException if the reader fails
+   */
+  public Clause nextClause() throws IOException {
+    try {
+      if (!startTerm()) {
+        return null;
+      }
+      int line = lexer.tokenLine;
+      int column = lexer.tokenColumn;
+      if ((lexer.kind == Lexer.Kind.ATOM) && lexer.text.equals(":-") && !lexer.functional) {
+        throw lexer.error("Directives are not supported");
+      }
+      Object term = readTerm(MAX_PRECEDENCE);
+      expectEnd();
+
+      Object head = term;
+      Object body = "true";
+      if ((term instanceof Functor) && ((Functor) term).name().equals(":-")) {
+        head = ((Functor) term).arg(0);
+        body = ((Functor) term).arg(1);
+      }
+      if (!isCallable(head)) {
+        throw new SyntaxException(lexer.source(), line, column, "Clause head is not callable: "
+            + head);
+      }
+      checkGoals(body, line, column);
+      return new Clause(head, body, allVariables, lexer.source(), line);
+    } catch (SyntaxException e) {
+      lexer.skipClause();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the next term, which must be the whole of the remaining input with an optional period at
+   * the end. This is used for queries. The variables in the term are available from
+   * {@link #variables()} afterwards.
+   */
+  Object readQuery() throws IOException {
+    if (!startTerm()) {
+      throw lexer.error("Expected a term");
+    }
+    int line = lexer.tokenLine;
+    int column = lexer.tokenColumn;
+    Object term = readTerm(MAX_PRECEDENCE);
+    if (lexer.kind == Lexer.Kind.END) {
+      lexer.next();
+    }
+    if (lexer.kind != Lexer.Kind.EOF) {
+      throw lexer.error("Unexpected text after query");
+    }
+    checkGoals(term, line, column);
+    return term;
+  }
+
+  /**
+   * The named variables of the last term read, in order of first appearance.
+   */
+  Map<String, Var> variables() {
+    return Collections.unmodifiableMap(variables);
+  }
+
+  /**
+   * Advances to the first token of a term and resets the variables, returning false at the end of
+   * the input.
+   */
+  private boolean startTerm() throws IOException {
+    variables = new LinkedHashMap<>();
+    allVariables = new ArrayList<>();
+    lexer.next();
+    return lexer.kind != Lexer.Kind.EOF;
+  }
+
+  private void expectEnd() throws IOException {
+    if (lexer.kind != Lexer.Kind.END) {
+      throw lexer.error("Expected an operator or the end of the clause");
+    }
+  }
+
+  private static boolean isCallable(Object term) {
+    return (term instanceof String) || (term instanceof Functor);
+  }
+
+  /**
+   * Checks that {@code body} is made of callable terms joined by {@code ,} and {@code ;}.
+   */
+  private void checkGoals(Object body, int line, int column) throws SyntaxException {
+    while (Program.isConjunctionOrDisjunction(body)) {
+      checkGoals(((Functor) body).arg(0), line, column);
+      body = ((Functor) body).arg(1);
+    }
+    if (!isCallable(body)) {
+      throw new SyntaxException(lexer.source(), line, column, "Goal is not callable: " + body);
+    }
+  }
+
+  /**
+   * Returns the precedence of the infix operator that is the current token, or 0 if it is not
+   * an infix operator.
+   */
+  private int infixPrecedence() {
+    if ((lexer.kind == Lexer.Kind.PUNCT) && lexer.text.equals(",")) {
+      return 1000;
+    }
+    if ((lexer.kind != Lexer.Kind.ATOM) || lexer.functional) {
+      return 0;
+    }
+    switch (lexer.text) {
+      case ":-":
+        return 1200;
+      case ";":
+        return 1100;
+      case "=":
+        return 700;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Reads a term whose operators have at most the given precedence, starting at the current token
+   * and leaving the token after the term current. {@code ,} and {@code ;} are right-associative,
+   * and {@code :-} and {@code =} are not associative.
+   */
+  private Object readTerm(int maxPrecedence) throws IOException {
+    Object left = readPrimary();
+    int leftPrecedence = 0;
+    while (true) {
+      int precedence = infixPrecedence();
+      if ((precedence == 0) || (precedence > maxPrecedence) || (leftPrecedence >= precedence)) {
+        return left;
+      }
+      String name = lexer.text.intern();
+      boolean rightAssociative = (precedence == 1000) || (precedence == 1100);
+      lexer.next();
+      Object right = readTerm(rightAssociative ? precedence : precedence - 1);
+      left = Functor.of(name, left, right);
+      leftPrecedence = precedence;
+    }
+  }
+
+  private static Object codePoints(String text) {
+    Object list = null;
+    for (int i = text.length(); i > 0; ) {
+      int codePoint = text.codePointBefore(i);
+      list = Cons.of(codePoint, list);
+      i -= Character.charCount(codePoint);
+    }
+    return list;
+  }
+
+  private Object readPrimary() throws IOException {
+    switch (lexer.kind) {
+      case VAR:
+        Object var = variable(lexer.text);
+        lexer.next();
+        return var;
+      case INTEGER:
+        Object integer = lexer.value;
+        lexer.next();
+        return integer;
+      case STRING:
+        Object codes = codePoints(lexer.text);
+        lexer.next();
+        return codes;
+      case ATOM:
+        String name = lexer.text;
+        boolean functional = lexer.functional;
+        lexer.next();
+        return functional ? readArguments(name) : name;
+      case PUNCT:
+        if (lexer.text.equals("(")) {
+          lexer.next();
+          Object term = readTerm(MAX_PRECEDENCE);
+          expectPunct(")");
+          return term;
+        }
+        if (lexer.text.equals("[")) {
+          lexer.next();
+          return readList();
+        }
+        throw lexer.error("Unexpected '" + lexer.text + "'");
+      case END:
+        throw lexer.error("Unexpected end of clause");
+      case EOF:
+        throw lexer.error("Unexpected end of input");
+      default:
+        throw new IllegalStateException("unexpected kind: " + lexer.kind);
+    }
+  }
+
+  /**
+   * Reads the arguments of a compound term, starting at the opening parenthesis.
+   */
+  private Functor readArguments(String name) throws IOException {
+    lexer.next();
+    List<Object> args = new ArrayList<>();
+    args.add(readTerm(ARGUMENT_PRECEDENCE));
+    while (isPunct(",")) {
+      lexer.next();
+      args.add(readTerm(ARGUMENT_PRECEDENCE));
+    }
+    expectPunct(")");
+    return Functor.of(name, args.toArray());
+  }
+
+  /**
+   * Reads the elements and tail of a list, starting after the opening bracket.
+   */
+  private Object readList() throws IOException {
+    if (isPunct("]")) {
+      lexer.next();
+      return null;
+    }
+    List<Object> elements = new ArrayList<>();
+    elements.add(readTerm(ARGUMENT_PRECEDENCE));
+    while (isPunct(",")) {
+      lexer.next();
+      elements.add(readTerm(ARGUMENT_PRECEDENCE));
+    }
+    Object tail = null;
+    if (isPunct("|")) {
+      lexer.next();
+      tail = readTerm(ARGUMENT_PRECEDENCE);
+    }
+    expectPunct("]");
+    for (int i = elements.size() - 1; i >= 0; i--) {
+      tail = Cons.of(elements.get(i), tail);
+    }
+    return tail;
+  }
+
+  private boolean isPunct(String text) {
+    return (lexer.kind == Lexer.Kind.PUNCT) && lexer.text.equals(text);
+  }
+
+  private void expectPunct(String text) throws IOException {
+    if (!isPunct(text)) {
+      throw lexer.error("Expected '" + text + "'");
+    }
+    lexer.next();
+  }
+
+  private Var variable(String name) {
+    Var var = name.equals("_") ? null : variables.get(name);
+    if (var == null) {
+      var = new Var();
+      allVariables.add(var);
+      if (!name.equals("_")) {
+        variables.put(name, var);
+      }
+    }
+    return var;
+  }
+}
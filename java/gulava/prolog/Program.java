@@ -0,0 +1,538 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.prolog;
+
+import static gulava.Goals.FAIL;
+import static gulava.Goals.UNIT;
+import static gulava.Goals.conj;
+import static gulava.Goals.disj;
+import static gulava.Goals.same;
+
+import gulava.Cons;
+import gulava.DelayedGoal;
+import gulava.Functor;
+import gulava.Goal;
+import gulava.LogicValue;
+import gulava.Replacer;
+import gulava.Stream;
+import gulava.Streams;
+import gulava.Subst;
+import gulava.Var;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A set of clauses, grouped into predicates by name and arity, which can be called as goals. This
+ * allows rules and facts to be loaded at run time rather than written as Java.
+ *
+ * <p>Calling a predicate tries each of its clauses, in the same way as a {@link gulava.DisjGoal}:
+ * each clause is renamed to fresh variables, its head is unified with the call, and its body is
+ * run in a {@link DelayedGoal} so that recursive predicates do not overflow the stack. Bodies may
+ * use {@code ,} for conjunction, {@code ;} for disjunction, {@code =} for unification, and
+ * {@code true}, {@code fail} and {@code false}, and may call any predicate in the program. The
+ * search is that of the rest of this library, so the order of the answers is not the same as in
+ * Prolog, and left-recursive rules still find their answers.
+ *
+ * <p>The bodies of the clauses are compiled once, when the program is built, and clauses are
+ * indexed on their first argument. A clause is only renamed and unified with a call if the atom,
+ * number or functor name and arity of each of its head arguments can match the call. So a call
+ * whose first argument is bound, such as a lookup in a large table of facts, only touches the
+ * clauses which can match it.
+ */
+public final class Program {
+  /**
+   * Stands for a variable in the result of {@link #indexKey}, and matches every other key.
+   */
+  private static final Object ANY = new Object();
+
+  private final Map<String, Predicate> predicates = new HashMap<>();
+
+  private Program(Map<String, List<Clause>> clauses) {
+    for (Map.Entry<String, List<Clause>> entry : clauses.entrySet()) {
+      predicates.put(entry.getKey(), new Predicate(entry.getValue()));
+    }
+  }
+
+  public static final class Builder {
+    private final Map<String, List<Clause>> predicates = new HashMap<>();
+
+    public Builder add(Clause clause) {
+      String key = key(clause.name(), clause.arity());
+      List<Clause> clauses = predicates.get(key);
+      if (clauses == null) {
+        clauses = new ArrayList<>();
+        predicates.put(key, clauses);
+      }
+      clauses.add(clause);
+      return this;
+    }
+
+    /**
+     * Adds every clause in {@code reader}. Clauses with syntax errors are skipped, and the rest are
+     * still added. Afterwards, if there were any errors, the first one is thrown, with the others
+     * added to it as suppressed exceptions.
+     *
+     * @param source the name of the source, such as a file name, to use in error messages
+     */
+    public Builder load(Reader reader, String source) throws IOException {
+      Parser parser = new Parser(reader, source);
+      SyntaxException firstError = null;
+      while (true) {
+        Clause clause;
+        try {
+          clause = parser.nextClause();
+        } catch (SyntaxException e) {
+          if (firstError == null) {
+            firstError = e;
+          } else {
+            firstError.addSuppressed(e);
+          }
+          continue;
+        }
+        if (clause == null) {
+          break;
+        }
+        add(clause);
+      }
+      if (firstError != null) {
+        throw firstError;
+      }
+      return this;
+    }
+
+    /**
+     * Returns the program.
+     *
+     * @throws IllegalStateException if the body of a clause calls a predicate that is not defined
+     */
+    public Program build() {
+      Map<String, List<Clause>> copy = new HashMap<>();
+      for (Map.Entry<String, List<Clause>> entry : predicates.entrySet()) {
+        copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+      }
+      Program program = new Program(copy);
+      for (List<Clause> clauses : copy.values()) {
+        for (Clause clause : clauses) {
+          String undefined = program.undefinedCall(clause.body());
+          if (undefined != null) {
+            throw new IllegalStateException(clause.source() + ":" + clause.line()
+                + ": Unknown predicate " + undefined);
+          }
+        }
+      }
+      for (Predicate predicate : program.predicates.values()) {
+        predicate.compile();
+      }
+      return program;
+    }
+  }
+
+  /**
+   * Returns the clauses of the given predicate in the order they were added, or an empty list if
+   * there is no such predicate.
+   */
+  public List<Clause> clauses(String name, int arity) {
+    Predicate predicate = predicates.get(key(name, arity));
+    return predicate == null ? Collections.<Clause>emptyList() : predicate.clauses;
+  }
+
+  /**
+   * Returns a goal which calls the given predicate with the given arguments.
+   *
+   * @throws IllegalArgumentException if there is no such predicate
+   */
+  public Goal goal(String name, Object... args) {
+    Object term = args.length == 0 ? name : Functor.of(name, args);
+    Predicate predicate = predicates.get(key(name, args.length));
+    if (predicate == null) {
+      throw new IllegalArgumentException("Unknown predicate: " + term);
+    }
+    return predicate.call(term);
+  }
+
+  /**
+   * Parses a goal, such as {@code "ancestor(X, bob), X = alice"}, which may use anything that the
+   * body of a clause can. A period at the end is optional.
+   *
+   * @throws SyntaxException if the text is not a valid goal
+   * @throws IllegalArgumentException if the goal calls a predicate that is not defined
+   */
+  public Query query(String text) throws SyntaxException {
+    Parser parser = new Parser(new StringReader(text), "query");
+    Object term;
+    try {
+      term = parser.readQuery();
+    } catch (SyntaxException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new IllegalStateException("StringReader failed", e);
+    }
+    String undefined = undefinedCall(term);
+    if (undefined != null) {
+      throw new IllegalArgumentException("Unknown predicate " + undefined);
+    }
+    return new Query(compile(term).goal(null), parser.variables());
+  }
+
+  static boolean isConjunctionOrDisjunction(Object term) {
+    if (!(term instanceof Functor) || (((Functor) term).arity() != 2)) {
+      return false;
+    }
+    String name = ((Functor) term).name();
+    return name.equals(",") || name.equals(";");
+  }
+
+  private static String key(String name, int arity) {
+    return name + "/" + arity;
+  }
+
+  private static String key(Object goal) {
+    return goal instanceof Functor
+        ? key(((Functor) goal).name(), ((Functor) goal).arity())
+        : key((String) goal, 0);
+  }
+
+  private static boolean isBuiltIn(Object goal) {
+    if (goal instanceof Functor) {
+      Functor functor = (Functor) goal;
+      return (functor.arity() == 2) && functor.name().equals("=");
+    }
+    return goal.equals("true") || goal.equals("fail") || goal.equals("false");
+  }
+
+  /**
+   * Returns the name and arity of the first predicate that {@code body} calls which is not
+   * defined, or {@code null} if they are all defined.
+   */
+  private String undefinedCall(Object body) {
+    while (isConjunctionOrDisjunction(body)) {
+      String undefined = undefinedCall(((Functor) body).arg(0));
+      if (undefined != null) {
+        return undefined;
+      }
+      body = ((Functor) body).arg(1);
+    }
+    if (isBuiltIn(body)) {
+      return null;
+    }
+    String key = key(body);
+    return predicates.containsKey(key) ? null : key;
+  }
+
+  /**
+   * Returns what a term must match to unify with {@code value}, which has already been walked:
+   * {@link #ANY} for a variable, the name and arity of a functor, the class of a list or other
+   * logic value, or else the value itself.
+   */
+  private static Object indexKey(Object value) {
+    if (value instanceof Var) {
+      return ANY;
+    }
+    if (value instanceof Functor) {
+      Functor functor = (Functor) value;
+      return new AbstractMap.SimpleImmutableEntry<>(functor.name(), functor.arity());
+    }
+    if (value instanceof Cons) {
+      return Cons.class;
+    }
+    if (value instanceof LogicValue) {
+      return value.getClass();
+    }
+    return value;
+  }
+
+  private static Object rename(Replacer renamer, Object term) {
+    return renamer == null ? term : renamer.replace(term);
+  }
+
+  /**
+   * Makes the goal for the body of a clause, or of a query, once the clause has been renamed.
+   */
+  private interface Template {
+    /**
+     * @param renamer the renamer of the clause, or {@code null} if it does not need renaming
+     */
+    Goal goal(Replacer renamer);
+  }
+
+  private static Template constant(final Goal goal) {
+    return new Template() {
+      @Override
+      public Goal goal(Replacer renamer) {
+        return goal;
+      }
+    };
+  }
+
+  /**
+   * Compiles the body of a clause to a template, looking up the predicates it calls once rather
+   * than each time the clause is used.
+   */
+  private Template compile(Object body) {
+    if (body instanceof Functor) {
+      final Functor functor = (Functor) body;
+      if (functor.arity() == 2) {
+        switch (functor.name()) {
+          case ",": {
+            final Template left = compile(functor.arg(0));
+            final Template right = compile(functor.arg(1));
+            return new Template() {
+              @Override
+              public Goal goal(Replacer renamer) {
+                return conj(left.goal(renamer), right.goal(renamer));
+              }
+            };
+          }
+          case ";": {
+            final Template left = compile(functor.arg(0));
+            final Template right = compile(functor.arg(1));
+            return new Template() {
+              @Override
+              public Goal goal(Replacer renamer) {
+                return disj(left.goal(renamer), right.goal(renamer));
+              }
+            };
+          }
+          case "=":
+            return new Template() {
+              @Override
+              public Goal goal(Replacer renamer) {
+                return same(rename(renamer, functor.arg(0)), rename(renamer, functor.arg(1)));
+              }
+            };
+          default:
+            break;
+        }
+      }
+    } else if (body.equals("true")) {
+      return constant(UNIT);
+    } else if (body.equals("fail") || body.equals("false")) {
+      return constant(FAIL);
+    }
+    final Object call = body;
+    final Predicate predicate = predicates.get(key(call));
+    return new Template() {
+      @Override
+      public Goal goal(Replacer renamer) {
+        return predicate.call(rename(renamer, call));
+      }
+    };
+  }
+
+  /**
+   * A clause whose body has been compiled.
+   */
+  private final class CompiledClause {
+    final Clause clause;
+
+    /**
+     * The {@link #indexKey} of each argument of the head.
+     */
+    final Object[] headKeys;
+
+    /**
+     * The body, or {@code null} for a fact.
+     */
+    final Template body;
+
+    /**
+     * The goal of the body if the clause has no variables, so that it is the same every time.
+     */
+    final Goal fixedBody;
+
+    CompiledClause(Clause clause) {
+      this.clause = clause;
+      Object head = clause.head();
+      headKeys = new Object[clause.arity()];
+      for (int i = 0; i < headKeys.length; i++) {
+        headKeys[i] = indexKey(((Functor) head).arg(i));
+      }
+      body = "true".equals(clause.body()) ? null : compile(clause.body());
+      fixedBody = (body == null) || clause.hasVariables() ? null : body.goal(null);
+    }
+
+    /**
+     * Returns whether the head of this clause might unify with a call whose arguments have the
+     * given keys.
+     */
+    boolean mightMatch(Object[] callKeys) {
+      for (int i = 0; i < callKeys.length; i++) {
+        Object headKey = headKeys[i];
+        if ((headKey != ANY) && (callKeys[i] != ANY) && !Objects.equals(headKey, callKeys[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    Stream run(Object term, Subst s) {
+      Replacer renamer = clause.hasVariables() ? clause.renamer() : null;
+      s = s.unify(rename(renamer, clause.head()), term);
+      if (s == null) {
+        return Streams.EMPTY;
+      }
+      if (body == null) {
+        return s;
+      }
+      return new DelayedGoal(renamer == null ? fixedBody : body.goal(renamer)).run(s);
+    }
+  }
+
+  /**
+   * The clauses of one predicate, with an index on their first argument.
+   */
+  private final class Predicate {
+    final List<Clause> clauses;
+    final int arity;
+    CompiledClause[] compiled;
+
+    /**
+     * The indexes of the clauses in order, for a call whose first argument is a variable.
+     */
+    int[] all;
+
+    /**
+     * The indexes of the clauses whose first argument is a variable, in order.
+     */
+    int[] anyFirstArg;
+
+    /**
+     * The indexes of the other clauses, in order, by the {@link #indexKey} of their first argument.
+     */
+    final Map<Object, int[]> byFirstArg = new HashMap<>();
+
+    Predicate(List<Clause> clauses) {
+      this.clauses = clauses;
+      this.arity = clauses.get(0).arity();
+    }
+
+    /**
+     * Compiles the clauses. This is done once every predicate of the program exists, since the
+     * body of a clause may call any of them.
+     */
+    void compile() {
+      compiled = new CompiledClause[clauses.size()];
+      all = new int[compiled.length];
+      Map<Object, List<Integer>> keyed = new HashMap<>();
+      List<Integer> any = new ArrayList<>();
+      for (int i = 0; i < compiled.length; i++) {
+        compiled[i] = new CompiledClause(clauses.get(i));
+        all[i] = i;
+        if (arity == 0) {
+          continue;
+        }
+        Object key = compiled[i].headKeys[0];
+        if (key == ANY) {
+          any.add(i);
+        } else {
+          List<Integer> indexes = keyed.get(key);
+          if (indexes == null) {
+            indexes = new ArrayList<>();
+            keyed.put(key, indexes);
+          }
+          indexes.add(i);
+        }
+      }
+      anyFirstArg = toArray(any);
+      for (Map.Entry<Object, List<Integer>> entry : keyed.entrySet()) {
+        byFirstArg.put(entry.getKey(), toArray(entry.getValue()));
+      }
+    }
+
+    /**
+     * Returns the indexes of the clauses, in order, whose first argument may match the given key.
+     */
+    int[] candidates(Object firstKey) {
+      if (firstKey == ANY) {
+        return all;
+      }
+      int[] keyed = byFirstArg.get(firstKey);
+      if (keyed == null) {
+        return anyFirstArg;
+      }
+      if (anyFirstArg.length == 0) {
+        return keyed;
+      }
+      int[] merged = new int[keyed.length + anyFirstArg.length];
+      int k = 0;
+      int a = 0;
+      for (int m = 0; m < merged.length; m++) {
+        if ((a == anyFirstArg.length) || ((k < keyed.length) && (keyed[k] < anyFirstArg[a]))) {
+          merged[m] = keyed[k++];
+        } else {
+          merged[m] = anyFirstArg[a++];
+        }
+      }
+      return merged;
+    }
+
+    /**
+     * Returns a goal which unifies {@code term} with the head of each clause which may match it,
+     * and runs the body of each clause whose head does.
+     */
+    Goal call(final Object term) {
+      return new Goal() {
+        @Override
+        public Stream run(Subst s) {
+          Object[] callKeys = new Object[arity];
+          for (int i = 0; i < callKeys.length; i++) {
+            callKeys[i] = indexKey(s.walk(((Functor) term).arg(i)));
+          }
+          int[] candidates = arity == 0 ? all : candidates(callKeys[0]);
+          List<Stream> streams = new ArrayList<>();
+          for (int index : candidates) {
+            CompiledClause clause = compiled[index];
+            if (clause.mightMatch(callKeys)) {
+              Stream stream = clause.run(term, s);
+              if (stream != Streams.EMPTY) {
+                streams.add(stream);
+              }
+            }
+          }
+          return Streams.merge(streams.toArray(new Stream[streams.size()]));
+        }
+
+        @Override
+        public String toString() {
+          return String.valueOf(term);
+        }
+      };
+    }
+  }
+
+  private static int[] toArray(List<Integer> values) {
+    int[] array = new int[values.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = values.get(i);
+    }
+    return array;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.prolog;
+
+import gulava.Goal;
+import gulava.Var;
+
+import java.util.Map;
+
+/**
+ * A goal parsed from text by {@link Program#query(String)}, along with the variables named in it.
+ */
+public final class Query {
+  private final Goal goal;
+  private final Map<String, Var> variables;
+
+  Query(Goal goal, Map<String, Var> variables) {
+    this.goal = goal;
+    this.variables = variables;
+  }
+
+  public Goal goal() {
+    return goal;
+  }
+
+  /**
+   * The variables named in the query, in order of first appearance. Anonymous variables, written
+   * as {@code _}, are not included.
+   */
+  public Map<String, Var> variables() {
+    return variables;
+  }
+
+  /**
+   * Returns the variable with the given name.
+   *
+   * @throws IllegalArgumentException if the query has no variable with that name
+   */
+  public Var variable(String name) {
+    Var var = variables.get(name);
+    if (var == null) {
+      throw new IllegalArgumentException("No variable named " + name + " in query");
+    }
+    return var;
+  }
+}
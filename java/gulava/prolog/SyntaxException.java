@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.prolog;
+
+import java.io.IOException;
+
+/**
+ * Thrown when text being parsed is not valid. The message starts with the source name, line and
+ * column, in the form {@code source:line:column: message}.
+ */
+public final class SyntaxException extends IOException {
+  private final String source;
+  private final int line;
+  private final int column;
+
+  public SyntaxException(String source, int line, int column, String message) {
+    super(source + ":" + line + ":" + column + ": " + message);
+    this.source = source;
+    this.line = line;
+    this.column = column;
+  }
+
+  /**
+   * The name of the source being parsed, as passed to
+   * {@link Parser#Parser(java.io.Reader, String)}.
+   */
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * The one-based line of the error.
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * The one-based column of the error.
+   */
+  public int getColumn() {
+    return column;
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.trace;
+
+import gulava.Profiler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the goal runs reported by a {@link Profiler} to an append-only binary log file, which
+ * {@link TraceReader} reads. The file is written through memory-mapped regions, so recording an
+ * event is a few stores into memory, and the operating system writes the pages out in the
+ * background.
+ *
+ * <p>Only one in every {@code samplingInterval} goal runs is traced, although every calling
+ * context is recorded so that the paths of sampled runs are complete. Recursive runs are recorded
+ * in the context that the profiler collapses them into, so the number of contexts does not grow
+ * with the depth of recursion. They have their own record, since they never exit. The log is not
+ * thread-safe, like the profiler which reports to it.
+ *
+ * <p>The file starts with a header of the magic number {@code "GTRC"}, the format version and the
+ * sampling interval, as big-endian 32-bit integers. Each record after it is a tag byte followed by
+ * unsigned LEB128 variable-length integers:
+ * <ul>
+ *   <li>{@link #CONTEXT}: context, parent context, length of name, then the name in UTF-8
+ *   <li>{@link #ENTER}: context
+ *   <li>{@link #ANSWER}: context
+ *   <li>{@link #EXIT}: context, number of answers
+ *   <li>{@link #RECURSE}: context
+ * </ul>
+ *
+ * <p>A zero byte where a tag is expected ends the log. The file grows a region at a time and is
+ * only truncated to the bytes written when the log is closed, so this is where a log which was
+ * never closed, e.g. because the process crashed, ends.
+ */
+public final class TraceLog implements Profiler.TraceListener, Closeable {
+  static final int MAGIC = 0x47545243;
+  static final int VERSION = 2;
+  static final int HEADER_SIZE = 12;
+
+  static final byte END = 0;
+  static final byte CONTEXT = 1;
+  static final byte ENTER = 2;
+  static final byte ANSWER = 3;
+  static final byte EXIT = 4;
+  static final byte RECURSE = 5;
+
+  private static final int DEFAULT_REGION_SIZE = 1 << 20;
+
+  /**
+   * The most bytes a record needs, not counting the name of a context.
+   */
+  private static final int MAX_RECORD_SIZE = 1 + 5 * 3 + 10;
+
+  private final FileChannel channel;
+  private final int samplingInterval;
+  private final int regionSize;
+  private MappedByteBuffer region;
+  private long regionStart;
+  private long closedSize = -1;
+  private int untilSample;
+
+  private TraceLog(FileChannel channel, int samplingInterval, int regionSize) throws IOException {
+    this.channel = channel;
+    this.samplingInterval = samplingInterval;
+    this.regionSize = regionSize;
+    this.untilSample = 1;
+    map(0, Math.max(regionSize, HEADER_SIZE));
+    region.putInt(MAGIC);
+    region.putInt(VERSION);
+    region.putInt(samplingInterval);
+  }
+
+  /**
+   * Creates a log at {@code file}, replacing any existing file, which traces one in every
+   * {@code samplingInterval} goal runs. Pass the log to
+   * {@link Profiler#start(Profiler.TraceListener)} to record the goals created after that.
+   */
+  public static TraceLog create(Path file, int samplingInterval) throws IOException {
+    return create(file, samplingInterval, DEFAULT_REGION_SIZE);
+  }
+
+  /**
+   * Creates a log which maps regions of {@code regionSize} bytes at a time. Small regions are only
+   * useful for testing.
+   */
+  static TraceLog create(Path file, int samplingInterval, int regionSize) throws IOException {
+    if (samplingInterval < 1) {
+      throw new IllegalArgumentException("Sampling interval must be positive: " + samplingInterval);
+    }
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      return new TraceLog(channel, samplingInterval, regionSize);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void map(long start, int size) throws IOException {
+    region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+    regionStart = start;
+  }
+
+  /**
+   * Makes sure the current region has room for {@code size} more bytes, mapping a new region
+   * which starts at the end of the log if it does not.
+   */
+  private void reserve(int size) {
+    if (region.remaining() >= size) {
+      return;
+    }
+    try {
+      map(regionStart + region.position(), Math.max(regionSize, size));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void putVarint(long value) {
+    while ((value & ~0x7fL) != 0) {
+      region.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    region.put((byte) value);
+  }
+
+  @Override
+  public void contextCreated(int context, int parentContext, String name) {
+    byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+    reserve(MAX_RECORD_SIZE + nameBytes.length);
+    region.put(CONTEXT);
+    putVarint(context);
+    putVarint(parentContext);
+    putVarint(nameBytes.length);
+    region.put(nameBytes);
+  }
+
+  @Override
+  public boolean entered(int context, boolean recursive) {
+    if (--untilSample > 0) {
+      return false;
+    }
+    untilSample = samplingInterval;
+    reserve(MAX_RECORD_SIZE);
+    region.put(recursive ? RECURSE : ENTER);
+    putVarint(context);
+    return true;
+  }
+
+  @Override
+  public void answered(int context) {
+    reserve(MAX_RECORD_SIZE);
+    region.put(ANSWER);
+    putVarint(context);
+  }
+
+  @Override
+  public void exited(int context, long answers) {
+    reserve(MAX_RECORD_SIZE);
+    region.put(EXIT);
+    putVarint(context);
+    putVarint(answers);
+  }
+
+  /**
+   * Returns the number of bytes written to the log so far.
+   */
+  public long size() {
+    return (region == null) ? closedSize : regionStart + region.position();
+  }
+
+  /**
+   * Truncates the file to the bytes written and closes it. The profiler which reports to this log
+   * should be stopped first, and streams which are still being realized must not report to it
+   * afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    if (region == null) {
+      return;
+    }
+    closedSize = size();
+    region.force();
+    region = null;
+    try {
+      channel.truncate(closedSize);
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,397 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.trace;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a log written by {@link TraceLog} and reconstructs statistics for each predicate and for
+ * each path of goals, e.g. to find which clauses of an interpreter are expanded most often. The
+ * counts are those of the sampled runs; multiply them by {@link #samplingInterval()} to estimate
+ * the totals.
+ *
+ * <p>Run the {@code trace_report} binary with the path of a log to print a report.
+ */
+public final class TraceReader {
+  /**
+   * The counts of the sampled runs of a predicate, or of the goal at the end of a path.
+   */
+  public static final class Stats {
+    private final Stats parentPath;
+    private final String lastName;
+    private String name;
+    private long calls;
+    private long recursiveCalls;
+    private long answers;
+    private long exits;
+    private long failures;
+
+    /**
+     * @param parentPath the path without its last goal, or {@code null} for a predicate or for a
+     *     path with a single goal
+     * @param lastName the name of the predicate, or of the last goal on the path
+     */
+    private Stats(Stats parentPath, String lastName) {
+      this.parentPath = parentPath;
+      this.lastName = lastName;
+    }
+
+    /**
+     * The name of the predicate, or the names of the goals on the path separated by semicolons.
+     */
+    public String name() {
+      if (name == null) {
+        List<String> names = new ArrayList<>();
+        for (Stats path = this; path != null; path = path.parentPath) {
+          names.add(path.lastName);
+        }
+        Collections.reverse(names);
+        StringBuilder builder = new StringBuilder();
+        for (String pathName : names) {
+          if (builder.length() > 0) {
+            builder.append(';');
+          }
+          builder.append(pathName);
+        }
+        name = builder.toString();
+      }
+      return name;
+    }
+
+    /**
+     * The number of runs, including recursive runs.
+     */
+    public long calls() {
+      return calls;
+    }
+
+    /**
+     * The number of recursive runs, whose answers are counted as those of the runs enclosing them.
+     * They never exit, so every other run either exited or was abandoned.
+     */
+    public long recursiveCalls() {
+      return recursiveCalls;
+    }
+
+    public long answers() {
+      return answers;
+    }
+
+    /**
+     * The number of runs whose streams ended, including those which failed.
+     */
+    public long exits() {
+      return exits;
+    }
+
+    /**
+     * The number of runs whose streams ended without producing any answer.
+     */
+    public long failures() {
+      return failures;
+    }
+  }
+
+  /**
+   * A calling context as recorded in the log. The path of the context refers to the path of its
+   * parent, so reading a context takes constant time however deep it is.
+   */
+  private static final class Context {
+    final Stats predicate;
+    final Stats path;
+
+    Context(Stats predicate, Stats path) {
+      this.predicate = predicate;
+      this.path = path;
+    }
+  }
+
+  private static final Comparator<Stats> BY_CALLS = new Comparator<Stats>() {
+    @Override
+    public int compare(Stats s1, Stats s2) {
+      int byCalls = Long.compare(s2.calls, s1.calls);
+      return (byCalls != 0) ? byCalls : s1.name().compareTo(s2.name());
+    }
+  };
+
+  /**
+   * The size of the regions of a file which are mapped at a time. Each region after the first
+   * starts at the first record which did not fit in the one before it.
+   */
+  private static final int DEFAULT_REGION_SIZE = 1 << 30;
+
+  private final int samplingInterval;
+  private final Map<String, Stats> predicates = new HashMap<>();
+  private final List<Stats> paths = new ArrayList<>();
+  private final Map<Integer, Context> contexts = new HashMap<>();
+
+  private TraceReader(int samplingInterval) {
+    this.samplingInterval = samplingInterval;
+  }
+
+  /**
+   * Reads the log at {@code file}. Throws {@link IllegalArgumentException} if it is not a valid
+   * log.
+   */
+  public static TraceReader read(Path file) throws IOException {
+    return read(file, DEFAULT_REGION_SIZE);
+  }
+
+  /**
+   * Reads the log at {@code file}, mapping {@code regionSize} bytes at a time. Small regions are
+   * only useful for testing.
+   */
+  static TraceReader read(Path file, int regionSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long regionStart = 0;
+      ByteBuffer region =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, regionSize));
+      TraceReader reader = readHeader(region);
+      while (!reader.readRecords(region, regionStart, regionStart + region.limit() == size)) {
+        if (region.position() == 0) {
+          throw new IllegalArgumentException(String.format(
+              "Record at offset %d is larger than a region of %d bytes", regionStart, regionSize));
+        }
+        regionStart += region.position();
+        region = channel.map(
+            FileChannel.MapMode.READ_ONLY, regionStart, Math.min(size - regionStart, regionSize));
+      }
+      return reader;
+    }
+  }
+
+  /**
+   * Reads a log from the remaining bytes of {@code log}.
+   */
+  public static TraceReader read(ByteBuffer log) {
+    TraceReader reader = readHeader(log);
+    reader.readRecords(log, 0, true);
+    return reader;
+  }
+
+  private static TraceReader readHeader(ByteBuffer log) {
+    if ((log.remaining() < TraceLog.HEADER_SIZE) || (log.getInt() != TraceLog.MAGIC)) {
+      throw new IllegalArgumentException("Not a trace log");
+    }
+    int version = log.getInt();
+    if (version != TraceLog.VERSION) {
+      throw new IllegalArgumentException("Unsupported trace log version: " + version);
+    }
+    return new TraceReader(log.getInt());
+  }
+
+  /**
+   * Reads the records in {@code log}, which starts at offset {@code logStart} of the whole log.
+   * Returns {@code true} if the log has ended. Otherwise the last record is cut off at the end of
+   * {@code log}, whose position is left at the start of that record.
+   *
+   * @param last whether {@code log} extends to the end of the whole log, in which case a record
+   *     which is cut off is an error
+   */
+  private boolean readRecords(ByteBuffer log, long logStart, boolean last) {
+    while (log.hasRemaining()) {
+      int position = log.position();
+      try {
+        if (!readRecord(log, logStart + position)) {
+          return true;
+        }
+      } catch (BufferUnderflowException e) {
+        if (last) {
+          throw new IllegalArgumentException(
+              String.format("Record at offset %d is cut off", logStart + position));
+        }
+        log.position(position);
+        return false;
+      }
+    }
+    return last;
+  }
+
+  /**
+   * Reads the record at the position of {@code log}, which is at {@code offset} in the whole log.
+   * Returns {@code false} if the log ends there instead.
+   */
+  private boolean readRecord(ByteBuffer log, long offset) {
+    byte tag = log.get();
+    switch (tag) {
+      case TraceLog.END:
+        return false;
+      case TraceLog.CONTEXT:
+        int id = (int) getVarint(log);
+        Context parent = contexts.get((int) getVarint(log));
+        byte[] nameBytes = new byte[(int) getVarint(log)];
+        log.get(nameBytes);
+        String name = new String(nameBytes, StandardCharsets.UTF_8);
+        contexts.put(id, new Context(predicate(name),
+            path((parent == null) ? null : parent.path, name)));
+        return true;
+      case TraceLog.ENTER:
+        Context entered = context(log, offset);
+        entered.predicate.calls++;
+        entered.path.calls++;
+        return true;
+      case TraceLog.RECURSE:
+        Context recursed = context(log, offset);
+        recursed.predicate.calls++;
+        recursed.predicate.recursiveCalls++;
+        recursed.path.calls++;
+        recursed.path.recursiveCalls++;
+        return true;
+      case TraceLog.ANSWER:
+        Context answered = context(log, offset);
+        answered.predicate.answers++;
+        answered.path.answers++;
+        return true;
+      case TraceLog.EXIT:
+        Context exited = context(log, offset);
+        boolean failed = getVarint(log) == 0;
+        exited.predicate.exits++;
+        exited.path.exits++;
+        if (failed) {
+          exited.predicate.failures++;
+          exited.path.failures++;
+        }
+        return true;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unknown record tag %d at offset %d", tag, offset));
+    }
+  }
+
+  private static long getVarint(ByteBuffer log) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = log.get();
+      value |= (long) (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private Context context(ByteBuffer log, long offset) {
+    long id = getVarint(log);
+    Context context = contexts.get((int) id);
+    if (context == null) {
+      throw new IllegalArgumentException(
+          String.format("Undefined context %d in record at offset %d", id, offset));
+    }
+    return context;
+  }
+
+  private Stats predicate(String name) {
+    Stats stats = predicates.get(name);
+    if (stats == null) {
+      stats = new Stats(null, name);
+      predicates.put(name, stats);
+    }
+    return stats;
+  }
+
+  private Stats path(Stats parentPath, String name) {
+    Stats stats = new Stats(parentPath, name);
+    paths.add(stats);
+    return stats;
+  }
+
+  /**
+   * Returns the interval at which goal runs were sampled. A run was traced if this is {@code 1}.
+   */
+  public int samplingInterval() {
+    return samplingInterval;
+  }
+
+  /**
+   * Returns the statistics of each predicate which was traced at least once, summed over all paths,
+   * in decreasing order of calls.
+   */
+  public List<Stats> predicates() {
+    return sortedByCalls(predicates.values());
+  }
+
+  /**
+   * Returns the statistics of each path of goals which was traced at least once, in decreasing
+   * order of calls, so the hottest paths come first.
+   */
+  public List<Stats> hotPaths() {
+    return sortedByCalls(paths);
+  }
+
+  private static List<Stats> sortedByCalls(Iterable<Stats> all) {
+    List<Stats> sorted = new ArrayList<>();
+    for (Stats stats : all) {
+      if (stats.calls > 0) {
+        sorted.add(stats);
+      }
+    }
+    Collections.sort(sorted, BY_CALLS);
+    return sorted;
+  }
+
+  /**
+   * Writes a table of the statistics of each predicate followed by one of the {@code maxPaths}
+   * hottest paths.
+   */
+  public void writeReport(Appendable destination, int maxPaths) throws IOException {
+    destination.append(String.format("sampling interval: %d%n%n", samplingInterval));
+    writeTable(destination, "predicate", predicates());
+    destination.append('\n');
+    List<Stats> hotPaths = hotPaths();
+    writeTable(destination, "path", hotPaths.subList(0, Math.min(maxPaths, hotPaths.size())));
+  }
+
+  private static void writeTable(Appendable destination, String heading, List<Stats> rows)
+      throws IOException {
+    destination.append(String.format("%12s %12s %12s  %s%n", "calls", "answers", "failures",
+        heading));
+    for (Stats stats : rows) {
+      destination.append(String.format("%12d %12d %12d  %s%n",
+          stats.calls, stats.answers, stats.failures, stats.name()));
+    }
+  }
+
+  public static void main(String... args) throws IOException {
+    if ((args.length < 1) || (args.length > 2)) {
+      System.err.println("usage: trace_report LOG [MAX_PATHS]");
+      System.exit(2);
+    }
+    Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    read(Paths.get(args[0])).writeReport(out, (args.length > 1) ? Integer.parseInt(args[1]) : 20);
+    out.flush();
+  }
+}
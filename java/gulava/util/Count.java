@@ -28,6 +28,8 @@ import gulava.Goal;
 import gulava.Var;
 import gulava.annotation.MakeLogicValue;
 import gulava.annotation.MakePredicates;
+import gulava.annotation.Mode;
+import gulava.annotation.Semidet;
 
 /**
  * Represents a numeric count. This structure is useful if you are not performing any non-trivial
@@ -104,6 +106,8 @@ public abstract class Count<C> {
     /**
      * Indicates that {@code a} is a lesser count than {@code b}.
      */
+    @Semidet
+    @Mode("in,in")
     public abstract Goal less(Object a, Object b);
 
     final Goal less_nonZero(Count<?> a, Count<?> b) {
@@ -117,6 +121,8 @@ public abstract class Count<C> {
     /**
      * Indicates that {@code a} is a lesser or equal count to {@code b}.
      */
+    @Semidet
+    @Mode("in,in")
     public abstract Goal lessOrEqual(Object a, Object b);
 
     final Goal lessOrEqual_base(Void a, Object b) {
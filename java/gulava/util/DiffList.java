@@ -27,6 +27,7 @@ import static gulava.Goals.same;
 import gulava.Cons;
 import gulava.Goal;
 import gulava.Var;
+import gulava.annotation.Det;
 import gulava.annotation.MakeLogicValue;
 import gulava.annotation.MakePredicates;
 
@@ -130,6 +131,7 @@ abstract class DiffList<HEAD, HOLE> {
      * result, this runs in O(1) while {@link DiffListAsList} runs in O(n) where n is the length of
      * the list.
      */
+    @Det
     public abstract Goal finish(Object diffList, Object consList);
 
     final Goal finish_impl(DiffList<?, ?> diffList, Object consList) {
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import static gulava.Goals.conj;
+import static gulava.Goals.same;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class AnswerTest {
+  private static Answer solve(Goal goal, Var... vars) {
+    return new Reifier(Streams.first(goal.run(Subst.EMPTY))).answer(Arrays.asList(vars));
+  }
+
+  @Test
+  public void unboundVariablesNumberedByFirstAppearance() {
+    Var a = new Var();
+    Var b = new Var();
+    Var x = new Var();
+    Var y = new Var();
+    Answer answer = solve(conj(same(a, Cons.s(y, x, y)), same(b, x)), a, b);
+    Assert.assertEquals("[[_.0,_.1,_.0], _.1]", answer.toString());
+    Assert.assertEquals(
+        Arrays.<Object>asList(
+            Cons.s(new ReifiedVar(0), new ReifiedVar(1), new ReifiedVar(0)), new ReifiedVar(1)),
+        answer.values());
+  }
+
+  @Test
+  public void equivalentAnswersFromDifferentRunsAreEqual() {
+    Set<Answer> answers = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      Var list = new Var();
+      Var head = new Var();
+      answers.add(solve(same(list, Cons.of(head, new Var())), list));
+    }
+    Assert.assertEquals(1, answers.size());
+    Answer answer = answers.iterator().next();
+    Assert.assertEquals("[[_.0|_.1]]", answer.toString());
+  }
+
+  @Test
+  public void differentShapesAreNotEqual() {
+    Var a = new Var();
+    Var b = new Var();
+    Answer shared = solve(same(a, Cons.s(b, b)), a);
+    Answer distinct = solve(same(a, Cons.s(b, new Var())), a);
+    Assert.assertNotEquals(shared, distinct);
+    Assert.assertTrue(shared.compareTo(distinct) != 0);
+    Assert.assertEquals(0, shared.compareTo(solve(same(a, Cons.s(b, b)), a)));
+  }
+
+  @Test
+  public void batchReifierProducesSameAnswers() {
+    Var a = new Var();
+    Var b = new Var();
+    Subst subst = Streams.first(same(a, Cons.s(1, b)).run(Subst.EMPTY));
+    Assert.assertEquals(
+        new Reifier(subst).answer(Arrays.asList(b, a)),
+        new BatchReifier().answer(subst, Arrays.asList(b, a)));
+  }
+}
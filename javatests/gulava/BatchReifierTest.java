@@ -0,0 +1,122 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import static gulava.Goals.conj;
+import static gulava.Goals.disj;
+import static gulava.Goals.same;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class BatchReifierTest {
+  private static final Var A = new Var();
+  private static final Var B = new Var();
+  private static final Var C = new Var();
+
+  private static List<Subst> solutions(Goal goal) {
+    List<Subst> solutions = new ArrayList<>();
+    Stream stream = goal.run(Subst.EMPTY);
+    while (stream != Streams.EMPTY) {
+      if (stream.subst() != null) {
+        solutions.add(stream.subst());
+      }
+      stream = stream.rest();
+    }
+    return solutions;
+  }
+
+  @Test
+  public void sameResultsAsReifier() {
+    List<Subst> solutions = solutions(Cons.O.append(A, B, Cons.s(1, 2, 3, 4)));
+    Assert.assertEquals(5, solutions.size());
+
+    BatchReifier batchReifier = new BatchReifier();
+    for (Subst solution : solutions) {
+      Reifier reifier = new Reifier(solution);
+      Assert.assertEquals(
+          Arrays.asList(reifier.reify(A), reifier.reify(B)),
+          batchReifier.reify(solution, Arrays.asList(A, B)));
+    }
+  }
+
+  @Test
+  public void reusesResultsForSharedBindings() {
+    Var shared = new Var();
+    List<Subst> solutions = solutions(
+        conj(
+            same(shared, Cons.s(1, 2, 3)),
+            same(A, Cons.of(shared, C)),
+            disj(same(C, "x"), same(C, "y"))));
+    Assert.assertEquals(2, solutions.size());
+
+    BatchReifier batchReifier = new BatchReifier();
+    Object first = batchReifier.reify(solutions.get(0), Arrays.asList(shared, A)).get(0);
+    List<Object> second = batchReifier.reify(solutions.get(1), Arrays.asList(shared, A));
+    Assert.assertSame(first, second.get(0));
+    Assert.assertEquals(Cons.of(Cons.s(1, 2, 3), "y"), second.get(1));
+    Assert.assertSame(first, ((Cons<?, ?>) second.get(1)).car());
+  }
+
+  @Test
+  public void rebuildsWhenNestedBindingChanges() {
+    List<Subst> solutions = solutions(
+        conj(
+            same(A, Cons.s(B, B)),
+            disj(same(B, 1), same(B, 2))));
+
+    BatchReifier batchReifier = new BatchReifier();
+    Assert.assertEquals(Arrays.<Object>asList(Cons.s(1, 1)),
+        batchReifier.reify(solutions.get(0), Arrays.asList(A)));
+    Assert.assertEquals(Arrays.<Object>asList(Cons.s(2, 2)),
+        batchReifier.reify(solutions.get(1), Arrays.asList(A)));
+  }
+
+  @Test
+  public void forgetsVariablesNoLongerReached() {
+    BatchReifier batchReifier = new BatchReifier();
+    for (int i = 0; i < 100; i++) {
+      Var temporary = new Var();
+      Subst subst = Subst.EMPTY.ext(A, Cons.s(temporary)).ext(temporary, i);
+      Assert.assertEquals(Arrays.<Object>asList(Cons.s(i)),
+          batchReifier.reify(subst, Arrays.asList(A)));
+    }
+    Assert.assertTrue(batchReifier.memoCount() <= 4);
+  }
+
+  @Test
+  public void cyclicValue() {
+    Subst subst = Subst.EMPTY.ext(A, Cons.of(1, A));
+    BatchReifier batchReifier = new BatchReifier();
+    Assert.assertEquals(Arrays.<Object>asList(Cons.of(1, A)),
+        batchReifier.reify(subst, Arrays.asList(A)));
+    Assert.assertEquals(Arrays.<Object>asList(Cons.of(1, A)),
+        batchReifier.reify(subst, Arrays.asList(A)));
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import gulava.util.Count;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class BufferEncoderTest {
+  private final BufferEncoder encoder = new BufferEncoder();
+  private final BufferDecoder decoder = new BufferDecoder();
+  private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+
+  private Object roundTrip(Object term) {
+    buffer.clear();
+    encoder.encode(term, buffer);
+    buffer.flip();
+    Object decoded = decoder.decode(buffer);
+    Assert.assertEquals(0, buffer.remaining());
+    return decoded;
+  }
+
+  @Test
+  public void plainValues() {
+    List<Object> values = Arrays.<Object>asList(
+        null, 0, -1, 42, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, 1L << 40, 2.5,
+        true, false, "", "h\u00e9llo \u20ac \ud83d\ude00");
+    for (Object value : values) {
+      Assert.assertEquals(value, roundTrip(value));
+    }
+  }
+
+  @Test
+  public void unpairedSurrogateIsWrittenAsQuestionMark() {
+    Assert.assertEquals("a?b", roundTrip("a\ud800b"));
+  }
+
+  @Test
+  public void logicValues() {
+    Object term = Cons.list(Arrays.asList(Count.fromInt(3), Cons.of("a", "b"), null, 7));
+    Assert.assertEquals(term, roundTrip(term));
+    Assert.assertEquals(Count.fromInt(5), roundTrip(Count.fromInt(5)));
+  }
+
+  @Test
+  public void varsAreRenumberedPerTerm() {
+    Var a = new Var();
+    Var b = new Var();
+    Cons<?, ?> decoded = (Cons<?, ?>) roundTrip(Cons.list(Arrays.asList(a, b, a)));
+    Object decodedA = decoded.car();
+    Object decodedB = ((Cons<?, ?>) decoded.cdr()).car();
+    Assert.assertTrue(decodedA instanceof Var);
+    Assert.assertTrue(decodedB instanceof Var);
+    Assert.assertNotSame(a, decodedA);
+    Assert.assertNotSame(decodedA, decodedB);
+    Assert.assertSame(decodedA, ((Cons<?, ?>) ((Cons<?, ?>) decoded.cdr()).cdr()).car());
+
+    Assert.assertNotSame(decodedA, ((Cons<?, ?>) roundTrip(Cons.of(a, null))).car());
+  }
+
+  @Test
+  public void manyVars() {
+    List<Var> vars = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      vars.add(new Var());
+    }
+    List<Object> doubled = new ArrayList<Object>(vars);
+    doubled.addAll(vars);
+
+    Object decoded = roundTrip(Cons.list(doubled));
+    List<Object> firstHalf = new ArrayList<>();
+    for (int i = 0; i < vars.size(); i++) {
+      firstHalf.add(((Cons<?, ?>) decoded).car());
+      decoded = ((Cons<?, ?>) decoded).cdr();
+    }
+    for (Object var : firstHalf) {
+      Assert.assertSame(var, ((Cons<?, ?>) decoded).car());
+      decoded = ((Cons<?, ?>) decoded).cdr();
+    }
+  }
+
+  @Test
+  public void varsAreForgottenAfterALargerTerm() {
+    List<Object> vars = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      vars.add(new Var());
+    }
+    roundTrip(Cons.list(vars));
+
+    Var a = new Var();
+    Cons<?, ?> decoded = (Cons<?, ?>) roundTrip(Cons.of(vars.get(99), Cons.of(a, vars.get(99))));
+    Assert.assertSame(decoded.car(), ((Cons<?, ?>) decoded.cdr()).cdr());
+    Assert.assertNotSame(decoded.car(), ((Cons<?, ?>) decoded.cdr()).car());
+  }
+
+  @Test
+  public void termsAreSelfContained() {
+    Object first = Cons.of(Count.fromInt(1), new Var());
+    Object second = Cons.of(new Var(), Count.fromInt(2));
+    buffer.clear();
+    encoder.encode(first, buffer);
+    int secondStart = buffer.position();
+    encoder.encode(second, buffer);
+    buffer.flip();
+    buffer.position(secondStart);
+
+    Cons<?, ?> decoded = (Cons<?, ?>) new BufferDecoder().decode(buffer);
+    Assert.assertTrue(decoded.car() instanceof Var);
+    Assert.assertEquals(Count.fromInt(2), decoded.cdr());
+  }
+
+  @Test
+  public void sameTermGivesSameBytes() {
+    Object term = Cons.of(Count.fromInt(2), Cons.of(new Var(), "x"));
+    ByteBuffer first = ByteBuffer.allocate(64);
+    ByteBuffer second = ByteBuffer.allocate(64);
+    encoder.encode(term, first);
+    encoder.encode(term, second);
+    Assert.assertEquals(first.flip(), second.flip());
+  }
+
+  @Test
+  public void longList() {
+    Integer[] elements = new Integer[20000];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = i;
+    }
+    Object decoded = roundTrip(Cons.list(Arrays.asList(elements)));
+    for (Integer element : elements) {
+      Cons<?, ?> cell = (Cons<?, ?>) decoded;
+      Assert.assertEquals(element, cell.car());
+      decoded = cell.cdr();
+    }
+    Assert.assertNull(decoded);
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void overflow() {
+    encoder.encode("too long", ByteBuffer.allocate(4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unsupportedValue() {
+    encoder.encode(Cons.of(new Object(), null), buffer);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownTag() {
+    decoder.decode(ByteBuffer.wrap(new byte[] {(byte) 0xff}));
+  }
+
+  private ByteBuffer tagged(int tag, int number) {
+    ByteBuffer malformed = ByteBuffer.allocate(16);
+    malformed.put((byte) tag);
+    TermFormat.putVarint(malformed, number);
+    malformed.flip();
+    return malformed;
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeStringLength() {
+    decoder.decode(tagged(TermFormat.STRING, -1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stringLengthPastEndOfBuffer() {
+    decoder.decode(tagged(TermFormat.STRING, 100));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeVarNumber() {
+    decoder.decode(tagged(TermFormat.VAR, -1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeTypeNumber() {
+    decoder.decode(tagged(TermFormat.VALUE, -1));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import static gulava.Goals.conda;
+import static gulava.Goals.condu;
+import static gulava.Goals.conj;
+import static gulava.Goals.disj;
+import static gulava.Goals.same;
+
+import gulava.testing.LogicAsserter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CommittedChoiceGoalTest {
+  private static final Var X = new Var();
+  private static final Var Y = new Var();
+
+  private static final class ThrowingGoal implements Goal {
+    @Override
+    public Stream run(Subst s) {
+      throw new AssertionError("Should not be called");
+    }
+  }
+
+  @Test
+  public void condaPassesAllTestSolutionsToBody() {
+    new LogicAsserter()
+        .stream(
+            conda(
+                disj(same(X, 1), same(X, 2)), same(Y, "first"),
+                Goals.UNIT, new ThrowingGoal()))
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, 1).put(Y, "first")
+        .startSubst().put(X, 2).put(Y, "first")
+        .test();
+  }
+
+  @Test
+  public void conduPassesFirstTestSolutionToBody() {
+    new LogicAsserter()
+        .stream(
+            condu(
+                new RepeatedGoal(disj(same(X, 1), same(X, 2))), same(Y, "first"),
+                new ThrowingGoal(), new ThrowingGoal()))
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, 1).put(Y, "first")
+        .test();
+  }
+
+  @Test
+  public void failingTestsFallThrough() {
+    new LogicAsserter()
+        .stream(
+            condu(
+                conj(same(X, 1), same(X, 2)), new ThrowingGoal(),
+                new DelayedGoal(Goals.FAIL), new ThrowingGoal(),
+                same(X, 3), same(Y, "third"),
+                new ThrowingGoal(), new ThrowingGoal()))
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, 3).put(Y, "third")
+        .test();
+  }
+
+  @Test
+  public void conjunctionCanBeATest() {
+    new LogicAsserter()
+        .stream(
+            conda(
+                conj(disj(same(X, 1), same(X, 2)), same(X, 2)), same(Y, "body"),
+                Goals.UNIT, new ThrowingGoal()))
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, 2).put(Y, "body")
+        .test();
+  }
+
+  @Test
+  public void committedBodyCanFail() {
+    new LogicAsserter()
+        .stream(
+            conda(
+                same(X, 1), conj(same(Y, 1), same(Y, 2)),
+                same(X, 2), Goals.UNIT))
+        .test();
+  }
+
+  @Test
+  public void allTestsFail() {
+    new LogicAsserter()
+        .stream(conda(Goals.FAIL, Goals.UNIT, new DelayedGoal(Goals.FAIL), Goals.UNIT))
+        .test();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void clauseWithoutBody() {
+    condu(same(X, 1), same(Y, 1), same(X, 2));
+  }
+}
@@ -147,15 +147,15 @@ public class CustomValueTypeTest {
         .startSubst()
         .put(name, new PersonName(1, 2))
         .startSubst()
+        .put(name, new PersonName(2, 3))
+        .startSubst()
         .put(name, new PersonName(1, 3))
         .startSubst()
-        .put(name, new PersonName(1, 4))
+        .put(name, new PersonName(3, 4))
         .startSubst()
-        .put(name, new PersonName(2, 3))
+        .put(name, new PersonName(1, 4))
         .startSubst()
         .put(name, new PersonName(2, 4))
-        .startSubst()
-        .put(name, new PersonName(3, 4))
         .test();
   }
 
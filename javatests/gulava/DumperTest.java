@@ -105,11 +105,12 @@ public class DumperTest {
     dumper(0).dump(stream.rest());
 
     writer.assertLines(
-        "ImmatureStream",
-        "  Subst",
-        "    " + A + "=foo",
-        "    " + B + "=bar",
-        "    " + E + "=bot",
+        "RoundRobinStream",
+        "  ImmatureStream",
+        "    {baz == " + C + "}",
+        "    Subst",
+        "      " + A + "=foo",
+        "      " + B + "=bar",
         "  SolveStep",
         "    Subst",
         "      " + A + "=foo",
@@ -121,31 +122,31 @@ public class DumperTest {
         "      Subst",
         "        " + A + "=foo",
         "        " + B + "=bar",
-        "  {baz == " + C + "}",
-        "  Subst",
-        "    " + A + "=foo",
-        "    " + B + "=bar",
-        "----------",
-        "SolveStep",
         "  Subst",
         "    " + A + "=foo",
         "    " + B + "=bar",
         "    " + E + "=bot",
+        "----------",
+        "RoundRobinStream",
         "  SolveStep",
         "    Subst",
         "      " + A + "=foo",
         "      " + B + "=bar",
         "      " + D + "=rrr",
         "    ImmatureStream",
-        "      Subst",
-        "        " + A + "=foo",
-        "        " + B + "=bar",
-        "        " + C + "=baz",
         "      RepeatedGoal",
         "        {rrr == " + D + "}",
         "      Subst",
         "        " + A + "=foo",
-        "        " + B + "=bar");
+        "        " + B + "=bar",
+        "  Subst",
+        "    " + A + "=foo",
+        "    " + B + "=bar",
+        "    " + E + "=bot",
+        "  Subst",
+        "    " + A + "=foo",
+        "    " + B + "=bar",
+        "    " + C + "=baz");
   }
 
   @Test
@@ -156,4 +157,109 @@ public class DumperTest {
     dumper(0).flush();
     writer.assertFlushes(1);
   }
+
+  @Test
+  public void deepStreamDoesNotOverflowStack() throws Exception {
+    Stream stream = Streams.EMPTY;
+    for (int i = 0; i < 100000; i++) {
+      stream = new SolveStep(null, stream);
+    }
+    StringWriter deepWriter = new StringWriter();
+    new Dumper.Builder()
+        .setWriter(deepWriter)
+        .setFormat(Dumper.Format.JSON)
+        .build()
+        .dump(stream);
+    String json = deepWriter.toString();
+    String step = "{\"heading\":\"SolveStep\",\"children\":[\"null\",";
+    Assert.assertTrue(json.startsWith(step + step));
+    Assert.assertTrue(json.contains(step + "\"EMPTY\"]}]}"));
+    Assert.assertTrue(json.endsWith("]}]}\n"));
+    Assert.assertEquals(100000 * (step.length() + 2) + "\"EMPTY\"\n".length(), json.length());
+  }
+
+  @Test
+  public void maxDepth() throws Exception {
+    new Dumper.Builder()
+        .setIndentation(1)
+        .setWriter(writer)
+        .setMaxDepth(1)
+        .build()
+        .dump(GOAL);
+
+    writer.assertLines(
+        " ConjGoal",
+        "   {" + A + " == foo}",
+        "   {" + B + " == bar}",
+        "   DisjGoal",
+        "     ...");
+  }
+
+  @Test
+  public void maxNodes() throws Exception {
+    new Dumper.Builder()
+        .setWriter(writer)
+        .setMaxNodes(5)
+        .build()
+        .dump(GOAL);
+
+    writer.assertLines(
+        "ConjGoal",
+        "  {" + A + " == foo}",
+        "  {" + B + " == bar}",
+        "  DisjGoal",
+        "    DelayedGoal",
+        "      ...");
+  }
+
+  @Test
+  public void sharedSubtrees() throws Exception {
+    Subst shared = Subst.EMPTY.ext(A, "foo");
+    new Dumper.Builder()
+        .setWriter(writer)
+        .setDetectSharing(true)
+        .build()
+        .dump(new SolveStep(shared, new SolveStep(shared, Streams.EMPTY)));
+
+    writer.assertLines(
+        "SolveStep @1",
+        "  Subst @2",
+        "    " + A + "=foo",
+        "  SolveStep @3",
+        "    Subst @2 (repeated)",
+        "    EMPTY");
+  }
+
+  @Test
+  public void json() throws Exception {
+    Subst shared = Subst.EMPTY.ext(A, "a\"b");
+    Dumper dumper = new Dumper.Builder()
+        .setWriter(writer)
+        .setDetectSharing(true)
+        .setFormat(Dumper.Format.JSON)
+        .build();
+    dumper.dump(shared.mplus(shared));
+    dumper.dump("heading", 1, null);
+
+    writer.assertLines(
+        "{\"heading\":\"SolveStep\",\"id\":1,\"children\":["
+            + "{\"heading\":\"Subst\",\"id\":2,\"children\":[\"" + A + "=a\\\"b\"]},"
+            + "{\"ref\":2}]}",
+        "{\"heading\":\"heading\",\"children\":[\"1\",\"null\"]}");
+  }
+
+  @Test
+  public void jsonClosesNodesWhenBudgetIsExhausted() throws Exception {
+    new Dumper.Builder()
+        .setWriter(writer)
+        .setMaxNodes(3)
+        .setFormat(Dumper.Format.JSON)
+        .build()
+        .dump(new SolveStep(Subst.EMPTY, new SolveStep(Subst.EMPTY, Streams.EMPTY)));
+
+    writer.assertLines(
+        "{\"heading\":\"SolveStep\",\"children\":["
+            + "{\"heading\":\"Subst\",\"children\":[]},"
+            + "{\"heading\":\"SolveStep\",\"children\":[{\"truncated\":true}]}]}");
+  }
 }
@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import static gulava.Goals.same;
+
+import gulava.testing.LogicAsserter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+@RunWith(JUnit4.class)
+public class FunctorTest {
+  private static final Var X = new Var();
+  private static final Var Y = new Var();
+
+  @Test
+  public void namesAreInterned() {
+    String name = new String(new char[] {'p', 't'});
+    Assert.assertSame("pt", Functor.of(name, 1, 2).name());
+  }
+
+  @Test
+  public void unifyArguments() {
+    new LogicAsserter()
+        .stream(same(Functor.of("pt", X, 2), Functor.of("pt", 1, Y)))
+        .workUnits(1)
+        .addRequestedVar(X, Y)
+        .startSubst()
+        .put(X, 1)
+        .put(Y, 2)
+        .test();
+  }
+
+  @Test
+  public void differentNameOrArityDoesNotUnify() {
+    Assert.assertNull(Subst.EMPTY.unify(Functor.of("pt", X), Functor.of("pr", X)));
+    Assert.assertNull(Subst.EMPTY.unify(Functor.of("pt", X), Functor.of("pt", X, Y)));
+    Assert.assertNull(Subst.EMPTY.unify(Functor.of("pt", 1, X), Functor.of("pt", 2, Y)));
+  }
+
+  @Test
+  public void identicalArgumentsAreNotUnified() {
+    InMemorySolverMetrics metrics = new InMemorySolverMetrics();
+    SolverMetrics.install(metrics);
+    try {
+      Object shared = Cons.of(X, Y);
+      Assert.assertSame(Subst.EMPTY,
+          Subst.EMPTY.unify(Functor.of("f", shared, 1000), Functor.of("f", shared, 1000)));
+      // One call for the functors themselves, and one for the equal but not identical Integers.
+      Assert.assertEquals(2, metrics.unifications());
+    } finally {
+      SolverMetrics.install(SolverMetrics.NONE);
+    }
+  }
+
+  @Test
+  public void replaceReturnsSameInstanceWhenNothingChanges() {
+    Functor ground = Functor.of("f", 1, "a", Functor.of("g"));
+    Assert.assertSame(ground, new Reifier(Subst.EMPTY.ext(X, 1)).reify(ground));
+
+    Subst subst = Subst.EMPTY.ext(X, 5);
+    Assert.assertEquals(Functor.of("f", 5, "a"),
+        new Reifier(subst).reify(Functor.of("f", X, "a")));
+  }
+
+  @Test
+  public void equalsAndHashCode() {
+    Assert.assertEquals(Functor.of("f", 1, "a"), Functor.of("f", 1, "a"));
+    Assert.assertEquals(Functor.of("f", 1, "a").hashCode(), Functor.of("f", 1, "a").hashCode());
+    Assert.assertNotEquals(Functor.of("f", 1, "a"), Functor.of("f", 1, "b"));
+    Assert.assertNotEquals(Functor.of("f", 1), Functor.of("g", 1));
+    Assert.assertEquals("f(1, a, g())", Functor.of("f", 1, "a", Functor.of("g")).toString());
+  }
+
+  @Test
+  public void argumentsAreCopied() {
+    Object[] args = {1, 2};
+    Functor functor = Functor.of("f", args);
+    args[0] = 3;
+    Assert.assertEquals(1, functor.arg(0));
+    Assert.assertEquals(2, functor.arity());
+  }
+
+  @Test
+  public void encodeAndDecode() throws IOException {
+    Functor functor = Functor.of("edge", "a", Functor.of("edge", X, Cons.of(X, null)));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new TermEncoder(new DataOutputStream(bytes)).write(functor);
+    Functor streamed = (Functor) new TermDecoder(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))).read();
+
+    ByteBuffer buffer = ByteBuffer.allocate(256);
+    new BufferEncoder().encode(functor, buffer);
+    buffer.flip();
+    Functor buffered = (Functor) new BufferDecoder().decode(buffer);
+
+    for (Functor decoded : new Functor[] {streamed, buffered}) {
+      Assert.assertSame("edge", decoded.name());
+      Functor inner = (Functor) decoded.arg(1);
+      Assert.assertSame("edge", inner.name());
+      Assert.assertTrue(inner.arg(0) instanceof Var);
+      Assert.assertSame(inner.arg(0), ((Cons<?, ?>) inner.arg(1)).car());
+    }
+  }
+}
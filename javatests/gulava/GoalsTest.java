@@ -34,6 +34,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -246,4 +248,219 @@ public class GoalsTest {
     Assert.assertSame(Streams.EMPTY, solution.rest().rest().rest());
     Assert.assertSame(Streams.EMPTY, solution.rest().rest().rest().rest());
   }
+
+  @Test
+  public void compactDropsUnreachableBindings() {
+    Var temporary = new Var();
+    Var unreachable = new Var();
+    Subst subst = Streams.first(
+        conj(
+            same(unreachable, 5),
+            same(temporary, 3),
+            same(X, Cons.s(temporary, Y)),
+            Goals.compact(X),
+            same(Y, 4))
+        .run(Subst.EMPTY));
+    Assert.assertEquals(Cons.s(3, 4), new Reifier(subst).reify(X));
+    Assert.assertFalse(subst.containsKey(unreachable));
+    Assert.assertEquals(3, subst.size());
+  }
+
+  @Test
+  public void distinctKeepsFirstOfEachAnswer() {
+    List<Map<Object, Object>> substs = new LogicAsserter()
+        .stream(
+            Goals.distinct(
+                disj(
+                    conj(same(X, 1), same(Y, "a")),
+                    conj(same(X, 2), same(Y, "b")),
+                    conj(same(X, 1), same(Y, "c"))),
+                X))
+        .addRequestedVar(X)
+        .actualSubsts();
+    List<Object> xValues = new ArrayList<>();
+    for (Map<Object, Object> subst : substs) {
+      xValues.add(subst.get(X));
+    }
+    Assert.assertEquals(Arrays.<Object>asList(1, 2), xValues);
+  }
+
+  @Test
+  public void distinctComparesUnboundVariablesCanonically() {
+    Var a = new Var();
+    Var b = new Var();
+    List<Map<Object, Object>> substs = new LogicAsserter()
+        .stream(
+            Goals.distinct(
+                disj(
+                    same(X, Cons.s(a, a)),
+                    same(X, Cons.s(b, b)),
+                    same(X, Cons.s(a, b))),
+                X))
+        .addRequestedVar(X)
+        .actualSubsts();
+    Assert.assertEquals(2, substs.size());
+  }
+
+  @Test
+  public void distinctKeepsDifferentAnswersWithSameHashCode() {
+    // "Aa" and "BB" have the same hash code.
+    List<Map<Object, Object>> substs = new LogicAsserter()
+        .stream(Goals.distinct(disj(same(X, "Aa"), same(X, "BB"), same(X, "Aa")), X))
+        .addRequestedVar(X)
+        .actualSubsts();
+    List<Object> xValues = new ArrayList<>();
+    for (Map<Object, Object> subst : substs) {
+      xValues.add(subst.get(X));
+    }
+    Assert.assertEquals(Arrays.<Object>asList("Aa", "BB"), xValues);
+  }
+
+  @Test
+  public void distinctManyAnswers() {
+    Stream stream = Streams.EMPTY;
+    for (int i = 0; i < 1000; i++) {
+      stream = stream.mplus(Subst.EMPTY.ext(X, i % 300));
+    }
+    Set<Object> values = new HashSet<>();
+    int count = 0;
+    for (stream = Streams.distinct(stream, X);
+        stream != Streams.EMPTY;
+        stream = stream.rest()) {
+      if (stream.subst() != null) {
+        values.add(stream.subst().walk(X));
+        count++;
+      }
+    }
+    Assert.assertEquals(300, count);
+    Assert.assertEquals(300, values.size());
+  }
+
+  @Test
+  public void projectDiscardsInnerBindings() {
+    Var temporary = new Var();
+    Var outer = new Var();
+    Subst subst = Streams.first(
+        conj(
+            same(X, Cons.of(outer, Y)),
+            Goals.project(
+                conj(
+                    same(temporary, Cons.s(1, 2)),
+                    Cons.O.append(temporary, Cons.s(3), Y),
+                    same(outer, "a")),
+                X),
+            same(new Var(), 4))
+        .run(Subst.EMPTY));
+    Assert.assertEquals(Cons.of("a", Cons.s(1, 2, 3)), new Reifier(subst).reify(X));
+    Assert.assertFalse(subst.containsKey(temporary));
+    Assert.assertEquals(4, subst.size());
+  }
+
+  @Test
+  public void projectKeepsEachSolution() {
+    Stream stream = Goals.project(Cons.O.append(X, Y, Cons.s(1, 2)), X, Y).run(Subst.EMPTY);
+    List<Object> solutions = new ArrayList<>();
+    for (; stream != Streams.EMPTY; stream = stream.rest()) {
+      Subst subst = stream.subst();
+      if (subst != null) {
+        solutions.add(Cons.s(subst.walk(X), subst.walk(Y)));
+        Assert.assertEquals(2, subst.size());
+      }
+    }
+    Assert.assertEquals(3, solutions.size());
+    Assert.assertTrue(solutions.contains(Cons.s(null, Cons.s(1, 2))));
+    Assert.assertTrue(solutions.contains(Cons.s(Cons.s(1), Cons.s(2))));
+    Assert.assertTrue(solutions.contains(Cons.s(Cons.s(1, 2), null)));
+  }
+
+  @Test
+  public void onceOfInfiniteGoal() {
+    new LogicAsserter()
+        .stream(Goals.once(new RepeatedGoal(disj(same(X, 5), same(X, 6)))))
+        .addRequestedVar(X)
+        .startSubst().put(X, 5)
+        .test();
+  }
+
+  @Test
+  public void onceOfFailingGoal() {
+    new LogicAsserter()
+        .stream(Goals.once(Goals.FAIL))
+        .test();
+  }
+
+  @Test
+  public void limitDoesNotRunRemainingAlternatives() {
+    new LogicAsserter()
+        .stream(
+            Goals.limit(2,
+                disj(
+                    same(X, 5),
+                    new DelayedGoal(same(X, 6)),
+                    new DelayedGoal(new DelayedGoal(new ThrowingGoal())))))
+        .addRequestedVar(X)
+        .startSubst().put(X, 5)
+        .startSubst().put(X, 6)
+        .test();
+  }
+
+  @Test
+  public void limitOfOneDoesNotRealizeRest() {
+    Stream stream = new SolveStep(Subst.EMPTY.unify(X, 1), new ImmatureStream() {
+      @Override
+      protected Stream realize() {
+        throw new AssertionError("Should not be realized");
+      }
+
+      @Override
+      public void addSubcomponents(Collection<Object> destination) {}
+    });
+    Assert.assertSame(stream.subst(), Streams.limit(stream, 1));
+  }
+
+  @Test
+  public void limitZero() {
+    Assert.assertSame(Streams.EMPTY, Goals.limit(0, new ThrowingGoal()).run(Subst.EMPTY));
+  }
+
+  @Test
+  public void disjOfManyGoalsGivesEachAnEqualShare() {
+    new LogicAsserter()
+        .stream(
+            disj(
+                new RepeatedGoal(same(X, 1)),
+                new RepeatedGoal(same(X, 2)),
+                new RepeatedGoal(same(X, 3)),
+                new RepeatedGoal(same(X, 4))))
+        .workUnits(16)
+        .finishes(false)
+        .addRequestedVar(X)
+        .startSubst().put(X, 1)
+        .startSubst().put(X, 2)
+        .startSubst().put(X, 3)
+        .startSubst().put(X, 4)
+        .startSubst().put(X, 1)
+        .startSubst().put(X, 2)
+        .startSubst().put(X, 3)
+        .startSubst().put(X, 4)
+        .test();
+  }
+
+  @Test
+  public void lastSubgoalOfDisjIsNotStarved() {
+    new LogicAsserter()
+        .stream(
+            disj(
+                new RepeatedGoal(Goals.FAIL),
+                new RepeatedGoal(Goals.FAIL),
+                new RepeatedGoal(Goals.FAIL),
+                new RepeatedGoal(Goals.FAIL),
+                new RepeatedGoal(Goals.FAIL),
+                same(X, "last")))
+        .workUnits(6)
+        .finishes(false)
+        .addRequestedVar(X)
+        .startSubst().put(X, "last")
+        .test();
+  }
 }
@@ -29,6 +29,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.Collection;
+
 @RunWith(JUnit4.class)
 public class ImmatureStreamTest {
   private static final Var A = new Var();
@@ -55,4 +57,20 @@ public class ImmatureStreamTest {
         "  {" + A + " == " + B + "}",
         "  Subst");
   }
+
+  @Test
+  public void subclassMayOverrideRest() {
+    Stream stream = new ImmatureStream() {
+      @Override
+      public Stream rest() {
+        return Subst.EMPTY.unify(A, 1);
+      }
+
+      @Override
+      public void addSubcomponents(Collection<Object> destination) {}
+    };
+    Subst first = Streams.first(stream.bind(Goals.same(B, 2)));
+    Assert.assertEquals(1, first.walk(A));
+    Assert.assertEquals(2, first.walk(B));
+  }
 }
@@ -61,65 +61,65 @@ public class OrderTest {
         .startSubst()
         .put(X, Cons.list(Arrays.asList(1, 2, 3, 4, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 2, 3, 4)))
+        .put(X, Cons.list(Arrays.asList(2, 3, 4, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 2, 3, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 3, 4, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 2, 3)))
+        .put(X, Cons.list(Arrays.asList(3, 4, 5)))
         .startSubst()
         .put(X, Cons.list(Arrays.asList(1, 2, 4, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 2, 4)))
+        .put(X, Cons.list(Arrays.asList(2, 4, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 2, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 4, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 2)))
+        .put(X, Cons.list(Arrays.asList(4, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 3, 4, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 2, 3, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 3, 4)))
+        .put(X, Cons.list(Arrays.asList(2, 3, 5)))
         .startSubst()
         .put(X, Cons.list(Arrays.asList(1, 3, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 3)))
+        .put(X, Cons.list(Arrays.asList(3, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 4, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 2, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1, 4)))
+        .put(X, Cons.list(Arrays.asList(2, 5)))
         .startSubst()
         .put(X, Cons.list(Arrays.asList(1, 5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(1)))
+        .put(X, Cons.list(Arrays.asList(5)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(2, 3, 4, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 2, 3, 4)))
         .startSubst()
         .put(X, Cons.list(Arrays.asList(2, 3, 4)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(2, 3, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 3, 4)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(2, 3)))
+        .put(X, Cons.list(Arrays.asList(3, 4)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(2, 4, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 2, 4)))
         .startSubst()
         .put(X, Cons.list(Arrays.asList(2, 4)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(2, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 4)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(2)))
+        .put(X, Cons.list(Arrays.asList(4)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(3, 4, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 2, 3)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(3, 4)))
+        .put(X, Cons.list(Arrays.asList(2, 3)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(3, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 3)))
         .startSubst()
         .put(X, Cons.list(Arrays.asList(3)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(4, 5)))
+        .put(X, Cons.list(Arrays.asList(1, 2)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(4)))
+        .put(X, Cons.list(Arrays.asList(2)))
         .startSubst()
-        .put(X, Cons.list(Arrays.asList(5)))
+        .put(X, Cons.list(Arrays.asList(1)))
         .startSubst()
         .put(X, null)
         .test();
@@ -134,15 +134,15 @@ public class OrderTest {
         .workUnits(10)
         .addRequestedVar(X, Y)
         .startSubst().put(X, 1).put(Y, 2)
+        .startSubst().put(X, 2).put(Y, 3)
         .startSubst().put(X, 1).put(Y, 3)
+        .startSubst().put(X, 3).put(Y, 4)
         .startSubst().put(X, 1).put(Y, 4)
-        .startSubst().put(X, 1).put(Y, 5)
-        .startSubst().put(X, 2).put(Y, 3)
         .startSubst().put(X, 2).put(Y, 4)
+        .startSubst().put(X, 1).put(Y, 5)
+        .startSubst().put(X, 4).put(Y, 5)
         .startSubst().put(X, 2).put(Y, 5)
-        .startSubst().put(X, 3).put(Y, 4)
         .startSubst().put(X, 3).put(Y, 5)
-        .startSubst().put(X, 4).put(Y, 5)
         .test();
   }
 }
@@ -0,0 +1,289 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import static gulava.Goals.conj;
+import static gulava.Goals.disj;
+import static gulava.Goals.same;
+
+import gulava.testing.LogicAsserter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class ProfilerTest {
+  private static final Var X = new Var();
+  private static final Var Y = new Var();
+
+  private Profiler profiler;
+
+  @After
+  public void stopProfiler() {
+    if (profiler != null) {
+      profiler.stop();
+    }
+  }
+
+  private static Map<String, Profiler.Entry> entriesByName(Profiler profiler) {
+    Map<String, Profiler.Entry> entries = new HashMap<>();
+    for (Profiler.Entry entry : profiler.flatProfile()) {
+      entries.put(entry.name(), entry);
+    }
+    return entries;
+  }
+
+  @Test
+  public void wrapReturnsSameGoalWhenInactive() {
+    Goal goal = same(X, 1);
+    Assert.assertSame(goal, Profiler.wrap("goal", goal));
+    Assert.assertNull(Profiler.enter("goal"));
+  }
+
+  @Test
+  public void callObserverSeesRunsWithoutProfiler() {
+    final List<String> names = new ArrayList<>();
+    Profiler.setCallObserver(new Profiler.CallObserver() {
+      @Override
+      public void called(String name) {
+        names.add(name);
+      }
+    });
+    try {
+      Goal goal = Profiler.wrap("goal", same(X, 1));
+      new LogicAsserter()
+          .stream(goal)
+          .workUnits(1)
+          .addRequestedVar(X)
+          .startSubst().put(X, 1)
+          .test();
+    } finally {
+      Profiler.setCallObserver(null);
+    }
+    Assert.assertEquals(Arrays.asList("goal"), names);
+  }
+
+  @Test
+  public void countsCallsAnswersAndFailures() {
+    profiler = Profiler.start();
+    new LogicAsserter()
+        .stream(Cons.O.order(Cons.list(Arrays.asList(X, Y)), Cons.list(Arrays.asList(1, 2, 3))))
+        .workUnits(3)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, 1).put(Y, 2)
+        .startSubst().put(X, 2).put(Y, 3)
+        .startSubst().put(X, 1).put(Y, 3)
+        .test();
+    profiler.stop();
+
+    Map<String, Profiler.Entry> entries = entriesByName(profiler);
+    Profiler.Entry order = entries.get("gulava.Cons.Goals.order");
+    Assert.assertTrue(entries.get("gulava.Cons.Goals.order_select").answers() >= 3);
+    Assert.assertTrue(order.calls() > 1);
+    Assert.assertTrue(entries.get("gulava.Cons.Goals.order_endOfLists").failures() > 0);
+    Assert.assertTrue(order.steps() > 0);
+    Assert.assertTrue(order.totalNanos() >= order.selfNanos());
+    Assert.assertTrue(entries.containsKey("DisjGoal"));
+    Assert.assertTrue(entries.containsKey("ConjGoal"));
+  }
+
+  @Test
+  public void profilingDoesNotChangeWorkUnits() {
+    profiler = Profiler.start();
+    new LogicAsserter()
+        .stream(Cons.O.order(
+            Cons.list(Arrays.asList(X, Y)),
+            Cons.list(Arrays.asList(1, 2, 3, 4, 5))))
+        .workUnits(10)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, 1).put(Y, 2)
+        .startSubst().put(X, 2).put(Y, 3)
+        .startSubst().put(X, 1).put(Y, 3)
+        .startSubst().put(X, 3).put(Y, 4)
+        .startSubst().put(X, 1).put(Y, 4)
+        .startSubst().put(X, 2).put(Y, 4)
+        .startSubst().put(X, 1).put(Y, 5)
+        .startSubst().put(X, 4).put(Y, 5)
+        .startSubst().put(X, 2).put(Y, 5)
+        .startSubst().put(X, 3).put(Y, 5)
+        .test();
+  }
+
+  private static List<String> answers(Goal goal) {
+    List<String> answers = new ArrayList<>();
+    for (Stream stream = goal.run(Subst.EMPTY); stream != Streams.EMPTY; stream = stream.rest()) {
+      Subst subst = stream.subst();
+      if (subst != null) {
+        answers.add(subst.walk(X) + "," + subst.walk(Y));
+      }
+    }
+    return answers;
+  }
+
+  private static Goal twoDisjunctions() {
+    return conj(
+        disj(same(X, 1), same(X, 2), same(X, 3)),
+        disj(same(Y, 1), same(Y, 2), same(Y, 3)));
+  }
+
+  @Test
+  public void profilingDoesNotChangeAnswerOrder() {
+    List<String> expected = answers(twoDisjunctions());
+    profiler = Profiler.start();
+    Assert.assertEquals(expected, answers(twoDisjunctions()));
+    profiler.stop();
+    Map<String, Profiler.Entry> entries = entriesByName(profiler);
+    Assert.assertEquals(4, entries.get("DisjGoal").calls());
+    Assert.assertEquals(12, entries.get("DisjGoal").answers());
+    Assert.assertEquals(0, entries.get("DisjGoal").failures());
+  }
+
+  /**
+   * Profiles appending a list of {@code length} elements and returns the number of collapsed
+   * stacks.
+   */
+  private int appendStacks(int length) throws Exception {
+    List<Integer> elements = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      elements.add(i);
+    }
+    profiler = Profiler.start();
+    Assert.assertEquals(1, answers(Cons.O.append(Cons.list(elements), Y, X)).size());
+    profiler.stop();
+
+    Assert.assertEquals(
+        length + 1, entriesByName(profiler).get("gulava.Cons.Goals.append").calls());
+    StringBuilder collapsed = new StringBuilder();
+    profiler.writeCollapsedStacks(collapsed);
+    return collapsed.toString().split("\n").length;
+  }
+
+  @Test
+  public void recursionIsCollapsed() throws Exception {
+    Assert.assertEquals(appendStacks(5), appendStacks(1000));
+  }
+
+  @Test
+  public void coreGoalsOfDifferentPredicatesAreNotCollapsed() {
+    final List<String> contexts = new ArrayList<>();
+    profiler = Profiler.start(new Profiler.TraceListener() {
+      @Override
+      public void contextCreated(int context, int parentContext, String name) {
+        contexts.add(parentContext + ">" + context + ":" + name);
+      }
+
+      @Override
+      public boolean entered(int context, boolean recursive) {
+        return false;
+      }
+
+      @Override
+      public void answered(int context) {}
+
+      @Override
+      public void exited(int context, long answers) {}
+    });
+    Goal q = Profiler.wrap("q", conj(same(Y, 2), same(X, 1)));
+    Goal p = Profiler.wrap("p", conj(same(X, 1), q));
+    Assert.assertEquals(1, answers(p).size());
+    Assert.assertEquals(
+        Arrays.asList("0>1:p", "1>2:ConjGoal", "2>3:q", "3>4:ConjGoal"), contexts);
+  }
+
+  @Test
+  public void wrappedGoalsAreDumpable() {
+    profiler = Profiler.start();
+    Goal goal = Profiler.wrap("goal", same(X, 1));
+    Assert.assertTrue(goal instanceof Dumpable);
+    Assert.assertEquals("Profiled goal", ((Dumpable) goal).dumpHeading());
+  }
+
+  @Test
+  public void throwingGoalDoesNotLeaveItsContextOpen() {
+    final Map<String, Integer> parents = new HashMap<>();
+    profiler = Profiler.start(new Profiler.TraceListener() {
+      @Override
+      public void contextCreated(int context, int parentContext, String name) {
+        parents.put(name, parentContext);
+      }
+
+      @Override
+      public boolean entered(int context, boolean recursive) {
+        return false;
+      }
+
+      @Override
+      public void answered(int context) {}
+
+      @Override
+      public void exited(int context, long answers) {}
+    });
+    Goal thrower = Profiler.wrap("thrower", new Goal() {
+      @Override
+      public Stream run(Subst s) {
+        throw new IllegalStateException();
+      }
+    });
+    try {
+      conj(same(X, 1), thrower).run(Subst.EMPTY);
+      Assert.fail();
+    } catch (IllegalStateException expected) {
+    }
+    Profiler.wrap("after", same(X, 1)).run(Subst.EMPTY);
+    Assert.assertEquals(Integer.valueOf(0), parents.get("after"));
+  }
+
+  @Test
+  public void reportsAreWritten() throws Exception {
+    profiler = Profiler.start();
+    new LogicAsserter()
+        .stream(Cons.O.append(X, Y, Cons.s(1, 2)))
+        .workUnits(5)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, null).put(Y, Cons.s(1, 2))
+        .startSubst().put(X, Cons.s(1)).put(Y, Cons.s(2))
+        .startSubst().put(X, Cons.s(1, 2)).put(Y, null)
+        .test();
+    profiler.stop();
+
+    StringBuilder flat = new StringBuilder();
+    profiler.writeFlatProfile(flat);
+    String[] flatLines = flat.toString().split("\n");
+    Assert.assertTrue(flatLines[0].contains("self-us"));
+    Assert.assertTrue(flat.toString().contains(" gulava.Cons.Goals.append\n"));
+
+    StringBuilder collapsed = new StringBuilder();
+    profiler.writeCollapsedStacks(collapsed);
+    for (String line : collapsed.toString().split("\n")) {
+      Assert.assertTrue(line, line.matches("gulava\\.Cons\\.Goals\\.append(;[A-Za-z_.]+)* [0-9]+"));
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import static gulava.Goals.conj;
+import static gulava.Goals.same;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class ReifierTest {
+  private static final Var A = new Var();
+  private static final Var B = new Var();
+  private static final Var C = new Var();
+
+  private static Subst solve(Goal goal) {
+    return Streams.first(goal.run(Subst.EMPTY));
+  }
+
+  @Test
+  public void reifyNestedValues() {
+    Subst subst = solve(
+        conj(
+            same(A, Cons.s(1, B)),
+            same(B, Cons.of(2, C)),
+            same(C, null)));
+    Reifier reifier = new Reifier(subst);
+    Assert.assertEquals(Cons.s(1, Cons.s(2)), reifier.reify(A));
+    Assert.assertEquals(Cons.s(2), reifier.reify(B));
+    Assert.assertNull(reifier.reify(C));
+    Assert.assertEquals("foo", reifier.reify("foo"));
+  }
+
+  @Test
+  public void unboundVariablesRemain() {
+    Var unbound = new Var();
+    Subst subst = solve(conj(same(A, B), same(B, Cons.s(unbound))));
+    Assert.assertEquals(Cons.s(unbound), new Reifier(subst).reify(A));
+    Assert.assertSame(unbound, new Reifier(subst).reify(unbound));
+  }
+
+  @Test
+  public void cyclicValue() {
+    Subst subst = Subst.EMPTY.ext(A, Cons.of(1, A));
+    Assert.assertEquals(Cons.of(1, A), new Reifier(subst).reify(A));
+  }
+
+  @Test
+  public void cyclicSequenceThroughSeveralVariables() {
+    Subst subst = solve(conj(same(A, Cons.of(1, B)), same(B, Cons.of(2, A))));
+    Assert.assertEquals(Cons.of(1, Cons.of(2, A)), new Reifier(subst).reify(A));
+  }
+
+  @Test
+  public void longSequence() {
+    Subst subst = Subst.EMPTY;
+    List<Object> expected = new ArrayList<>();
+    Object sequence = null;
+    for (int i = 0; i < 100000; i++) {
+      Var tail = new Var();
+      subst = subst.ext(tail, sequence);
+      sequence = Cons.of(i, tail);
+      expected.add(i);
+    }
+    Collections.reverse(expected);
+    subst = subst.ext(A, sequence);
+    Reifier reifier = new Reifier(subst);
+    Assert.assertEquals(expected, Cons.toList((Cons) reifier.reify(A)));
+    Assert.assertEquals(
+        expected.subList(1, expected.size()),
+        Cons.toList((Cons) reifier.reify(((Cons<?, ?>) sequence).cdr())));
+  }
+
+  @Test
+  public void sharedSubtermsAreReifiedOnce() {
+    Subst subst = solve(same(A, 1));
+    Cons<?, ?> shared = Cons.s(A, A);
+    Cons<?, ?> value = (Cons<?, ?>) new Reifier(subst).reify(Cons.of(shared, shared));
+    Assert.assertEquals(Cons.of(Cons.s(1, 1), Cons.s(1, 1)), value);
+    Assert.assertSame(value.car(), value.cdr());
+  }
+
+  @Test
+  public void entriesAreComputedLazily() {
+    Subst subst = solve(conj(same(A, 1), same(B, Cons.s(A, A))));
+    Iterator<Map.Entry<Var, Object>> entries =
+        new Reifier(subst).entries(Arrays.asList(B, A)).iterator();
+    Map.Entry<Var, Object> entry = entries.next();
+    Assert.assertSame(B, entry.getKey());
+    Assert.assertEquals(Cons.s(1, 1), entry.getValue());
+    entry = entries.next();
+    Assert.assertSame(A, entry.getKey());
+    Assert.assertEquals(1, entry.getValue());
+    Assert.assertFalse(entries.hasNext());
+  }
+
+  @Test
+  public void appendTo() throws Exception {
+    Subst subst = solve(conj(same(A, 1), same(B, Cons.s(A, "x"))));
+    StringBuilder destination = new StringBuilder();
+    new Reifier(subst).appendTo(destination, Arrays.asList(A, B));
+    Assert.assertEquals("{" + A + "=1, " + B + "=[1,x]}", destination.toString());
+  }
+}
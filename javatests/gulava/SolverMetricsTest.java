@@ -0,0 +1,153 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import static gulava.Goals.conj;
+import static gulava.Goals.disj;
+import static gulava.Goals.same;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SolverMetricsTest {
+  private static final Var X = new Var();
+  private static final Var Y = new Var();
+
+  private InMemorySolverMetrics metrics;
+
+  @Before
+  public void installMetrics() {
+    metrics = new InMemorySolverMetrics();
+    Assert.assertSame(SolverMetrics.NONE, SolverMetrics.install(metrics));
+  }
+
+  @After
+  public void uninstallMetrics() {
+    SolverMetrics.install(SolverMetrics.NONE);
+  }
+
+  private static int drain(Stream stream) {
+    int answers = 0;
+    while (stream != Streams.EMPTY) {
+      if (stream.subst() != null) {
+        answers++;
+      }
+      stream = stream.rest();
+    }
+    return answers;
+  }
+
+  private static int steps(Stream stream) {
+    int steps = 0;
+    while (stream != Streams.EMPTY) {
+      steps++;
+      stream = stream.rest();
+    }
+    return steps;
+  }
+
+  @Test
+  public void countsUnificationsAndExtensions() {
+    Subst subst = Subst.EMPTY.unify(X, Y).unify(Y, 1);
+    Assert.assertEquals(2, metrics.unifications());
+    Assert.assertEquals(2, metrics.extensions());
+    Assert.assertEquals(1, metrics.substSizes().bucketCount(1));
+    Assert.assertEquals(1, metrics.substSizes().bucketCount(2));
+    Assert.assertEquals(2, metrics.substSizes().max());
+
+    metrics.reset();
+    Assert.assertNull(subst.unify(X, 2));
+    Assert.assertEquals(1, metrics.unifications());
+    Assert.assertEquals(0, metrics.extensions());
+  }
+
+  @Test
+  public void recordsWalkChainLengths() {
+    Subst subst = Subst.EMPTY.ext(X, Y).ext(Y, 1);
+    metrics.reset();
+    Assert.assertEquals(1, subst.walk(X));
+    Assert.assertEquals(1, subst.walk(Y));
+    Assert.assertEquals(1, subst.walk(1));
+
+    InMemorySolverMetrics.Histogram lengths = metrics.walkChainLengths();
+    Assert.assertEquals(3, lengths.count());
+    Assert.assertEquals(3, lengths.sum());
+    Assert.assertEquals(1, lengths.bucketCount(0));
+    Assert.assertEquals(1, lengths.bucketCount(1));
+    Assert.assertEquals(1, lengths.bucketCount(2));
+    Assert.assertEquals(0, lengths.percentile(0));
+    Assert.assertEquals(1, lengths.percentile(50));
+    Assert.assertEquals(2, lengths.percentile(100));
+  }
+
+  @Test
+  public void countsThunksRealized() {
+    Goal goal = new DelayedGoal(same(X, 1));
+    Assert.assertEquals(1, drain(goal.run(Subst.EMPTY)));
+    Assert.assertEquals(1, metrics.thunksRealized());
+
+    // The streams which interleave or bind the delayed streams are not thunks themselves.
+    Assert.assertEquals(2, drain(goal.run(Subst.EMPTY).mplus(goal.run(Subst.EMPTY))));
+    Assert.assertEquals(3, metrics.thunksRealized());
+
+    Assert.assertEquals(1, drain(conj(goal, new DelayedGoal(same(Y, 2))).run(Subst.EMPTY)));
+    Assert.assertEquals(5, metrics.thunksRealized());
+
+    Assert.assertEquals(1, drain(Streams.metered(goal.run(Subst.EMPTY))));
+    Assert.assertEquals(6, metrics.thunksRealized());
+  }
+
+  @Test
+  public void meteredStreamTakesTheSameSteps() {
+    Goal goal = disj(same(X, 1), new DelayedGoal(same(X, 2)), same(X, 3));
+    Assert.assertEquals(
+        steps(goal.run(Subst.EMPTY)), steps(Streams.metered(goal.run(Subst.EMPTY))));
+  }
+
+  @Test
+  public void meteredStreamReportsAnswersWhenItEnds() {
+    Stream stream = Streams.metered(disj(same(X, 1), same(X, 2), same(X, 3)).run(Subst.EMPTY));
+    Assert.assertEquals(0, metrics.answersPerQuery().count());
+    Assert.assertEquals(3, drain(stream));
+    Assert.assertEquals(1, metrics.answersPerQuery().count());
+    Assert.assertEquals(3, metrics.answersPerQuery().sum());
+    Assert.assertEquals(1, metrics.nanosToFirstAnswer().count());
+
+    Assert.assertEquals(0, drain(Streams.metered(same(1, 2).run(Subst.EMPTY))));
+    Assert.assertEquals(2, metrics.answersPerQuery().count());
+    Assert.assertEquals(1, metrics.answersPerQuery().bucketCount(0));
+    Assert.assertEquals(1, metrics.nanosToFirstAnswer().count());
+  }
+
+  @Test
+  public void uninstalledMetricsSeeNothing() {
+    SolverMetrics.install(SolverMetrics.NONE);
+    Subst.EMPTY.unify(X, 1);
+    Assert.assertEquals(0, metrics.unifications());
+    Assert.assertSame(SolverMetrics.NONE, SolverMetrics.installed());
+  }
+}
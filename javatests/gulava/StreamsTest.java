@@ -49,4 +49,16 @@ public class StreamsTest {
         "  {" + A + " == 42}",
         "  Subst");
   }
+
+  @Test
+  public void firstRealizesImmatureStreams() {
+    Subst first = Streams.first(new DelayedGoal(same(A, 42)).run(Subst.EMPTY));
+    Assert.assertEquals(42, first.walk(A));
+  }
+
+  @Test
+  public void firstOfEmptyStream() {
+    Assert.assertNull(Streams.first(Streams.EMPTY));
+    Assert.assertNull(Streams.first(new DelayedGoal(Goals.FAIL).run(Subst.EMPTY)));
+  }
 }
@@ -35,6 +35,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -66,4 +67,72 @@ public class SubstTest {
         "    Subst",
         "      5=6");
   }
+
+  @Test
+  public void isGround() {
+    Var x = new Var();
+    Var y = new Var();
+    Subst subst = Subst.EMPTY.ext(x, Cons.of(1, y));
+    Assert.assertTrue(subst.isGround(null));
+    Assert.assertTrue(subst.isGround(Cons.s(1, 2, 3)));
+    Assert.assertFalse(subst.isGround(y));
+    Assert.assertFalse(subst.isGround(x));
+    Assert.assertFalse(subst.isGround(Cons.s(1, x)));
+    Assert.assertTrue(subst.ext(y, null).isGround(Cons.s(1, x)));
+  }
+
+  @Test
+  public void isGroundLongList() {
+    Var tail = new Var();
+    Object list = tail;
+    for (int i = 0; i < 100000; i++) {
+      list = Cons.of(Cons.s(i), list);
+    }
+    Assert.assertFalse(Subst.EMPTY.isGround(list));
+    Assert.assertTrue(Subst.EMPTY.ext(tail, null).isGround(list));
+  }
+
+  @Test
+  public void walkVarBoundToNull() {
+    Var x = new Var();
+    Var y = new Var();
+    Subst subst = Subst.EMPTY.ext(x, y).ext(y, null);
+    Assert.assertNull(subst.walk(x));
+    Assert.assertSame(y, Subst.EMPTY.ext(x, y).walk(x));
+  }
+
+  @Test
+  public void unifyIdenticalReferencesReturnsSameSubst() {
+    Var x = new Var();
+    Subst subst = Subst.EMPTY.ext(x, 42);
+    Cons<?, ?> list = Cons.s("lambda", x);
+    Assert.assertSame(subst, subst.unify(list, list));
+    Assert.assertSame(subst, subst.unify("car", "car"));
+    Assert.assertSame(subst, subst.unify(x, 42));
+    Assert.assertNull(subst.unify(x, 43));
+  }
+
+  @Test
+  public void compactKeepsReachableBindings() {
+    Var a = new Var();
+    Var b = new Var();
+    Var c = new Var();
+    Var d = new Var();
+    Object cacheKey = new Object();
+    Subst subst = Subst.EMPTY
+        .ext(a, Cons.s(b, 1))
+        .ext(b, c)
+        .ext(c, null)
+        .ext(d, 42)
+        .ext(cacheKey, true);
+
+    Subst compacted = subst.compact(Arrays.asList(a));
+    Assert.assertEquals(4, compacted.size());
+    Assert.assertFalse(compacted.containsKey(d));
+    Assert.assertEquals(true, compacted.get(cacheKey));
+    Assert.assertEquals(
+        new Reifier(subst).reify(a), new Reifier(compacted).reify(a));
+
+    Assert.assertSame(subst, subst.compact(Arrays.asList(a, d)));
+  }
 }
@@ -0,0 +1,209 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava;
+
+import gulava.util.Count;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class TermEncoderTest {
+  private static byte[] encode(Object... terms) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TermEncoder encoder = new TermEncoder(new DataOutputStream(bytes));
+    for (Object term : terms) {
+      encoder.write(term);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static TermDecoder decoder(byte[] bytes) {
+    return new TermDecoder(new DataInputStream(new ByteArrayInputStream(bytes)));
+  }
+
+  private static Object roundTrip(Object term) throws IOException {
+    return decoder(encode(term)).read();
+  }
+
+  @Test
+  public void plainValues() throws IOException {
+    List<Object> values = Arrays.<Object>asList(
+        null, 0, -1, 42, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, 1L << 40, 2.5,
+        true, false, "", "h\u00e9llo");
+    for (Object value : values) {
+      Assert.assertEquals(value, roundTrip(value));
+    }
+  }
+
+  @Test
+  public void logicValues() throws IOException {
+    Object term = Cons.list(Arrays.asList(Count.fromInt(3), Cons.of("a", "b"), null, 7));
+    Assert.assertEquals(term, roundTrip(term));
+    Assert.assertEquals(Count.fromInt(5), roundTrip(Count.fromInt(5)));
+  }
+
+  @Test
+  public void varsAreRenumberedAndShared() throws IOException {
+    Var a = new Var();
+    Var b = new Var();
+    Cons<?, ?> decoded = (Cons<?, ?>) roundTrip(Cons.list(Arrays.asList(a, b, a)));
+    Object decodedA = decoded.car();
+    Object decodedB = ((Cons<?, ?>) decoded.cdr()).car();
+    Assert.assertTrue(decodedA instanceof Var);
+    Assert.assertTrue(decodedB instanceof Var);
+    Assert.assertNotSame(a, decodedA);
+    Assert.assertNotSame(decodedA, decodedB);
+    Assert.assertSame(decodedA, ((Cons<?, ?>) ((Cons<?, ?>) decoded.cdr()).cdr()).car());
+  }
+
+  @Test
+  public void varNumbersDoNotDependOnCreationOrder() throws IOException {
+    for (int i = 0; i < 1000; i++) {
+      new Var();
+    }
+    Assert.assertArrayEquals(encode(new Var(), new Var()), encode(new Var(), new Var()));
+  }
+
+  @Test
+  public void sharedValuesAreWrittenOnce() throws IOException {
+    Object shared = Cons.list(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8));
+    Object pair = Cons.of(shared, shared);
+    Object copies = Cons.of(Cons.list(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8)), shared);
+
+    Assert.assertTrue(encode(pair).length < encode(copies).length);
+    Cons<?, ?> decoded = (Cons<?, ?>) decoder(encode(pair)).read();
+    Assert.assertEquals(pair, decoded);
+    Assert.assertSame(decoded.car(), decoded.cdr());
+  }
+
+  @Test
+  public void sharingSpansTerms() throws IOException {
+    Object shared = Count.fromInt(4);
+    TermDecoder decoder = decoder(encode(shared, Cons.of(shared, null)));
+    Object first = decoder.read();
+    Assert.assertSame(first, ((Cons<?, ?>) decoder.read()).car());
+  }
+
+  @Test
+  public void stringsAreWrittenOnceAndShared() throws IOException {
+    String word = new String(new char[] {'w', 'o', 'r', 'd'});
+    Assert.assertTrue(encode(word, word).length < 2 * encode(word).length);
+
+    TermDecoder decoder = decoder(encode(word, new String(word)));
+    Object first = decoder.read();
+    Assert.assertEquals("word", first);
+    Assert.assertSame(first, decoder.read());
+  }
+
+  @Test
+  public void longList() throws IOException {
+    Integer[] elements = new Integer[200000];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = i;
+    }
+    Object decoded = roundTrip(Cons.list(Arrays.asList(elements)));
+
+    // Compare iteratively, since equals() on a list this long would recurse too deeply.
+    for (Integer element : elements) {
+      Cons<?, ?> cell = (Cons<?, ?>) decoded;
+      Assert.assertEquals(element, cell.car());
+      decoded = cell.cdr();
+    }
+    Assert.assertNull(decoded);
+  }
+
+  @Test
+  public void subst() throws IOException {
+    Var x = new Var();
+    Var y = new Var();
+    Subst subst = Subst.EMPTY
+        .unify(x, Cons.of(y, "tail"))
+        .unify(y, Count.fromInt(2));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TermEncoder encoder = new TermEncoder(new DataOutputStream(bytes));
+    encoder.writeSubst(subst);
+    encoder.write(x);
+    TermDecoder decoder = decoder(bytes.toByteArray());
+    Subst decodedSubst = decoder.readSubst();
+    Var decodedX = (Var) decoder.read();
+
+    Assert.assertEquals(2, decodedSubst.size());
+    Assert.assertEquals(
+        Cons.of(Count.fromInt(2), "tail"), new Reifier(decodedSubst).reify(decodedX));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unsupportedValue() throws IOException {
+    encode(Cons.of(new Object(), null));
+  }
+
+  @Test(expected = IOException.class)
+  public void unknownTag() throws IOException {
+    decoder(new byte[] {(byte) 0xff}).read();
+  }
+
+  @Test(expected = IOException.class)
+  public void negativeStringLength() throws IOException {
+    byte[] minusOne = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f};
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(TermFormat.STRING);
+    bytes.write(minusOne);
+    decoder(bytes.toByteArray()).read();
+  }
+
+  static boolean notEncodableInitialized;
+
+  static final class NotEncodable {
+    static {
+      notEncodableInitialized = true;
+    }
+  }
+
+  @Test
+  public void doesNotInitializeClassesWhichAreNotEncodable() throws IOException {
+    byte[] name = NotEncodable.class.getName().getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(TermFormat.VALUE);
+    bytes.write(TermFormat.STRING);
+    bytes.write(name.length);
+    bytes.write(name);
+    try {
+      decoder(bytes.toByteArray()).read();
+      Assert.fail();
+    } catch (IOException expected) {
+    }
+    Assert.assertFalse(notEncodableInitialized);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.benchmarks;
+
+import gulava.Cons;
+import gulava.Goal;
+import gulava.Goals;
+import gulava.Stream;
+import gulava.Streams;
+import gulava.Subst;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point and shared helpers of the JMH benchmarks of the core engine. Runs the benchmarks
+ * selected by the usual JMH command line arguments, and always adds the GC profiler so that
+ * allocation rates ({@code gc.alloc.rate.norm}, in bytes per operation) are reported next to the
+ * timings.
+ *
+ * <p>Usage: {@code bazel run //javatests/gulava/benchmarks -- [JMH options] [benchmark regex]},
+ * e.g. {@code -p size=100 ConsBenchmark}.
+ */
+public final class Benchmarks {
+  private Benchmarks() {}
+
+  /**
+   * Realizes {@code stream} until it ends, passing each solution to {@code blackhole}. Returns the
+   * number of solutions.
+   */
+  public static int drain(Stream stream, Blackhole blackhole) {
+    int solutions = 0;
+    while (stream != Streams.EMPTY) {
+      Subst subst = stream.subst();
+      if (subst != null) {
+        blackhole.consume(subst);
+        solutions++;
+      }
+      stream = stream.rest();
+    }
+    return solutions;
+  }
+
+  /**
+   * Realizes {@code stream} until it ends or {@code count} solutions have been found, passing each
+   * solution to {@code blackhole}.
+   */
+  public static void take(Stream stream, int count, Blackhole blackhole) {
+    while ((count > 0) && (stream != Streams.EMPTY)) {
+      Subst subst = stream.subst();
+      if (subst != null) {
+        blackhole.consume(subst);
+        count--;
+      }
+      stream = stream.rest();
+    }
+  }
+
+  /**
+   * Returns the list {@code [0, 1, ..., size - 1]}.
+   */
+  public static Cons<?, ?> range(int size) {
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      values.add(i);
+    }
+    return Cons.list(values);
+  }
+
+  /**
+   * Returns the conjunction of {@code goals}, which must have at least one element.
+   */
+  public static Goal conj(List<Goal> goals) {
+    if (goals.size() == 1) {
+      return goals.get(0);
+    }
+    return Goals.conj(goals.get(0), goals.get(1),
+        goals.subList(2, goals.size()).toArray(new Goal[0]));
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build())
+        .run();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.benchmarks;
+
+import gulava.Cons;
+import gulava.Subst;
+import gulava.Var;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Cons#O} predicates. {@code append} is run in each mode: with both
+ * inputs known, with the result and first input known, and with only the result known, which
+ * enumerates every split of the list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsBenchmark {
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  private Cons<?, ?> firstHalf;
+  private Cons<?, ?> secondHalf;
+  private Cons<?, ?> whole;
+
+  @Setup
+  public void setUp() {
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      values.add(i);
+    }
+    firstHalf = Cons.list(values.subList(0, size / 2));
+    secondHalf = Cons.list(values.subList(size / 2, size));
+    whole = Cons.list(values);
+  }
+
+  @Benchmark
+  public int appendForward(Blackhole blackhole) {
+    return Benchmarks.drain(
+        Cons.O.append(firstHalf, secondHalf, new Var()).run(Subst.EMPTY), blackhole);
+  }
+
+  @Benchmark
+  public int appendSuffix(Blackhole blackhole) {
+    return Benchmarks.drain(
+        Cons.O.append(firstHalf, new Var(), whole).run(Subst.EMPTY), blackhole);
+  }
+
+  @Benchmark
+  public int appendSplits(Blackhole blackhole) {
+    return Benchmarks.drain(
+        Cons.O.append(new Var(), new Var(), whole).run(Subst.EMPTY), blackhole);
+  }
+
+  @Benchmark
+  public int reverse(Blackhole blackhole) {
+    return Benchmarks.drain(Cons.O.reverse(whole, new Var()).run(Subst.EMPTY), blackhole);
+  }
+}
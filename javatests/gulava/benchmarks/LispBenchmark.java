@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.benchmarks;
+
+import static gulava.Cons.s;
+
+import gulava.Subst;
+import gulava.Var;
+import gulava.lisp.Lisp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link Lisp#eval(Object, Object, Object)}, forward on an expression which nests
+ * {@code size} lambda invocations, and backward, finding the first {@code size} expressions that
+ * evaluate to a given list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LispBenchmark {
+  private static final Object I_LOVE_YOU = s("I", "LOVE", "YOU");
+
+  @Param({"1", "5", "20"})
+  public int size;
+
+  /** An expression which evaluates to {@link #I_LOVE_YOU} through nested lambda invocations. */
+  private Object nestedLambdas;
+
+  @Setup
+  public void setUp() {
+    Object expression = s("quote", I_LOVE_YOU);
+    for (int i = 0; i < size; i++) {
+      expression = s(s("lambda", s("car", "env")), expression);
+    }
+    nestedLambdas = expression;
+  }
+
+  @Benchmark
+  public int evalForward(Blackhole blackhole) {
+    return Benchmarks.drain(
+        Lisp.O.eval(nestedLambdas, null, new Var()).run(Subst.EMPTY), blackhole);
+  }
+
+  @Benchmark
+  public void evalBackward(Blackhole blackhole) {
+    Benchmarks.take(Lisp.O.eval(new Var(), null, I_LOVE_YOU).run(Subst.EMPTY), size, blackhole);
+  }
+}
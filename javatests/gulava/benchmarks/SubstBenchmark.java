@@ -0,0 +1,124 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.benchmarks;
+
+import gulava.Cons;
+import gulava.Subst;
+import gulava.Var;
+import gulava.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link Subst} operations and of building a {@link View}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubstBenchmark {
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  /** The first variable of a chain of {@link #size} variables, each bound to the next. */
+  private Var chainHead;
+  private Subst chain;
+
+  /** {@link #size} fresh variables, as a Java list and as a logic list. */
+  private List<Var> vars;
+  private Cons<?, ?> varList;
+
+  /** A list of integers of the same length as {@link #varList}. */
+  private Cons<?, ?> intList;
+
+  /** {@link #varList} unified with {@link #intList}. */
+  private Subst listBindings;
+
+  @Setup
+  public void setUp() {
+    chainHead = new Var();
+    chain = Subst.EMPTY;
+    Var var = chainHead;
+    for (int i = 1; i < size; i++) {
+      Var next = new Var();
+      chain = chain.ext(var, next);
+      var = next;
+    }
+    chain = chain.ext(var, "end");
+
+    vars = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      vars.add(new Var());
+    }
+    varList = Cons.list(vars);
+    intList = Benchmarks.range(size);
+    listBindings = Subst.EMPTY.unify(varList, intList);
+  }
+
+  @Benchmark
+  public Object walkChain() {
+    return chain.walk(chainHead);
+  }
+
+  @Benchmark
+  public Subst unifyLists() {
+    return Subst.EMPTY.unify(varList, intList);
+  }
+
+  @Benchmark
+  public Subst unifyBoundLists() {
+    return listBindings.unify(varList, intList);
+  }
+
+  @Benchmark
+  public Subst extMany() {
+    Subst subst = Subst.EMPTY;
+    for (Var var : vars) {
+      subst = subst.ext(var, size);
+    }
+    return subst;
+  }
+
+  @Benchmark
+  public View buildView() {
+    return new View.Builder()
+        .setSubst(listBindings)
+        .addAllRequestedVars(vars)
+        .build();
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+import static gulava.Goals.conj;
+import static gulava.Goals.same;
+
+import gulava.Cons;
+import gulava.Functor;
+import gulava.Var;
+import gulava.testing.LogicAsserter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class MappedRelationTest {
+  private static final Var X = new Var();
+  private static final Var Y = new Var();
+
+  private static final List<List<?>> PARENT = Arrays.<List<?>>asList(
+      Arrays.asList("alice", "bob", 1970),
+      Arrays.asList("alice", "carol", 1972),
+      Arrays.asList("bob", "dave", 1995),
+      Arrays.asList("carol", "erin", 1999),
+      Arrays.asList("erin", "dave", 2020));
+
+  private Path file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = Files.createTempFile("MappedRelationTest", ".rel");
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    Files.delete(file);
+  }
+
+  private MappedRelation parent() throws IOException {
+    MappedRelation.write(file, "parent", 3, PARENT, 0, 1, 2);
+    return MappedRelation.open(file);
+  }
+
+  @Test
+  public void header() throws IOException {
+    MappedRelation parent = parent();
+    Assert.assertEquals("parent", parent.name());
+    Assert.assertEquals(3, parent.arity());
+    Assert.assertEquals(5, parent.size());
+  }
+
+  @Test
+  public void lookups() throws IOException {
+    MappedRelation parent = parent();
+    new LogicAsserter()
+        .stream(parent.lookup("alice", X, Y))
+        .workUnits(2)
+        .finishes(true)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, "bob").put(Y, 1970)
+        .startSubst().put(X, "carol").put(Y, 1972)
+        .test();
+    new LogicAsserter()
+        .stream(parent.lookup(X, "dave", Y))
+        .workUnits(2)
+        .finishes(true)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, "bob").put(Y, 1995)
+        .startSubst().put(X, "erin").put(Y, 2020)
+        .test();
+    new LogicAsserter()
+        .stream(parent.lookup(X, Y, 1999))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, "carol").put(Y, "erin")
+        .test();
+  }
+
+  @Test
+  public void keysWhichMatchNothing() throws IOException {
+    MappedRelation parent = parent();
+    for (Object key : Arrays.asList("zed", 1970, null, Cons.s("alice"), 1.5)) {
+      new LogicAsserter()
+          .stream(parent.lookup(key, X, Y))
+          .workUnits(0)
+          .finishes(true)
+          .test();
+    }
+    new LogicAsserter()
+        .stream(parent.lookup(X, Y, "1970"))
+        .workUnits(0)
+        .finishes(true)
+        .test();
+  }
+
+  @Test
+  public void scanAndJoin() throws IOException {
+    MappedRelation parent = parent();
+    Var grandchild = new Var();
+    new LogicAsserter()
+        .stream(conj(parent.lookup("alice", X, new Var()), parent.lookup(X, grandchild, new Var())))
+        .workUnits(6)
+        .finishes(true)
+        .addRequestedVar(grandchild)
+        .startSubst().put(grandchild, "dave")
+        .startSubst().put(grandchild, "erin")
+        .test();
+    Assert.assertEquals(5, new LogicAsserter()
+        .stream(parent.lookup(new Var(), new Var(), new Var()))
+        .workUnits(5)
+        .finishes(true)
+        .actualSubsts()
+        .size());
+  }
+
+  @Test
+  public void listsAndMixedColumns() throws IOException {
+    List<List<?>> tuples = Arrays.<List<?>>asList(
+        Arrays.asList(1, Cons.s("a", Cons.s(1, 2), null)),
+        Arrays.asList("two", Cons.s("b")),
+        Arrays.asList(3, null),
+        Arrays.asList(4, Cons.s("a", Cons.s(1, 2), null)));
+    MappedRelation.write(file, "mixed", 2, tuples, 0, 1);
+    MappedRelation mixed = MappedRelation.open(file);
+
+    new LogicAsserter()
+        .stream(mixed.lookup(X, Cons.s("a", Cons.s(1, 2), null)))
+        .workUnits(2)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, 1)
+        .startSubst().put(X, 4)
+        .test();
+    new LogicAsserter()
+        .stream(mixed.lookup(X, Cons.s(Y, Cons.s(1, 2), null)))
+        .workUnits(2)
+        .finishes(true)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, 1).put(Y, "a")
+        .startSubst().put(X, 4).put(Y, "a")
+        .test();
+    new LogicAsserter()
+        .stream(conj(same(Y, "two"), mixed.lookup(Y, X)))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, Cons.s("b"))
+        .test();
+    new LogicAsserter()
+        .stream(mixed.lookup(X, null))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, 3)
+        .test();
+  }
+
+  @Test
+  public void manyRows() throws IOException {
+    List<List<?>> tuples = new ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      tuples.add(Arrays.asList(i, "n" + (i % 1000)));
+    }
+    MappedRelation.write(file, "numbers", 2, tuples, 0, 1);
+    MappedRelation numbers = MappedRelation.open(file);
+    new LogicAsserter()
+        .stream(numbers.lookup(12345, X))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, "n345")
+        .test();
+    Assert.assertEquals(20, new LogicAsserter()
+        .stream(numbers.lookup(X, "n999"))
+        .workUnits(20)
+        .finishes(true)
+        .actualSubsts()
+        .size());
+  }
+
+  @Test
+  public void valuesSpanningSegments() throws IOException {
+    List<List<?>> tuples = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      tuples.add(Arrays.asList(i, "value number " + (i % 50), Cons.s(i, "n" + i)));
+    }
+    MappedRelation.write(file, "spanning", 3, tuples, 0, 1);
+    MappedRelation spanning = MappedRelation.open(file, 16);
+    Assert.assertEquals("spanning", spanning.name());
+    new LogicAsserter()
+        .stream(spanning.lookup(321, X, Y))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, "value number 21").put(Y, Cons.s(321, "n321"))
+        .test();
+    Assert.assertEquals(10, new LogicAsserter()
+        .stream(spanning.lookup(X, "value number 7", Y))
+        .workUnits(10)
+        .finishes(true)
+        .actualSubsts()
+        .size());
+  }
+
+  @Test
+  public void otherEncodableValues() throws IOException {
+    List<List<?>> tuples = Arrays.<List<?>>asList(
+        Arrays.asList(1L << 40, Functor.of("point", 1, 2.5)),
+        Arrays.asList(true, Functor.of("point", 3, "x")));
+    MappedRelation.write(file, "other", 2, tuples, 0, 1);
+    MappedRelation other = MappedRelation.open(file);
+    new LogicAsserter()
+        .stream(other.lookup(X, Functor.of("point", Y, "x")))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, true).put(Y, 3)
+        .test();
+    new LogicAsserter()
+        .stream(other.lookup(1L << 40, X))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, Functor.of("point", 1, 2.5))
+        .test();
+  }
+
+  @Test
+  public void rejectsValuesWhichCannotBeStored() throws IOException {
+    for (Object value : Arrays.asList(new Object(), Cons.s(1, new Var()))) {
+      try {
+        MappedRelation.write(file, "r", 1, Arrays.<List<?>>asList(Arrays.asList(value)));
+        Assert.fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void rejectsOtherFiles() throws IOException {
+    Files.write(file, new byte[64]);
+    try {
+      MappedRelation.open(file);
+      Assert.fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
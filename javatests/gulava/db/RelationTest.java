@@ -0,0 +1,234 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.db;
+
+import static gulava.Goals.conj;
+import static gulava.Goals.same;
+
+import gulava.Cons;
+import gulava.Stream;
+import gulava.Streams;
+import gulava.Subst;
+import gulava.Var;
+import gulava.testing.LogicAsserter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class RelationTest {
+  private static final Var X = new Var();
+  private static final Var Y = new Var();
+
+  private static final Relation PARENT = new Relation.Builder("parent", 2)
+      .addHashIndex(0)
+      .addSortedIndex(1)
+      .add("alice", "bob")
+      .add("alice", "carol")
+      .add("bob", "dave")
+      .add("carol", "erin")
+      .add("erin", "dave")
+      .build();
+
+  @Test
+  public void lookupByHashIndex() {
+    new LogicAsserter()
+        .stream(PARENT.lookup("alice", X))
+        .workUnits(2)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, "bob")
+        .startSubst().put(X, "carol")
+        .test();
+  }
+
+  @Test
+  public void lookupBySortedIndex() {
+    new LogicAsserter()
+        .stream(PARENT.lookup(X, "dave"))
+        .workUnits(2)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, "bob")
+        .startSubst().put(X, "erin")
+        .test();
+  }
+
+  @Test
+  public void lookupWithBothBound() {
+    new LogicAsserter()
+        .stream(PARENT.lookup("carol", "erin"))
+        .workUnits(1)
+        .finishes(true)
+        .startSubst()
+        .test();
+    new LogicAsserter()
+        .stream(PARENT.lookup("carol", "bob"))
+        .workUnits(0)
+        .finishes(true)
+        .test();
+  }
+
+  @Test
+  public void scanWhenNothingIsBound() {
+    new LogicAsserter()
+        .stream(PARENT.lookup(X, Y))
+        .workUnits(5)
+        .finishes(true)
+        .addRequestedVar(X, Y)
+        .startSubst().put(X, "alice").put(Y, "bob")
+        .startSubst().put(X, "alice").put(Y, "carol")
+        .startSubst().put(X, "bob").put(Y, "dave")
+        .startSubst().put(X, "carol").put(Y, "erin")
+        .startSubst().put(X, "erin").put(Y, "dave")
+        .test();
+  }
+
+  @Test
+  public void argumentsBoundByEarlierGoals() {
+    Var grandchild = new Var();
+    new LogicAsserter()
+        .stream(conj(PARENT.lookup("alice", X), PARENT.lookup(X, grandchild)))
+        .workUnits(6)
+        .finishes(true)
+        .addRequestedVar(grandchild)
+        .startSubst().put(grandchild, "dave")
+        .startSubst().put(grandchild, "erin")
+        .test();
+  }
+
+  @Test
+  public void sortedIndexWithKeyOfOtherType() {
+    new LogicAsserter()
+        .stream(PARENT.lookup(X, 42))
+        .workUnits(0)
+        .finishes(true)
+        .test();
+  }
+
+  @Test
+  public void partiallyBoundLogicValues() {
+    Relation pairs = new Relation.Builder("pairs", 1)
+        .addHashIndex(0)
+        .add(Cons.list(Arrays.asList(1, 2)))
+        .add(Cons.list(Arrays.asList(1, 3)))
+        .add(Cons.list(Arrays.asList(2, 3)))
+        .build();
+    new LogicAsserter()
+        .stream(pairs.lookup(Cons.list(Arrays.asList(1, X))))
+        .workUnits(2)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, 2)
+        .startSubst().put(X, 3)
+        .test();
+    new LogicAsserter()
+        .stream(conj(same(Y, 3), pairs.lookup(Cons.list(Arrays.asList(2, Y)))))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(Y)
+        .startSubst().put(Y, 3)
+        .test();
+  }
+
+  @Test
+  public void bulkLoadedLookupTakesOneStep() {
+    List<List<?>> tuples = new ArrayList<>();
+    for (int i = 0; i < 100000; i++) {
+      tuples.add(Arrays.asList(i, "n" + i));
+    }
+    Relation numbers = new Relation.Builder("numbers", 2)
+        .addSortedIndex(0)
+        .addHashIndex(1)
+        .ensureCapacity(tuples.size())
+        .addAll(tuples)
+        .build();
+    Assert.assertEquals(100000, numbers.size());
+    new LogicAsserter()
+        .stream(numbers.lookup(X, "n65536"))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, 65536)
+        .test();
+    new LogicAsserter()
+        .stream(numbers.lookup(99999, X))
+        .workUnits(1)
+        .finishes(true)
+        .addRequestedVar(X)
+        .startSubst().put(X, "n99999")
+        .test();
+  }
+
+  @Test
+  public void unindexedScanTakesAStepPerBlockOfRows() {
+    Relation.Builder builder = new Relation.Builder("numbers", 2);
+    for (int i = 0; i < 1000; i++) {
+      builder.add(i, i % 500);
+    }
+    Relation numbers = builder.build();
+    int steps = 0;
+    List<Object> answers = new ArrayList<>();
+    for (Stream stream = numbers.lookup(X, 499).run(Subst.EMPTY); stream != Streams.EMPTY;
+        stream = stream.rest()) {
+      if (stream.subst() != null) {
+        answers.add(stream.subst().walk(X));
+      }
+      steps++;
+    }
+    Assert.assertEquals(Arrays.<Object>asList(499, 999), answers);
+    Assert.assertEquals(1000 / Relation.ROWS_PER_STEP + 1, steps);
+  }
+
+  @Test
+  public void rejectsTuplesWhichAreNotGround() {
+    Relation.Builder builder = new Relation.Builder("r", 2);
+    try {
+      builder.add(1, Cons.list(Arrays.asList(X)));
+      Assert.fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      builder.add(1);
+      Assert.fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void sortedIndexNeedsComparableValues() {
+    Relation.Builder builder = new Relation.Builder("r", 1)
+        .addSortedIndex(0)
+        .add(Cons.list(Arrays.asList(1)));
+    try {
+      builder.build();
+      Assert.fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
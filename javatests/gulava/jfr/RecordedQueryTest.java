@@ -0,0 +1,216 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.jfr;
+
+import static gulava.Goals.disj;
+import static gulava.Goals.same;
+
+import gulava.Cons;
+import gulava.DelayedGoal;
+import gulava.Goal;
+import gulava.Stream;
+import gulava.Subst;
+import gulava.Var;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@RunWith(JUnit4.class)
+public class RecordedQueryTest {
+  private static final Var X = new Var();
+  private static final Var Y = new Var();
+
+  private Recording recording;
+
+  @Before
+  public void startRecording() {
+    recording = new Recording();
+    recording.enable(QueryEvent.class);
+    recording.enable(AnswerEvent.class);
+    recording.enable(BudgetExhaustedEvent.class);
+    recording.enable(PredicateCallEvent.class);
+    recording.start();
+  }
+
+  @After
+  public void closeRecording() {
+    PredicateCallSampler.uninstall();
+    recording.close();
+  }
+
+  /**
+   * Stops the recording if it is running and returns the events of type {@code name} in it.
+   */
+  private List<RecordedEvent> events(String name) throws IOException {
+    if (recording.getState() == RecordingState.RUNNING) {
+      recording.stop();
+    }
+    Path file = Files.createTempFile("RecordedQueryTest", ".jfr");
+    try {
+      recording.dump(file);
+      List<RecordedEvent> events = new ArrayList<>();
+      for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+        if (event.getEventType().getName().equals(name)) {
+          events.add(event);
+        }
+      }
+      return events;
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static Goal order() {
+    return Cons.O.order(Cons.list(Arrays.asList(X, Y)), Cons.list(Arrays.asList(1, 2, 3)));
+  }
+
+  @Test
+  public void recordsQueryAndAnswers() throws IOException {
+    RecordedQuery query = new RecordedQuery(disj(same(X, 1), same(X, 2), same(X, 3)), 100);
+    int answers = 0;
+    while (query.next() != null) {
+      answers++;
+    }
+    Assert.assertEquals(3, answers);
+    Assert.assertEquals(3, query.answers());
+    Assert.assertFalse(query.budgetExhausted());
+
+    List<RecordedEvent> queries = events("gulava.Query");
+    Assert.assertEquals(1, queries.size());
+    Assert.assertEquals(3, queries.get(0).getInt("answers"));
+    Assert.assertEquals(query.steps(), queries.get(0).getLong("steps"));
+    Assert.assertFalse(queries.get(0).getBoolean("budgetExhausted"));
+
+    List<RecordedEvent> answerEvents = events("gulava.Answer");
+    Assert.assertEquals(3, answerEvents.size());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(i, answerEvents.get(i).getInt("index"));
+      Assert.assertEquals(1, answerEvents.get(i).getInt("substSize"));
+    }
+    Assert.assertTrue(events("gulava.BudgetExhausted").isEmpty());
+  }
+
+  @Test
+  public void recordsBudgetExhausted() throws IOException {
+    RecordedQuery query = new RecordedQuery(order(), 2);
+    while (query.next() != null) {}
+    Assert.assertTrue(query.budgetExhausted());
+    Assert.assertEquals(2, query.steps());
+    Assert.assertEquals(2, query.answers());
+
+    List<RecordedEvent> exhausted = events("gulava.BudgetExhausted");
+    Assert.assertEquals(1, exhausted.size());
+    Assert.assertEquals(2, exhausted.get(0).getLong("budget"));
+    Assert.assertEquals(2, exhausted.get(0).getInt("answers"));
+    Assert.assertTrue(events("gulava.Query").get(0).getBoolean("budgetExhausted"));
+  }
+
+  @Test
+  public void recordsFailureOfGoal() throws IOException {
+    try {
+      new RecordedQuery(new Goal() {
+        @Override
+        public Stream run(Subst s) {
+          throw new IllegalStateException("broken goal");
+        }
+      }, 100);
+      Assert.fail();
+    } catch (IllegalStateException expected) {
+    }
+
+    List<RecordedEvent> queries = events("gulava.Query");
+    Assert.assertEquals(1, queries.size());
+    Assert.assertEquals(
+        "java.lang.IllegalStateException: broken goal", queries.get(0).getString("failure"));
+  }
+
+  @Test
+  public void recordsFailureOfStream() throws IOException {
+    RecordedQuery query = new RecordedQuery(new DelayedGoal(new Goal() {
+      @Override
+      public Stream run(Subst s) {
+        throw new IllegalStateException("broken stream");
+      }
+    }), 100);
+    try {
+      query.next();
+      Assert.fail();
+    } catch (IllegalStateException expected) {
+    }
+    Assert.assertNull(query.next());
+
+    List<RecordedEvent> queries = events("gulava.Query");
+    Assert.assertEquals(1, queries.size());
+    Assert.assertEquals(1, queries.get(0).getLong("steps"));
+    Assert.assertEquals(
+        "java.lang.IllegalStateException: broken stream", queries.get(0).getString("failure"));
+  }
+
+  @Test
+  public void closeEndsQueryEarly() throws IOException {
+    RecordedQuery query = new RecordedQuery(order(), 100);
+    Assert.assertNotNull(query.next());
+    query.close();
+    Assert.assertNull(query.next());
+
+    List<RecordedEvent> queries = events("gulava.Query");
+    Assert.assertEquals(1, queries.size());
+    Assert.assertEquals(1, queries.get(0).getInt("answers"));
+  }
+
+  @Test
+  public void samplesPredicateCalls() throws IOException {
+    PredicateCallSampler.install(1);
+    RecordedQuery unsampled = new RecordedQuery(order(), 100);
+    while (unsampled.next() != null) {}
+    int calls = events("gulava.PredicateCall").size();
+    Assert.assertTrue(calls > 0);
+
+    recording.close();
+    startRecording();
+    PredicateCallSampler.install(2);
+    RecordedQuery sampled = new RecordedQuery(order(), 100);
+    while (sampled.next() != null) {}
+    List<RecordedEvent> samples = events("gulava.PredicateCall");
+    Assert.assertEquals(calls / 2, samples.size());
+    for (RecordedEvent sample : samples) {
+      Assert.assertEquals(2, sample.getInt("samplingInterval"));
+      Assert.assertFalse(sample.getString("name").isEmpty());
+    }
+  }
+}
@@ -24,7 +24,11 @@ package gulava.processor;
 import static gulava.Goals.conj;
 import static gulava.Goals.same;
 
+import gulava.BufferDecoder;
+import gulava.BufferEncoder;
 import gulava.LogicValue;
+import gulava.TermDecoder;
+import gulava.TermEncoder;
 import gulava.Var;
 import gulava.annotation.MakeLogicValue;
 import gulava.testing.LogicAsserter;
@@ -34,10 +38,18 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -205,4 +217,98 @@ public class MakeLogicValueFunctionalTest {
     checkTypeAndConstructorModifiers(
         MakeLogicValue_MakeLogicValueFunctionalTest_HasNoFields2.class);
   }
+
+  @MakeLogicValue
+  abstract static class HasPrimitiveFields<L> {
+    abstract int count();
+    abstract double weight();
+    abstract L label();
+
+    static <L> HasPrimitiveFields<L> of(int count, double weight, L label) {
+      return new MakeLogicValue_MakeLogicValueFunctionalTest_HasPrimitiveFields<>(
+          count, weight, label);
+    }
+  }
+
+  @Test
+  public void unifyPrimitiveFields() {
+    new LogicAsserter()
+        .stream(same(HasPrimitiveFields.of(3, 1.5, X), HasPrimitiveFields.of(3, 1.5, "x")))
+        .workUnits(1)
+        .addRequestedVar(X)
+        .startSubst()
+        .put(X, "x")
+        .test();
+
+    new LogicAsserter()
+        .stream(same(HasPrimitiveFields.of(3, 1.5, X), HasPrimitiveFields.of(4, 1.5, "x")))
+        .workUnits(0)
+        .test();
+
+    new LogicAsserter()
+        .stream(same(HasPrimitiveFields.of(3, 1.5, X), HasPrimitiveFields.of(3, 2.5, "x")))
+        .workUnits(0)
+        .test();
+  }
+
+  @Test
+  public void primitiveFieldsEqualityMatchesBoxedValues() {
+    Assert.assertEquals(HasPrimitiveFields.of(1, Double.NaN, "a"),
+        HasPrimitiveFields.of(1, Double.NaN, "a"));
+    Assert.assertNotEquals(HasPrimitiveFields.of(1, 0.0, "a"), HasPrimitiveFields.of(1, -0.0, "a"));
+    Assert.assertNotEquals(HasPrimitiveFields.of(1, 0.0, "a"), HasPrimitiveFields.of(2, 0.0, "a"));
+    Assert.assertEquals(HasPrimitiveFields.of(7, 2.5, null).hashCode(),
+        HasPrimitiveFields.of(7, 2.5, null).hashCode());
+
+    Map<String, Object> expectedMap = new HashMap<>();
+    expectedMap.put("count", 7);
+    expectedMap.put("weight", 2.5);
+    expectedMap.put("label", null);
+    Assert.assertEquals(expectedMap, ((LogicValue) HasPrimitiveFields.of(7, 2.5, null)).asMap());
+    Assert.assertEquals("HasPrimitiveFields(7, 2.5, null)",
+        HasPrimitiveFields.of(7, 2.5, null).toString());
+  }
+
+  @Test
+  public void encodeAndDecode() throws IOException {
+    Object value = HasPrimitiveFields.of(-3, 0.25, SimpleValueInterface.of("a", X));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new TermEncoder(new DataOutputStream(bytes)).write(value);
+    Object decoded = new TermDecoder(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))).read();
+
+    Assert.assertSame(value.getClass(), decoded.getClass());
+    HasPrimitiveFields<?> decodedValue = (HasPrimitiveFields<?>) decoded;
+    Assert.assertEquals(-3, decodedValue.count());
+    Assert.assertEquals(0.25, decodedValue.weight(), 0.0);
+    SimpleValueInterface<?, ?> label = (SimpleValueInterface<?, ?>) decodedValue.label();
+    Assert.assertEquals("a", label.foo());
+    Assert.assertTrue(label.bar() instanceof Var);
+  }
+
+  @MakeLogicValue
+  abstract static class HasAllPrimitiveTypes {
+    abstract boolean z();
+    abstract byte b();
+    abstract short s();
+    abstract char c();
+    abstract int i();
+    abstract long j();
+    abstract float f();
+    abstract double d();
+  }
+
+  @Test
+  public void encodeAndDecodeWithBuffer() {
+    Object value = HasPrimitiveFields.of(-3, 0.25,
+        new MakeLogicValue_MakeLogicValueFunctionalTest_HasAllPrimitiveTypes(
+            true, (byte) -1, (short) 300, 'q', 7, 1L << 40, 1.5f, -2.0));
+    ByteBuffer buffer = ByteBuffer.allocate(256);
+    new BufferEncoder().encode(value, buffer);
+    buffer.flip();
+    Object decoded = new BufferDecoder().decode(buffer);
+
+    Assert.assertEquals(value, decoded);
+    Assert.assertEquals(0, buffer.remaining());
+  }
 }
@@ -23,7 +23,11 @@ package gulava.processor;
 
 import gulava.Goal;
 import gulava.annotation.CollectErrors;
+import gulava.annotation.Det;
+import gulava.annotation.MakeLogicValue;
 import gulava.annotation.MakePredicates;
+import gulava.annotation.Mode;
+import gulava.annotation.Semidet;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -101,4 +105,85 @@ public class MakePredicatesErrorsTest {
     assertRegex("ERROR:No clauses found for predicate.:isOverloadedByPassThrough:.*",
         errors.get(1));
   }
+
+  @MakePredicates
+  @CollectErrors
+  public abstract static class InvalidModeDeclarations {
+    @Det
+    @Semidet
+    public abstract Goal detAndSemidet(Object x);
+
+    final Goal detAndSemidet_impl(Object x) {
+      return null;
+    }
+
+    @Mode("in")
+    public abstract Goal modeWithoutDeterminism(Object x);
+
+    final Goal modeWithoutDeterminism_impl(Object x) {
+      return null;
+    }
+
+    @Semidet
+    @Mode("in")
+    public abstract Goal wrongModeCount(Object x, Object y);
+
+    final Goal wrongModeCount_impl(Object x, Object y) {
+      return null;
+    }
+
+    @Semidet
+    @Mode("in,inout")
+    public abstract Goal unknownMode(Object x, Object y);
+
+    final Goal unknownMode_impl(Object x, Object y) {
+      return null;
+    }
+  }
+
+  @Test
+  public void invalidModeDeclarations() {
+    List<String> errors = new ArrayList<>();
+    MakePredicatesErrorsTest_InvalidModeDeclarations_Errors.add(errors);
+    Assert.assertEquals(4, errors.size());
+    assertRegex("ERROR:Predicate cannot be both @Det and @Semidet[.]:detAndSemidet:.*",
+        errors.get(0));
+    assertRegex("ERROR:@Mode requires @Det or @Semidet on the same predicate[.]"
+        + ":modeWithoutDeterminism:.*",
+        errors.get(1));
+    assertRegex("ERROR:Expected 2 mode[(]s[)] in @Mode but found 1: in:wrongModeCount:.*",
+        errors.get(2));
+    assertRegex("ERROR:Expected 'in' or 'out' in @Mode but found: inout:unknownMode:.*",
+        errors.get(3));
+  }
+
+  @MakeLogicValue
+  abstract static class Weighted<V> {
+    abstract V value();
+    abstract int weight();
+
+    static <V> Weighted<V> of(V value, int weight) {
+      return new MakeLogicValue_MakePredicatesErrorsTest_Weighted<>(value, weight);
+    }
+  }
+
+  @MakePredicates
+  @CollectErrors
+  public abstract static class PatternWithPrimitiveFields {
+    public abstract Goal value(Object weighted, Object value);
+
+    final Goal value_impl(Weighted<?> weighted, Object value) {
+      return null;
+    }
+  }
+
+  @Test
+  public void patternWithPrimitiveFields() {
+    List<String> errors = new ArrayList<>();
+    MakePredicatesErrorsTest_PatternWithPrimitiveFields_Errors.add(errors);
+    Assert.assertEquals(1, errors.size());
+    assertRegex("ERROR:Cannot instantiate a logic value with primitive fields as a pattern: "
+        + ".*Weighted<[?]>:weighted:.*",
+        errors.get(0));
+  }
 }
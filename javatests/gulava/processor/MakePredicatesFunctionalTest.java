@@ -29,8 +29,14 @@ import gulava.Cons;
 import gulava.DelayedGoal;
 import gulava.Goal;
 import gulava.Goals;
+import gulava.Stream;
+import gulava.Streams;
+import gulava.Subst;
 import gulava.Var;
+import gulava.annotation.Det;
 import gulava.annotation.MakePredicates;
+import gulava.annotation.Mode;
+import gulava.annotation.Semidet;
 import gulava.testing.LogicAsserter;
 import gulava.util.Count;
 
@@ -338,4 +344,61 @@ public class MakePredicatesFunctionalTest {
         .put(B, A)
         .test();
   }
+
+  @MakePredicates
+  public static abstract class DeterministicPredicates {
+    @Semidet
+    @Mode("in,out")
+    public abstract Goal head(Object list, Object head);
+
+    final Goal head_impl(Cons<?, ?> list, Object head) {
+      return same(list.car(), head);
+    }
+
+    final Goal head_afterImpl(Cons<?, ?> list, Object head) {
+      return same(list.car(), head);
+    }
+
+    @Det
+    public abstract Goal pair(Object a, Object b, Object pair);
+
+    final Goal pair_impl(Object a, Object b, Object pair) {
+      return same(pair, Cons.of(a, b));
+    }
+  }
+
+  @Test
+  public void semidetReturnsSolutionDirectlyWhenInputIsGround() {
+    DeterministicPredicates predicates =
+        new MakePredicates_MakePredicatesFunctionalTest_DeterministicPredicates();
+    Stream stream = predicates.head(Cons.s(1, 2), A).run(Subst.EMPTY);
+    Assert.assertTrue(stream instanceof Subst);
+    Assert.assertEquals(1, ((Subst) stream).walk(A));
+
+    Assert.assertSame(Streams.EMPTY, predicates.head(null, A).run(Subst.EMPTY));
+  }
+
+  @Test
+  public void semidetRunsAllClausesWhenInputIsNotGround() {
+    DeterministicPredicates predicates =
+        new MakePredicates_MakePredicatesFunctionalTest_DeterministicPredicates();
+    new LogicAsserter()
+        .stream(predicates.head(Cons.of(1, B), A))
+        .addRequestedVar(A)
+        .startSubst()
+        .put(A, 1)
+        .startSubst()
+        .put(A, 1)
+        .test();
+  }
+
+  @Test
+  public void detWithoutModeAlwaysReturnsSolutionDirectly() {
+    DeterministicPredicates predicates =
+        new MakePredicates_MakePredicatesFunctionalTest_DeterministicPredicates();
+    Stream stream = predicates.pair(A, B, Cons.of(1, 2)).run(Subst.EMPTY);
+    Assert.assertTrue(stream instanceof Subst);
+    Assert.assertEquals(1, ((Subst) stream).walk(A));
+    Assert.assertEquals(2, ((Subst) stream).walk(B));
+  }
 }
@@ -0,0 +1,226 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.prolog;
+
+import gulava.Cons;
+import gulava.Functor;
+import gulava.Var;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class ParserTest {
+  private static List<Clause> parse(String text) throws IOException {
+    Parser parser = new Parser(new StringReader(text), "test.pl");
+    List<Clause> clauses = new ArrayList<>();
+    for (Clause clause = parser.nextClause(); clause != null; clause = parser.nextClause()) {
+      clauses.add(clause);
+    }
+    return clauses;
+  }
+
+  private static Clause parseOne(String text) throws IOException {
+    List<Clause> clauses = parse(text);
+    Assert.assertEquals(1, clauses.size());
+    return clauses.get(0);
+  }
+
+  private static SyntaxException parseError(String text) throws IOException {
+    try {
+      parse(text);
+    } catch (SyntaxException e) {
+      return e;
+    }
+    throw new AssertionError("expected a syntax error");
+  }
+
+  @Test
+  public void fact() throws IOException {
+    Clause clause = parseOne("parent(alice, 'Bob Smith').");
+    Assert.assertEquals(Functor.of("parent", "alice", "Bob Smith"), clause.head());
+    Assert.assertEquals("true", clause.body());
+    Assert.assertEquals("parent", clause.name());
+    Assert.assertEquals(2, clause.arity());
+    Assert.assertEquals(1, clause.line());
+    Assert.assertEquals("test.pl", clause.source());
+  }
+
+  @Test
+  public void atomsAreInterned() throws IOException {
+    Functor head = (Functor) parseOne("p(abc, 'abc').").head();
+    Assert.assertSame("abc", head.arg(0));
+    Assert.assertSame("abc", head.arg(1));
+  }
+
+  @Test
+  public void doubleQuotedTextIsCodePoints() throws IOException {
+    Functor head = (Functor) parseOne("p(\"ab\ud83d\ude00\", \"\").").head();
+    Assert.assertEquals(Cons.s((int) 'a', (int) 'b', 0x1f600), head.arg(0));
+    Assert.assertNull(head.arg(1));
+  }
+
+  @Test
+  public void atomHead() throws IOException {
+    Clause clause = parseOne("go :- true.");
+    Assert.assertEquals("go", clause.head());
+    Assert.assertEquals("go", clause.name());
+    Assert.assertEquals(0, clause.arity());
+  }
+
+  @Test
+  public void terms() throws IOException {
+    Functor head = (Functor) parseOne(
+        "p(42, -7, 12345678901, [a, b | T], [], [x], f(g(1)), \"it\\'s\\n\", +, =).").head();
+    Assert.assertEquals(42, head.arg(0));
+    Assert.assertEquals(-7, head.arg(1));
+    Assert.assertEquals(12345678901L, head.arg(2));
+    Cons<?, ?> list = (Cons<?, ?>) head.arg(3);
+    Assert.assertEquals("a", list.car());
+    Assert.assertEquals("b", ((Cons<?, ?>) list.cdr()).car());
+    Assert.assertTrue(((Cons<?, ?>) list.cdr()).cdr() instanceof Var);
+    Assert.assertNull(head.arg(4));
+    Assert.assertEquals(Cons.of("x", null), head.arg(5));
+    Assert.assertEquals(Functor.of("f", Functor.of("g", 1)), head.arg(6));
+    Assert.assertEquals(
+        Cons.s((int) 'i', (int) 't', (int) '\'', (int) 's', (int) '\n'), head.arg(7));
+    Assert.assertEquals("+", head.arg(8));
+    Assert.assertEquals("=", head.arg(9));
+  }
+
+  @Test
+  public void variablesAreScopedToClause() throws IOException {
+    List<Clause> clauses = parse("p(X, X, _, _).\np(X).");
+    Functor first = (Functor) clauses.get(0).head();
+    Functor second = (Functor) clauses.get(1).head();
+    Assert.assertSame(first.arg(0), first.arg(1));
+    Assert.assertNotSame(first.arg(2), first.arg(3));
+    Assert.assertNotSame(first.arg(0), second.arg(0));
+  }
+
+  @Test
+  public void operatorPrecedence() throws IOException {
+    Clause clause = parseOne("p(X) :- a, X = b ; c, (d ; e).");
+    Object x = ((Functor) clause.head()).arg(0);
+    Assert.assertEquals(
+        Functor.of(";",
+            Functor.of(",", "a", Functor.of("=", x, "b")),
+            Functor.of(",", "c", Functor.of(";", "d", "e"))),
+        clause.body());
+  }
+
+  @Test
+  public void conjunctionIsRightAssociative() throws IOException {
+    Assert.assertEquals(
+        Functor.of(",", "a", Functor.of(",", "b", "c")),
+        parseOne("p :- a, b, c.").body());
+  }
+
+  @Test
+  public void comments() throws IOException {
+    List<Clause> clauses = parse(
+        "% leading comment\n"
+        + "p(a). /* block\n comment */ p(b). % trailing\n"
+        + "p(c).");
+    Assert.assertEquals(3, clauses.size());
+    Assert.assertEquals(3, clauses.get(1).line());
+    Assert.assertEquals(4, clauses.get(2).line());
+  }
+
+  @Test
+  public void periodInsideSymbolsDoesNotEndClause() throws IOException {
+    Assert.assertEquals(Functor.of("p", "=.."), parseOne("p(=..).").head());
+  }
+
+  @Test
+  public void errorLineAndColumn() throws IOException {
+    SyntaxException e = parseError("p(a).\np(b)\np(c).");
+    Assert.assertEquals("test.pl", e.getSource());
+    Assert.assertEquals(3, e.getLine());
+    Assert.assertEquals(1, e.getColumn());
+    Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("test.pl:3:1: "));
+  }
+
+  @Test
+  public void errors() throws IOException {
+    Assert.assertEquals(1, parseError("p(a, ).").getLine());
+    Assert.assertEquals(2, parseError("\np([a | b c]).").getLine());
+    Assert.assertEquals(1, parseError("X :- true.").getLine());
+    Assert.assertEquals(1, parseError("p :- 3.").getLine());
+    Assert.assertEquals(1, parseError(":- initialization(main).").getLine());
+    Assert.assertEquals(1, parseError("p('unterminated).").getLine());
+    Assert.assertEquals(1, parseError("p(a) :- X = Y = Z.").getLine());
+    Assert.assertEquals(2, parseError("p(a).\np(a) :- q(a").getLine());
+    Assert.assertEquals(1, parseError("p(a). /* no end").getLine());
+    Assert.assertEquals(1, parseError("p({}).").getLine());
+  }
+
+  @Test
+  public void continuesAfterError() throws IOException {
+    Parser parser = new Parser(new StringReader("p(a).\np(,).\np(c)."), "test.pl");
+    Assert.assertEquals(Functor.of("p", "a"), parser.nextClause().head());
+    try {
+      parser.nextClause();
+      Assert.fail();
+    } catch (SyntaxException e) {
+      Assert.assertEquals(2, e.getLine());
+    }
+    Clause third = parser.nextClause();
+    Assert.assertEquals(Functor.of("p", "c"), third.head());
+    Assert.assertEquals(3, third.line());
+    Assert.assertNull(parser.nextClause());
+  }
+
+  @Test
+  public void unexpectedCharacterAfterCompleteClause() throws IOException {
+    Parser parser = new Parser(new StringReader("p.\n` q.\nr.\n"), "test.pl");
+    Assert.assertEquals("p", parser.nextClause().head());
+    try {
+      parser.nextClause();
+      Assert.fail();
+    } catch (SyntaxException e) {
+      Assert.assertEquals(2, e.getLine());
+      Assert.assertEquals(1, e.getColumn());
+    }
+    Assert.assertEquals("r", parser.nextClause().head());
+    Assert.assertNull(parser.nextClause());
+  }
+
+  @Test
+  public void largeInput() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 50000; i++) {
+      text.append("edge(n").append(i).append(", n").append(i + 1).append(").\n");
+    }
+    List<Clause> clauses = parse(text.toString());
+    Assert.assertEquals(50000, clauses.size());
+    Assert.assertEquals(50000, clauses.get(49999).line());
+    Assert.assertEquals(Functor.of("edge", "n49999", "n50000"), clauses.get(49999).head());
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.prolog;
+
+import gulava.Cons;
+import gulava.Functor;
+import gulava.Goal;
+import gulava.Reifier;
+import gulava.Stream;
+import gulava.Streams;
+import gulava.Subst;
+import gulava.Var;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class ProgramTest {
+  private static final String FAMILY = ""
+      + "parent(alice, bob).\n"
+      + "parent(alice, carol).\n"
+      + "parent(bob, dave).\n"
+      + "parent(carol, erin).\n"
+      + "\n"
+      + "ancestor(X, Y) :- parent(X, Y).\n"
+      + "ancestor(X, Z) :- ancestor(X, Y), parent(Y, Z).\n"
+      + "\n"
+      + "append([], L, L).\n"
+      + "append([H | T], L, [H | R]) :- append(T, L, R).\n"
+      + "\n"
+      + "sibling(X, Y) :- parent(P, X), parent(P, Y).\n"
+      + "leaf(X) :- parent(_, X), (X = dave ; X = erin).\n"
+      + "nothing :- fail.\n";
+
+  private static Program load(String text) throws IOException {
+    return new Program.Builder().load(new StringReader(text), "test.pl").build();
+  }
+
+  /**
+   * Returns the fully-walked values of {@code var} in up to {@code limit} answers of {@code goal}.
+   */
+  private static Set<Object> answers(Goal goal, Var var, int limit) {
+    Set<Object> answers = new HashSet<>();
+    Stream stream = goal.run(Subst.EMPTY);
+    while ((stream != Streams.EMPTY) && (answers.size() < limit)) {
+      if (stream.subst() != null) {
+        answers.add(new Reifier(stream.subst()).reify(var));
+      }
+      stream = stream.rest();
+    }
+    return answers;
+  }
+
+  private static Set<Object> answers(Program program, String query, String var)
+      throws IOException {
+    Query parsed = program.query(query);
+    return answers(parsed.goal(), parsed.variable(var), Integer.MAX_VALUE);
+  }
+
+  private static Set<Object> setOf(Object... values) {
+    return new HashSet<>(Arrays.asList(values));
+  }
+
+  @Test
+  public void facts() throws IOException {
+    Program program = load(FAMILY);
+    Assert.assertEquals(setOf("bob", "carol"), answers(program, "parent(alice, X)", "X"));
+    Assert.assertEquals(setOf(), answers(program, "parent(dave, X).", "X"));
+    Assert.assertEquals(4, program.clauses("parent", 2).size());
+    Assert.assertEquals(0, program.clauses("parent", 3).size());
+  }
+
+  @Test
+  public void recursiveRule() throws IOException {
+    Program program = load(FAMILY);
+    Query query = program.query("ancestor(alice, X)");
+    Assert.assertEquals(setOf("bob", "carol", "dave", "erin"),
+        answers(query.goal(), query.variable("X"), 4));
+  }
+
+  @Test
+  public void lists() throws IOException {
+    Program program = load(FAMILY);
+    Assert.assertEquals(
+        setOf(Cons.list(Arrays.asList(1, 2, 3))),
+        answers(program, "append([1], [2, 3], X)", "X"));
+    Assert.assertEquals(
+        setOf(null, Cons.of("a", null), Cons.list(Arrays.asList("a", "b"))),
+        answers(program, "append(X, _, [a, b])", "X"));
+  }
+
+  @Test
+  public void conjunctionAndDisjunction() throws IOException {
+    Program program = load(FAMILY);
+    Assert.assertEquals(setOf("bob", "carol"), answers(program, "sibling(bob, X)", "X"));
+    Assert.assertEquals(setOf("dave", "erin"), answers(program, "leaf(X)", "X"));
+    Assert.assertEquals(setOf("dave"),
+        answers(program, "parent(bob, X), (X = erin ; X = dave)", "X"));
+    Assert.assertEquals(setOf(), answers(program, "nothing, X = 1", "X"));
+  }
+
+  @Test
+  public void goalFromJava() throws IOException {
+    Program program = load(FAMILY);
+    Var x = new Var();
+    Assert.assertEquals(setOf("bob", "carol", "dave", "erin"),
+        answers(program.goal("ancestor", "alice", x), x, 4));
+  }
+
+  @Test
+  public void queryVariables() throws IOException {
+    Query query = load(FAMILY).query("parent(P, C), parent(C, _)");
+    Assert.assertEquals(Arrays.asList("P", "C"),
+        Arrays.asList(query.variables().keySet().toArray()));
+  }
+
+  @Test
+  public void loadReportsEveryErrorAndKeepsGoodClauses() throws IOException {
+    Program.Builder builder = new Program.Builder();
+    try {
+      builder.load(new StringReader("p(a).\np(b\np(c).\np(d).\nq(,).\n"), "bad.pl");
+      Assert.fail();
+    } catch (SyntaxException e) {
+      Assert.assertEquals(3, e.getLine());
+      Assert.assertEquals(1, e.getSuppressed().length);
+      Assert.assertEquals(5, ((SyntaxException) e.getSuppressed()[0]).getLine());
+    }
+    Program program = builder.build();
+    Assert.assertEquals(setOf("a", "d"), answers(program, "p(X)", "X"));
+  }
+
+  @Test
+  public void unknownPredicate() throws IOException {
+    try {
+      load("p(a).\nq(X) :- p(X), r(X).\n");
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("test.pl:2: Unknown predicate r/1", e.getMessage());
+    }
+    try {
+      load(FAMILY).query("parent(X)");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Unknown predicate parent/1", e.getMessage());
+    }
+  }
+
+  @Test
+  public void functorArguments() throws IOException {
+    Program program = load("area(square(S), A) :- A = times(S, S).\n");
+    Assert.assertEquals(setOf(Functor.of("times", 3, 3)),
+        answers(program, "area(square(3), A)", "A"));
+  }
+
+  @Test
+  public void manyFacts() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      text.append("next(").append(i).append(", ").append(i + 1).append(").\n");
+    }
+    Program program = load(text.toString());
+    Assert.assertEquals(setOf(12346), answers(program, "next(12345, X)", "X"));
+  }
+
+  @Test
+  public void firstArgumentIndex() throws IOException {
+    Program program = load(""
+        + "kind(1, one).\n"
+        + "kind(X, any) :- X = X.\n"
+        + "kind(f(_), functor).\n"
+        + "kind(f(_, _), functor2).\n"
+        + "kind([_ | _], list).\n"
+        + "kind([], empty).\n"
+        + "kind(1, uno).\n");
+    Assert.assertEquals(setOf("one", "uno", "any"), answers(program, "kind(1, K)", "K"));
+    Assert.assertEquals(setOf("functor", "any"), answers(program, "kind(f(a), K)", "K"));
+    Assert.assertEquals(setOf("list", "any"), answers(program, "kind([a], K)", "K"));
+    Assert.assertEquals(setOf("empty", "any"), answers(program, "kind([], K)", "K"));
+    Assert.assertEquals(setOf("any"), answers(program, "kind(2, K)", "K"));
+    Assert.assertEquals(7, answers(program, "kind(_, K)", "K").size());
+    Assert.assertEquals(setOf(1), answers(program, "kind(X, uno)", "X"));
+  }
+
+  @Test
+  public void doubleQuotedTextIsNotAnAtom() throws IOException {
+    Program program = load("word(foo).\nword(\"bar\").\n");
+    Assert.assertEquals(setOf("foo"), answers(program, "word(X), X = foo", "X"));
+    Assert.assertEquals(setOf(), answers(program, "word(\"foo\"), X = yes", "X"));
+    Assert.assertEquals(setOf(), answers(program, "word(bar), X = yes", "X"));
+    Assert.assertEquals(setOf("yes"), answers(program, "word(\"bar\"), X = yes", "X"));
+  }
+}
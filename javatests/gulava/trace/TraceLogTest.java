@@ -0,0 +1,219 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.trace;
+
+import gulava.Cons;
+import gulava.Goal;
+import gulava.Profiler;
+import gulava.Stream;
+import gulava.Streams;
+import gulava.Subst;
+import gulava.Var;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class TraceLogTest {
+  private static final Var X = new Var();
+  private static final Var Y = new Var();
+
+  private Path file;
+  private Profiler profiler;
+
+  @Before
+  public void createFile() throws IOException {
+    file = Files.createTempFile("TraceLogTest", ".trace");
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    if (profiler != null) {
+      profiler.stop();
+    }
+    Files.delete(file);
+  }
+
+  /**
+   * Runs a query to the end with a profiler which reports to {@code log}, then closes the log.
+   */
+  private void trace(TraceLog log) throws IOException {
+    runQuery(log);
+    log.close();
+  }
+
+  private void runQuery(TraceLog log) {
+    profiler = Profiler.start(log);
+    Goal goal = Cons.O.order(Cons.list(Arrays.asList(X, Y)), Cons.list(Arrays.asList(1, 2, 3)));
+    Stream stream = goal.run(Subst.EMPTY);
+    while (stream != Streams.EMPTY) {
+      stream = stream.rest();
+    }
+    profiler.stop();
+  }
+
+  private static Map<String, TraceReader.Stats> byName(Iterable<TraceReader.Stats> all) {
+    Map<String, TraceReader.Stats> byName = new HashMap<>();
+    for (TraceReader.Stats stats : all) {
+      byName.put(stats.name(), stats);
+    }
+    return byName;
+  }
+
+  @Test
+  public void unsampledTraceMatchesProfile() throws IOException {
+    TraceLog log = TraceLog.create(file, 1, 64);
+    trace(log);
+    Assert.assertEquals(log.size(), Files.size(file));
+
+    TraceReader reader = TraceReader.read(file);
+    Assert.assertEquals(1, reader.samplingInterval());
+    Map<String, TraceReader.Stats> predicates = byName(reader.predicates());
+    for (Profiler.Entry entry : profiler.flatProfile()) {
+      TraceReader.Stats stats = predicates.get(entry.name());
+      Assert.assertEquals(entry.name(), entry.calls(), stats.calls());
+      Assert.assertEquals(entry.name(), entry.answers(), stats.answers());
+      Assert.assertEquals(entry.name(), entry.failures(), stats.failures());
+      // Recursive runs never exit, since their streams are part of those of the enclosing runs.
+      Assert.assertEquals(entry.name(), stats.calls() - stats.recursiveCalls(), stats.exits());
+    }
+    Assert.assertEquals(profiler.flatProfile().size(), predicates.size());
+
+    long pathCalls = 0;
+    for (TraceReader.Stats path : reader.hotPaths()) {
+      pathCalls += path.calls();
+      Assert.assertTrue(path.name(), path.name().startsWith("gulava.Cons.Goals.order"));
+    }
+    long predicateCalls = 0;
+    for (TraceReader.Stats predicate : reader.predicates()) {
+      predicateCalls += predicate.calls();
+    }
+    Assert.assertEquals(predicateCalls, pathCalls);
+  }
+
+  private static String report(TraceReader reader) throws IOException {
+    StringBuilder report = new StringBuilder();
+    reader.writeReport(report, Integer.MAX_VALUE);
+    return report.toString();
+  }
+
+  @Test
+  public void readsInRegions() throws IOException {
+    trace(TraceLog.create(file, 1));
+    Assert.assertEquals(report(TraceReader.read(file)), report(TraceReader.read(file, 64)));
+  }
+
+  @Test
+  public void logWhichWasNotClosedEndsAtZeroTag() throws IOException {
+    trace(TraceLog.create(file, 1));
+    String closedReport = report(TraceReader.read(file));
+
+    TraceLog log = TraceLog.create(file, 1);
+    try {
+      runQuery(log);
+      Assert.assertTrue(Files.size(file) > log.size());
+      Assert.assertEquals(closedReport, report(TraceReader.read(file)));
+    } finally {
+      log.close();
+    }
+  }
+
+  @Test
+  public void sampling() throws IOException {
+    trace(TraceLog.create(file, 1));
+    long allCalls = 0;
+    for (TraceReader.Stats predicate : TraceReader.read(file).predicates()) {
+      allCalls += predicate.calls();
+    }
+
+    trace(TraceLog.create(file, 3));
+    TraceReader sampled = TraceReader.read(file);
+    Assert.assertEquals(3, sampled.samplingInterval());
+    long sampledCalls = 0;
+    for (TraceReader.Stats predicate : sampled.predicates()) {
+      sampledCalls += predicate.calls();
+    }
+    Assert.assertEquals((allCalls + 2) / 3, sampledCalls);
+  }
+
+  @Test
+  public void report() throws IOException {
+    trace(TraceLog.create(file, 1));
+    StringBuilder report = new StringBuilder();
+    TraceReader.read(file).writeReport(report, 1);
+    String[] lines = report.toString().split("\n");
+    Assert.assertEquals("sampling interval: 1", lines[0]);
+    Assert.assertEquals("path", lines[lines.length - 2].substring(40));
+    Assert.assertTrue(lines[lines.length - 1].matches(".*  gulava\\.Cons\\.Goals\\.order(;.*)?"));
+  }
+
+  @Test
+  public void deepRecursionHasFewPaths() throws IOException {
+    Assert.assertEquals(appendPaths(5), appendPaths(2000));
+  }
+
+  /**
+   * Traces appending a list of {@code length} elements and returns the number of paths.
+   */
+  private int appendPaths(int length) throws IOException {
+    List<Integer> elements = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      elements.add(i);
+    }
+    TraceLog log = TraceLog.create(file, 1);
+    profiler = Profiler.start(log);
+    Stream stream = Cons.O.append(Cons.list(elements), Y, X).run(Subst.EMPTY);
+    while (stream != Streams.EMPTY) {
+      stream = stream.rest();
+    }
+    profiler.stop();
+    log.close();
+
+    TraceReader reader = TraceReader.read(file);
+    Assert.assertEquals(
+        length + 1, byName(reader.predicates()).get("gulava.Cons.Goals.append").calls());
+    return reader.hotPaths().size();
+  }
+
+  @Test
+  public void rejectsOtherFiles() {
+    try {
+      TraceReader.read(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}));
+      Assert.fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
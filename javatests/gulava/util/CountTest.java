@@ -23,6 +23,10 @@ package gulava.util;
 
 import static gulava.Goals.same;
 
+import gulava.InMemorySolverMetrics;
+import gulava.SolverMetrics;
+import gulava.Streams;
+import gulava.Subst;
 import gulava.Var;
 import gulava.testing.LogicAsserter;
 
@@ -63,4 +67,20 @@ public class CountTest {
         .addRequestedVar(X)
         .test();
   }
+
+  @Test
+  public void lessChecksGroundnessOnlyAtOutermostCall() {
+    InMemorySolverMetrics metrics = new InMemorySolverMetrics();
+    SolverMetrics.install(metrics);
+    try {
+      int n = 400;
+      Assert.assertNotNull(
+          Streams.first(Count.O.less(Count.fromInt(n), Count.fromInt(n + 1)).run(Subst.EMPTY)));
+      // Checking both inputs at every level of the recursion would walk about n * n times.
+      Assert.assertTrue(metrics.walkChainLengths().toString(),
+          metrics.walkChainLengths().count() < 20 * n);
+    } finally {
+      SolverMetrics.install(SolverMetrics.NONE);
+    }
+  }
 }
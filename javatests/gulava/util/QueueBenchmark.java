@@ -0,0 +1,99 @@
+/*
+ *  Copyright (c) 2016 The Gulava Authors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package gulava.util;
+
+import static gulava.Goals.same;
+
+import gulava.Goal;
+import gulava.Subst;
+import gulava.Var;
+import gulava.benchmarks.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Queue} and {@link DiffList} predicates. The goals are built inside each
+ * benchmark method, since they refer to fresh variables, so the time includes building them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueueBenchmark {
+  @Param({"10", "50", "200"})
+  public int size;
+
+  /**
+   * Enqueues {@code size} elements and then dequeues all of them.
+   */
+  @Benchmark
+  public int queueEnqueueDequeue(Blackhole blackhole) {
+    List<Goal> goals = new ArrayList<>();
+    Object queue = Queue.empty();
+    for (int i = 0; i < size; i++) {
+      Var with = new Var();
+      goals.add(Queue.O.last(i, queue, with));
+      queue = with;
+    }
+    for (int i = 0; i < size; i++) {
+      Var without = new Var();
+      goals.add(Queue.O.first(new Var(), without, queue));
+      queue = without;
+    }
+    return Benchmarks.drain(Benchmarks.conj(goals).run(Subst.EMPTY), blackhole);
+  }
+
+  /**
+   * Appends {@code size} elements to a difference list and then converts it to a {@link Cons}
+   * list.
+   */
+  @Benchmark
+  public int diffListAppendAndFinish(Blackhole blackhole) {
+    List<Goal> goals = new ArrayList<>();
+    Object diffList = DiffList.empty();
+    for (int i = 0; i < size; i++) {
+      Var with = new Var();
+      goals.add(DiffList.O.last(i, diffList, with));
+      diffList = with;
+    }
+    Var list = new Var();
+    goals.add(DiffList.O.finish(diffList, list));
+    goals.add(same(list, new Var()));
+    return Benchmarks.drain(Benchmarks.conj(goals).run(Subst.EMPTY), blackhole);
+  }
+}